@@ -0,0 +1,316 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Runs the automations of {@link STouchRESTAPI} as jobs, one after the other,
+ * on a single thread that owns the session of the {@link FakeSTouch}.
+ * <p>
+ * Automations can take minutes, so they are submitted with
+ * {@link #submit(String[], Automation)}, which returns right away. The progress
+ * of a job is read with {@link #getStatus(String)}, and a job can be cancelled
+ * with {@link #cancel(String)}. The status of the last
+ * {@value #MAX_FINISHED_JOBS} finished jobs is kept.
+ */
+public class AutomationJobs {
+
+	/** the state of a job */
+	public enum State {
+		QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED
+	}
+
+	/**
+	 * The steps of an automation, executed by the thread of the
+	 * {@code AutomationJobs}
+	 */
+	@FunctionalInterface
+	public interface Automation {
+		/**
+		 * @param job the job executing this automation, used for reporting the
+		 *            progress
+		 * @return {@code null} if the automation succeeded, or the reason why it
+		 *         failed
+		 * @throws Exception if the automation failed
+		 */
+		String run(Job job) throws Exception;
+	}
+
+	/**
+	 * Inner class for representing the status of a job
+	 */
+	public static class AutomationJobStatus {
+		public final String id;
+		public final State state;
+		public final int step;
+		public final int steps;
+		public final String command;
+		public final String message;
+		public final long submitted;
+		public final long started;
+		public final long finished;
+
+		public AutomationJobStatus(String id, State state, int step, int steps, String command, String message,
+				long submitted, long started, long finished) {
+			this.id = id;
+			this.state = state;
+			this.step = step;
+			this.steps = steps;
+			this.command = command;
+			this.message = message;
+			this.submitted = submitted;
+			this.started = started;
+			this.finished = finished;
+		}
+	}
+
+	/**
+	 * A submitted automation
+	 */
+	public static class Job {
+		private final String id;
+		private final String[] commands;
+		private final long submitted = System.currentTimeMillis();
+		private final CountDownLatch done = new CountDownLatch(1);
+		// guarded by this
+		private State state = State.QUEUED;
+		private int step = -1;
+		private String command = null;
+		private String message = null;
+		private long started = -1;
+		private long finished = -1;
+		private boolean cancelRequested = false;
+		private Future<?> future = null;
+
+		private Job(String id, String[] commands) {
+			this.id = id;
+			this.commands = commands;
+		}
+
+		/**
+		 * @return the commands of the automation
+		 */
+		public String[] getCommands() {
+			return commands.clone();
+		}
+
+		/**
+		 * record that the command with index {@code step} is executed now
+		 *
+		 * @param step    index of the command in {@link #getCommands()}
+		 * @param command the executed command
+		 * @throws CancellationException if the job has been cancelled
+		 */
+		public synchronized void step(int step, String command) {
+			if (cancelRequested) {
+				throw new CancellationException("job " + id + " has been cancelled");
+			}
+			this.step = step;
+			this.command = command;
+		}
+
+		/**
+		 * @return {@code true} if the job has been cancelled
+		 */
+		public synchronized boolean isCancelled() {
+			return cancelRequested;
+		}
+
+		/**
+		 * @return the {@link AutomationJobStatus} of this job
+		 */
+		public synchronized AutomationJobStatus getStatus() {
+			return new AutomationJobStatus(id, state, step, commands.length, command, message, submitted, started,
+					finished);
+		}
+
+		private synchronized boolean isFinished() {
+			return finished >= 0;
+		}
+
+		private void run(Automation automation) {
+			synchronized (this) {
+				if (cancelRequested) {
+					return;
+				}
+				state = State.RUNNING;
+				started = System.currentTimeMillis();
+			}
+			State result;
+			String reason;
+			try {
+				reason = automation.run(this);
+				result = (reason == null) ? State.SUCCEEDED : State.FAILED;
+			} catch (Exception e) {
+				reason = e.getMessage();
+				result = State.FAILED;
+				if (!isCancelled()) {
+					e.printStackTrace();
+				}
+			}
+			synchronized (this) {
+				state = cancelRequested ? State.CANCELLED : result;
+				message = cancelRequested ? "Automation cancelled" : reason;
+				finished = System.currentTimeMillis();
+				// clear the interrupt of a cancel, the thread is used for the next job
+				Thread.interrupted();
+			}
+			done.countDown();
+			System.out.println("[AutomationJobs] run: job " + id + " " + state);
+		}
+
+		private synchronized boolean cancel() {
+			if (finished >= 0) {
+				return false;
+			}
+			cancelRequested = true;
+			if (state == State.QUEUED) {
+				state = State.CANCELLED;
+				message = "Automation cancelled";
+				finished = System.currentTimeMillis();
+				future.cancel(false);
+				done.countDown();
+			} else {
+				// interrupt waiting for the display
+				future.cancel(true);
+			}
+			return true;
+		}
+	}
+
+	/** number of finished jobs whose status is kept */
+	public static final int MAX_FINISHED_JOBS = 32;
+
+	private final ExecutorService scheduler = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "STouchAutomation");
+		t.setDaemon(true);
+		return t;
+	});
+	private final AtomicLong nextId = new AtomicLong(1);
+	// guarded by this
+	private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+	/**
+	 * Submit an automation, it is executed after all jobs submitted before
+	 *
+	 * @param commands   the commands of the automation, used for reporting the
+	 *                   progress
+	 * @param automation the automation to execute
+	 * @return the submitted {@link Job}
+	 */
+	public synchronized Job submit(String[] commands, Automation automation) {
+		Job job = new Job(Long.toString(nextId.getAndIncrement()), commands);
+		jobs.put(job.id, job);
+		removeFinishedJobs();
+		synchronized (job) {
+			job.future = scheduler.submit(() -> job.run(automation));
+		}
+		System.out.println("[AutomationJobs] submit: job " + job.id + " with " + commands.length + " commands");
+		return job;
+	}
+
+	/**
+	 * @param id the id of the job
+	 * @return the {@link AutomationJobStatus} of the job, or {@code null} if the
+	 *         job is not known
+	 */
+	public synchronized AutomationJobStatus getStatus(String id) {
+		Job job = jobs.get(id);
+		return (job == null) ? null : job.getStatus();
+	}
+
+	/**
+	 * @return the {@link AutomationJobStatus} of all known jobs, in the order they
+	 *         have been submitted
+	 */
+	public synchronized List<AutomationJobStatus> getStatus() {
+		List<AutomationJobStatus> status = new ArrayList<>();
+		for (Job job : jobs.values()) {
+			status.add(job.getStatus());
+		}
+		return status;
+	}
+
+	/**
+	 * Cancel a job. A queued job is not started, a running job is stopped before
+	 * its next command.
+	 *
+	 * @param id the id of the job
+	 * @return the {@link AutomationJobStatus} of the job after cancelling it, or
+	 *         {@code null} if the job is not known
+	 * @throws IllegalStateException if the job has already finished
+	 */
+	public AutomationJobStatus cancel(String id) {
+		Job job;
+		synchronized (this) {
+			job = jobs.get(id);
+		}
+		if (job == null) {
+			return null;
+		}
+		if (!job.cancel()) {
+			throw new IllegalStateException("job " + id + " has already finished");
+		}
+		return job.getStatus();
+	}
+
+	/**
+	 * Wait until a job has finished
+	 *
+	 * @param job the job to wait for
+	 * @return the {@link AutomationJobStatus} of the finished job
+	 * @throws InterruptedException if the current thread is interrupted while
+	 *                              waiting
+	 */
+	public AutomationJobStatus await(Job job) throws InterruptedException {
+		job.done.await();
+		return job.getStatus();
+	}
+
+	/**
+	 * remove the oldest finished jobs, if more than {@value #MAX_FINISHED_JOBS}
+	 * are kept. Must be called while holding the lock of this object.
+	 */
+	private void removeFinishedJobs() {
+		int finished = 0;
+		for (Job job : jobs.values()) {
+			if (job.isFinished()) {
+				finished++;
+			}
+		}
+		Iterator<Job> it = jobs.values().iterator();
+		while (finished > MAX_FINISHED_JOBS && it.hasNext()) {
+			if (it.next().isFinished()) {
+				it.remove();
+				finished--;
+			}
+		}
+	}
+}
@@ -0,0 +1,296 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A ring buffer that delivers every published element to all registered
+ * consumers, e.g. for fanning out the snapshots received by
+ * {@link FakeSystaWeb} to loggers, push streams and metrics.
+ * <p>
+ * There is one writer sequence, and each consumer has its own {@link Cursor}
+ * holding the sequence of the next element it reads. The producer never waits
+ * for the consumers. If a consumer falls behind by more than the capacity of
+ * the ring, the elements it missed are overwritten. The consumer detects this
+ * on its next read, skips to the oldest element still available and counts the
+ * skipped elements in {@link Cursor#getMissed()}.
+ * <p>
+ * {@link #publish(Object)} must only be called by one thread at a time.
+ * Consumers can {@link #subscribe(String)} and {@link #unsubscribe(Cursor)} at
+ * any time, each {@link Cursor} must only be used by one thread at a time.
+ *
+ * @param <E> the type of elements published
+ */
+public class BroadcastRing<E> {
+
+	/**
+	 * The read position of one consumer of the {@link BroadcastRing}
+	 */
+	public class Cursor {
+		private final String name;
+		private volatile long next;
+		private volatile long missed = 0;
+		private volatile boolean subscribed = true;
+
+		private Cursor(String name, long next) {
+			this.name = name;
+			this.next = next;
+		}
+
+		/**
+		 * @return the next element for this consumer, or {@code null} if there is
+		 *         none
+		 */
+		public E poll() {
+			while (true) {
+				long n = next;
+				if (n > cursor) {
+					return null;
+				}
+				Entry<E> entry = slots.get(index(n));
+				if (entry.sequence == n) {
+					next = n + 1;
+					return entry.value;
+				}
+				// the slot has been overwritten by a newer element, this consumer has been
+				// lapped by the producer
+				skipToOldest(n);
+			}
+		}
+
+		/**
+		 * wait up to {@code timeoutMillis} for the next element for this consumer
+		 *
+		 * @param timeoutMillis the maximum time to wait in milliseconds
+		 * @return the next element, or {@code null} if there was none within
+		 *         {@code timeoutMillis} or the waiting thread has been interrupted
+		 */
+		public E poll(long timeoutMillis) {
+			long deadline = System.currentTimeMillis() + timeoutMillis;
+			synchronized (BroadcastRing.this) {
+				E element = poll();
+				long remaining = deadline - System.currentTimeMillis();
+				while (element == null && remaining > 0 && subscribed) {
+					waiting++;
+					try {
+						BroadcastRing.this.wait(remaining);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+						return null;
+					} finally {
+						waiting--;
+					}
+					element = poll();
+					remaining = deadline - System.currentTimeMillis();
+				}
+				return element;
+			}
+		}
+
+		/**
+		 * Removes up to {@code maxElements} elements for this consumer and adds them
+		 * to {@code target}
+		 *
+		 * @param target      the collection the elements are added to
+		 * @param maxElements the maximum number of elements
+		 * @return the number of added elements
+		 */
+		public int drainTo(Collection<? super E> target, int maxElements) {
+			int n = 0;
+			E element;
+			while (n < maxElements && (element = poll()) != null) {
+				target.add(element);
+				n++;
+			}
+			return n;
+		}
+
+		/**
+		 * @return the name given to this consumer on {@link #subscribe(String)}
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return the number of published elements this consumer has not read yet
+		 */
+		public long getLag() {
+			return Math.max(0, cursor - next + 1);
+		}
+
+		/**
+		 * @return the number of elements that have been overwritten before this
+		 *         consumer could read them
+		 */
+		public long getMissed() {
+			return missed;
+		}
+
+		/**
+		 * @return {@code true} if this consumer is still registered
+		 */
+		public boolean isSubscribed() {
+			return subscribed;
+		}
+
+		private void skipToOldest(long n) {
+			long oldest = Math.max(n + 1, cursor - slots.length() + 1);
+			missed += oldest - n;
+			next = oldest;
+		}
+	}
+
+	/** the published element together with its sequence */
+	private static class Entry<E> {
+		private final long sequence;
+		private final E value;
+
+		private Entry(long sequence, E value) {
+			this.sequence = sequence;
+			this.value = value;
+		}
+	}
+
+	private final AtomicReferenceArray<Entry<E>> slots;
+	private final int mask;
+	private final List<Cursor> cursors = new CopyOnWriteArrayList<>();
+	/** sequence of the last published element, -1 if nothing has been published */
+	private volatile long cursor = -1;
+	/** number of threads waiting in {@link Cursor#poll(long)}, guarded by this */
+	private int waiting = 0;
+
+	/**
+	 * Creates a {@code BroadcastRing} that keeps at least the last
+	 * {@code capacity} elements for slow consumers. The capacity is rounded up to
+	 * the next power of two.
+	 *
+	 * @param capacity the minimum number of elements kept
+	 */
+	public BroadcastRing(int capacity) {
+		if (capacity < 1 || capacity > SpscRingBuffer.MAX_CAPACITY) {
+			throw new IllegalArgumentException(
+					"capacity has to be between 1 and " + SpscRingBuffer.MAX_CAPACITY + ": " + capacity);
+		}
+		int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.slots = new AtomicReferenceArray<>(size);
+		this.mask = size - 1;
+	}
+
+	/**
+	 * publish an element to all consumers. This never blocks on slow consumers.
+	 *
+	 * @param element the element to publish
+	 * @return the sequence of the published element
+	 */
+	public long publish(E element) {
+		long sequence = cursor + 1;
+		slots.set(index(sequence), new Entry<>(sequence, element));
+		cursor = sequence;
+		synchronized (this) {
+			if (waiting > 0) {
+				notifyAll();
+			}
+		}
+		return sequence;
+	}
+
+	/**
+	 * register a new consumer. The consumer receives all elements published after
+	 * this call.
+	 *
+	 * @param name a name for the consumer, used for status reporting
+	 * @return the {@link Cursor} of the new consumer
+	 */
+	public Cursor subscribe(String name) {
+		Cursor c = new Cursor(name, cursor + 1);
+		cursors.add(c);
+		return c;
+	}
+
+	/**
+	 * register a new consumer. The consumer receives the last published element,
+	 * if there is one, and all elements published after this call.
+	 *
+	 * @param name a name for the consumer, used for status reporting
+	 * @return the {@link Cursor} of the new consumer
+	 */
+	public Cursor subscribeFromLatest(String name) {
+		Cursor c = new Cursor(name, Math.max(0, cursor));
+		cursors.add(c);
+		return c;
+	}
+
+	/**
+	 * remove a consumer. Threads waiting in {@link Cursor#poll(long)} of this
+	 * consumer return.
+	 *
+	 * @param c the {@link Cursor} of the consumer
+	 */
+	public void unsubscribe(Cursor c) {
+		c.subscribed = false;
+		cursors.remove(c);
+		synchronized (this) {
+			notifyAll();
+		}
+	}
+
+	/**
+	 * @return the consumers currently registered
+	 */
+	public List<Cursor> getCursors() {
+		return List.copyOf(cursors);
+	}
+
+	/**
+	 * @return the sequence of the last published element, -1 if nothing has been
+	 *         published
+	 */
+	public long getSequence() {
+		return cursor;
+	}
+
+	/**
+	 * @return the last published element, or {@code null} if nothing has been
+	 *         published
+	 */
+	public E getLatest() {
+		long c = cursor;
+		if (c < 0) {
+			return null;
+		}
+		Entry<E> entry = slots.get(index(c));
+		return (entry == null) ? null : entry.value;
+	}
+
+	/**
+	 * @return the number of elements kept for slow consumers
+	 */
+	public int capacity() {
+		return slots.length();
+	}
+
+	private int index(long sequence) {
+		return (int) sequence & mask;
+	}
+}
@@ -1,5 +1,9 @@
 package de.freaklamarsch.systarest;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+
 /*
  *
  * MIT License
@@ -38,7 +42,7 @@ package de.freaklamarsch.systarest;
  *
  * @param <E> the type of elements stored in the buffer
  */
-public class CircularBuffer<E> {
+public class CircularBuffer<E> implements Iterable<E> {
 	/** The default capacity of the buffer if no capacity is specified. */
 	private static final int DEFAULT_CAPACITY = 8;
 	/** The maximum number of elements the buffer can hold. */
@@ -145,6 +149,135 @@ public class CircularBuffer<E> {
 		return null;
 	}
 
+    /**
+     * Returns the element at position {@code index} without removing it. Index
+     * {@code 0} is the oldest element, index {@code size() - 1} the newest.
+     *
+     * @param index the position of the element
+     * @return the element at {@code index}
+     * @throws IndexOutOfBoundsException if {@code index} is not between {@code 0}
+     *                                   and {@code size() - 1}
+     */
+	public E get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size());
+		}
+		return data[slot(readIndex + index)];
+	}
+
+    /**
+     * Copies the elements from position {@code from} (inclusive) to {@code to}
+     * (exclusive) into a new array, without removing them. Position {@code 0} is
+     * the oldest element.
+     *
+     * @param from the position of the first element to copy
+     * @param to   the position after the last element to copy
+     * @return a new array holding the elements
+     * @throws IndexOutOfBoundsException if the range is not within the buffer
+     */
+	public Object[] toArray(int from, int to) {
+		return toArray(new Object[0], from, to);
+	}
+
+    /**
+     * Copies the elements from position {@code from} (inclusive) to {@code to}
+     * (exclusive) into {@code target}, without removing them. Position {@code 0}
+     * is the oldest element. If {@code target} is too small, a new array of the
+     * same type is allocated. The elements are copied with at most two calls of
+     * {@link System#arraycopy}.
+     *
+     * @param <T>    the component type of the array
+     * @param target the array the elements are copied to, if it is big enough
+     * @param from   the position of the first element to copy
+     * @param to     the position after the last element to copy
+     * @return {@code target} or a new array holding the elements
+     * @throws IndexOutOfBoundsException if the range is not within the buffer
+     */
+	public <T> T[] toArray(T[] target, int from, int to) {
+		if (from < 0 || to > size() || from > to) {
+			throw new IndexOutOfBoundsException("range " + from + ".." + to + " out of bounds for size " + size());
+		}
+		int length = to - from;
+		T[] result = (target.length >= length) ? target : Arrays.copyOf(target, length);
+		int start = slot(readIndex + from);
+		int firstPart = Math.min(length, capacity - start);
+		System.arraycopy(data, start, result, 0, firstPart);
+		if (length > firstPart) {
+			// the range wraps around the end of the array
+			System.arraycopy(data, 0, result, firstPart, length - firstPart);
+		}
+		return result;
+	}
+
+    /**
+     * Removes up to {@code maxElements} of the oldest elements and adds them to
+     * {@code target} in FIFO order.
+     *
+     * @param target      the collection the removed elements are added to
+     * @param maxElements the maximum number of elements to remove
+     * @return the number of removed elements
+     */
+	public int drainTo(Collection<? super E> target, int maxElements) {
+		int n = Math.max(0, Math.min(maxElements, size()));
+		for (int i = 0; i < n; i++) {
+			target.add(data[slot(readIndex + i)]);
+		}
+		readIndex += n;
+		return n;
+	}
+
+    /**
+     * Adds all {@code elements} to the buffer. If the buffer has not enough space
+     * and {@link #overwrite} is {@code true}, the oldest elements are overwritten,
+     * if more elements than the capacity are added, only the last ones are kept.
+     * If {@link #overwrite} is {@code false}, only the elements fitting into the
+     * buffer are added. The elements are copied with at most two calls of
+     * {@link System#arraycopy}.
+     *
+     * @param elements the elements to add
+     * @return the number of elements stored in the buffer
+     */
+	public int addAll(E[] elements) {
+		int n = elements.length;
+		int offset = 0;
+		if (!overwrite) {
+			n = Math.min(n, capacity - size());
+		} else if (n > capacity) {
+			// only the newest elements would survive
+			offset = n - capacity;
+			n = capacity;
+		}
+		if (n <= 0) {
+			return 0;
+		}
+		int start = slot(writeIndex + 1);
+		int firstPart = Math.min(n, capacity - start);
+		System.arraycopy(elements, offset, data, start, firstPart);
+		if (n > firstPart) {
+			System.arraycopy(elements, offset + firstPart, data, 0, n - firstPart);
+		}
+		// like in add, move the read index before the write index
+		int overwritten = size() + n - capacity;
+		if (overwritten > 0) {
+			readIndex += overwritten;
+		}
+		writeIndex += n;
+		return n;
+	}
+
+    /**
+     * Returns an iterator over a snapshot of the elements, from the oldest to the
+     * newest. Changes to the buffer after the call do not affect the iterator.
+     *
+     * @return an iterator over the elements in the buffer
+     */
+	@Override
+	public Iterator<E> iterator() {
+		@SuppressWarnings("unchecked")
+		E[] snapshot = (E[]) toArray(0, size());
+		return Arrays.asList(snapshot).iterator();
+	}
+
     /**
      * Returns the maximum number of elements the buffer can hold.
      *
@@ -200,6 +333,14 @@ public class CircularBuffer<E> {
 		return size() >= capacity;
 	}
 
+    /**
+     * @param sequence a read or write index
+     * @return the position of {@code sequence} in {@link #data}
+     */
+	private int slot(int sequence) {
+		return sequence % capacity;
+	}
+
     /**
      * Returns whether the buffer is not empty.
      *
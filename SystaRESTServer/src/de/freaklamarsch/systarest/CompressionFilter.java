@@ -0,0 +1,211 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPOutputStream;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerResponseContext;
+import jakarta.ws.rs.container.ContainerResponseFilter;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.ext.Provider;
+import jakarta.ws.rs.ext.WriterInterceptor;
+import jakarta.ws.rs.ext.WriterInterceptorContext;
+
+/**
+ * A filter that compresses the HTTP responses with {@code gzip} or
+ * {@code deflate}, if the client accepts it. The JSON of the endpoints and the
+ * HTML pages are well compressible, which saves a lot of bandwidth over Wi-Fi.
+ *
+ * <p>The encoding is negotiated by the filter from the {@code Accept-Encoding}
+ * header of the request, the body is compressed by the interceptor while it is
+ * written. Responses that already have a {@code Content-Encoding}, e.g. the
+ * precompressed responses of the {@link JsonSnapshotCache}, images, which are
+ * compressed already, Server-Sent Events, which have to be sent right away, and
+ * bodies with a known size below {@link #MIN_SIZE} are sent uncompressed.</p>
+ *
+ * <p>A compressed body is a different representation, so a strong
+ * {@code ETag} gets a suffix for the encoding, see
+ * {@link #encodedTag(EntityTag, String)}.</p>
+ */
+@Provider
+public class CompressionFilter implements ContainerResponseFilter, WriterInterceptor {
+
+	/** minimum size in bytes of a body to be compressed */
+	public static final int MIN_SIZE = 1024;
+	public static final String GZIP = "gzip";
+	public static final String DEFLATE = "deflate";
+	// request property holding the negotiated encoding
+	private static final String ENCODING_PROPERTY = CompressionFilter.class.getName() + ".encoding";
+
+	/**
+	 * Decides if the response is compressed, and with which encoding.
+	 *
+	 * @param requestContext the context of the incoming HTTP request
+	 * @param responseContext the context of the outgoing HTTP response
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void filter(ContainerRequestContext requestContext, ContainerResponseContext responseContext)
+			throws IOException {
+		if (!responseContext.hasEntity() || responseContext.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)
+				|| !isCompressible(responseContext.getMediaType())) {
+			return;
+		}
+		responseContext.getHeaders().add(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+		Object entity = responseContext.getEntity();
+		int size = -1;
+		if (entity instanceof byte[]) {
+			size = ((byte[]) entity).length;
+		} else if (entity instanceof String) {
+			size = ((String) entity).length();
+		}
+		if (size >= 0 && size < MIN_SIZE) {
+			return;
+		}
+		String encoding = negotiate(requestContext.getHeaderString(HttpHeaders.ACCEPT_ENCODING));
+		if (encoding != null) {
+			requestContext.setProperty(ENCODING_PROPERTY, encoding);
+			EntityTag etag = responseContext.getEntityTag();
+			if (etag != null && !etag.isWeak()) {
+				responseContext.getHeaders().putSingle(HttpHeaders.ETAG, encodedTag(etag, encoding));
+			}
+		}
+	}
+
+	/**
+	 * Compresses the body with the encoding chosen by
+	 * {@link #filter(ContainerRequestContext, ContainerResponseContext)}.
+	 *
+	 * @param context the context of the body to write
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void aroundWriteTo(WriterInterceptorContext context) throws IOException {
+		Object encoding = context.getProperty(ENCODING_PROPERTY);
+		// Server-Sent Events are written chunk by chunk through this interceptor
+		if (encoding == null || !isCompressible(context.getMediaType())
+				|| context.getHeaders().containsKey(HttpHeaders.CONTENT_ENCODING)) {
+			context.proceed();
+			return;
+		}
+		context.getHeaders().putSingle(HttpHeaders.CONTENT_ENCODING, encoding);
+		context.getHeaders().remove(HttpHeaders.CONTENT_LENGTH);
+		OutputStream out = context.getOutputStream();
+		DeflaterOutputStream compressed = GZIP.equals(encoding) ? new GZIPOutputStream(out)
+				: new DeflaterOutputStream(out);
+		context.setOutputStream(compressed);
+		try {
+			context.proceed();
+		} finally {
+			// finish writes the trailer, closing the stream is left to the container
+			compressed.finish();
+			context.setOutputStream(out);
+		}
+	}
+
+	/**
+	 * @param acceptEncoding the value of the {@code Accept-Encoding} header of a
+	 *                       request, may be {@code null}
+	 * @return {@link #GZIP} or {@link #DEFLATE}, whichever is accepted with the
+	 *         higher quality, {@code gzip} is preferred on a tie. {@code null} if
+	 *         none is accepted
+	 */
+	public static String negotiate(String acceptEncoding) {
+		if (acceptEncoding == null || acceptEncoding.isBlank()) {
+			return null;
+		}
+		float gzip = -1;
+		float deflate = -1;
+		float any = -1;
+		for (String coding : acceptEncoding.split(",")) {
+			String[] parts = coding.split(";");
+			String name = parts[0].trim().toLowerCase();
+			float q = 1;
+			for (int i = 1; i < parts.length; i++) {
+				String param = parts[i].trim();
+				if (param.startsWith("q=")) {
+					try {
+						q = Float.parseFloat(param.substring(2).trim());
+					} catch (NumberFormatException e) {
+						q = 0;
+					}
+				}
+			}
+			if (name.equals(GZIP) || name.equals("x-gzip")) {
+				gzip = q;
+			} else if (name.equals(DEFLATE)) {
+				deflate = q;
+			} else if (name.equals("*")) {
+				any = q;
+			}
+		}
+		// codings that are not listed are covered by *
+		gzip = (gzip < 0) ? any : gzip;
+		deflate = (deflate < 0) ? any : deflate;
+		if (gzip > 0 && gzip >= deflate) {
+			return GZIP;
+		}
+		return (deflate > 0) ? DEFLATE : null;
+	}
+
+	/**
+	 * @param etag     the {@code ETag} of the uncompressed representation
+	 * @param encoding {@link #GZIP} or {@link #DEFLATE}
+	 * @return the {@code ETag} of the representation compressed with
+	 *         {@code encoding}, e.g. {@code "1a2b-3-gz"} for {@code "1a2b-3"}
+	 */
+	public static EntityTag encodedTag(EntityTag etag, String encoding) {
+		return new EntityTag(etag.getValue() + (GZIP.equals(encoding) ? "-gz" : "-" + encoding), etag.isWeak());
+	}
+
+	/**
+	 * @param data the bytes to compress
+	 * @return {@code data} compressed with {@code gzip}
+	 */
+	public static byte[] gzip(byte[] data) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 4 + 64);
+		try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+			gz.write(data);
+		} catch (IOException e) {
+			// can not happen when writing to a ByteArrayOutputStream
+			throw new IllegalStateException(e);
+		}
+		return out.toByteArray();
+	}
+
+	private static boolean isCompressible(MediaType mediaType) {
+		if (mediaType == null) {
+			return false;
+		}
+		if (mediaType.isCompatible(MediaType.SERVER_SENT_EVENTS_TYPE)) {
+			return false;
+		}
+		String type = mediaType.getType();
+		String subtype = mediaType.getSubtype();
+		return type.equals("text") || subtype.equals("json") || subtype.endsWith("+json") || subtype.equals("xml")
+				|| subtype.endsWith("+xml") || subtype.equals("javascript");
+	}
+}
@@ -25,9 +25,10 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.Arrays;
-import java.util.Objects;
 
 /**
  * A utility class for logging data entries represented as {@code T[]} to
@@ -37,9 +38,35 @@ import java.util.Objects;
  * the {@link #saveLoggedData} setting, adding new elements will trigger
  * {@link #writeLoggedDataToFile} and empty the {@link #dataBuffer} or just
  * overwrite the oldest element stored.
+ * <p>
+ * With the {@link RotationPolicy#COUNT} policy, the files are named
+ * {@code prefix-filename-N.txt}, where {@code N} is a running number. With
+ * {@link RotationPolicy#HOURLY} or {@link RotationPolicy#DAILY}, a file never
+ * spans more than one wall-clock window. The files are written to
+ * {@code yyyy/MM/dd} subdirectories of the {@link #logFileRootPath} and named
+ * {@code prefix-filename-<first timestamp>_<last timestamp>.txt}, so the time
+ * range of a file is known without opening it.
  */
 public class DataLogger<T> {
 
+	/**
+	 * Policies for deciding when a log file is written and how it is named
+	 */
+	public enum RotationPolicy {
+		/** write a file for every {@link DataLogger#capacity} entries */
+		COUNT,
+		/**
+		 * write a file for every {@link DataLogger#capacity} entries, or when the hour
+		 * changes
+		 */
+		HOURLY,
+		/**
+		 * write a file for every {@link DataLogger#capacity} entries, or when the day
+		 * changes
+		 */
+		DAILY
+	}
+
 	/**
 	 * Inner class for representing the status of this @see DataLogger.
 	 */
@@ -52,9 +79,14 @@ public class DataLogger<T> {
 		public final String logEntryDelimiter;
 		public final int bufferedEntries;
 		public final String lastTimestamp;
+		public final RotationPolicy rotationPolicy;
+		public final long entriesWritten;
+		public final long writeFailures;
+		public final long lastWriteDurationMillis;
 
 		public DataLoggerStatus(int capacity, boolean saveLoggedData, String logFilePrefix, String logFileRootPath,
-				String logEntryDelimiter, int writerFileCount, int bufferedEntries, String lastTimestamp) {
+				String logEntryDelimiter, int writerFileCount, int bufferedEntries, String lastTimestamp,
+				RotationPolicy rotationPolicy, long entriesWritten, long writeFailures, long lastWriteDurationMillis) {
 			this.capacity = capacity;
 			this.saveLoggedData = saveLoggedData;
 			this.logFilePrefix = logFilePrefix;
@@ -63,6 +95,10 @@ public class DataLogger<T> {
 			this.writerFileCount = writerFileCount;
 			this.bufferedEntries = bufferedEntries;
 			this.lastTimestamp = lastTimestamp;
+			this.rotationPolicy = rotationPolicy;
+			this.entriesWritten = entriesWritten;
+			this.writeFailures = writeFailures;
+			this.lastWriteDurationMillis = lastWriteDurationMillis;
 		}
 	}
 
@@ -73,9 +109,13 @@ public class DataLogger<T> {
 	private static final String DEFAULT_ROOT_PATH = System.getProperty("user.home") + File.separator + "logs";
 	private static final DateTimeFormatter DEFAULT_FORMATTER = DateTimeFormatter.ofPattern("E-dd.MM.yy-HH:mm:ss.SSS")
 			.withZone(ZoneId.systemDefault());
+	private static final DateTimeFormatter FILE_TIMESTAMP_FORMATTER = DateTimeFormatter
+			.ofPattern("yyyyMMdd'T'HHmmss").withZone(ZoneId.systemDefault());
+	private static final DateTimeFormatter DIRECTORY_FORMATTER = DateTimeFormatter.ofPattern("yyyy/MM/dd")
+			.withZone(ZoneId.systemDefault());
 	private int capacity = DEFAULT_CAPACITY;
 	private CircularBuffer<T[]> dataBuffer = null;
-	private CircularBuffer<String> timestampBuffer = null;
+	private LongCircularBuffer timestampBuffer = null;
 	private boolean saveLoggedData = false;
 	private String logFilePrefix = DEFAULT_PREFIX;
 	private String logFilename = DEFAULT_FILENAME;
@@ -83,6 +123,10 @@ public class DataLogger<T> {
 	private String logEntryDelimiter = DEFAULT_DELIMITER;
 	private DateTimeFormatter timestampFormatter = DEFAULT_FORMATTER;
 	private int writerFileCount = 0;
+	private RotationPolicy rotationPolicy = RotationPolicy.COUNT;
+	private long entriesWritten = 0;
+	private long writeFailures = 0;
+	private long lastWriteDurationMillis = 0;
 
 	/**
 	 * Constructor for a DataLogger that writes one file per
@@ -102,7 +146,7 @@ public class DataLogger<T> {
 	 * @param delimiter      the value to use for {@link #logEntryDelimiter}
 	 * @param entriesPerFile the value to use for {@link #capacity}
 	 * @param rootPath       the value to use for {@link #logFileRootPath}
-	 * @param rootPath       the formatter to use for {@link #timestampFormatter}
+	 * @param formatter      the formatter to use for {@link #timestampFormatter}
 	 */
 	public DataLogger(String prefix, String filename, String delimiter, int entriesPerFile, String rootPath,
 			DateTimeFormatter formatter) {
@@ -111,10 +155,13 @@ public class DataLogger<T> {
 		} else {
 			this.capacity = DEFAULT_CAPACITY;
 		}
+		this.logFilePrefix = prefix;
 		this.logFilename = filename;
+		this.logEntryDelimiter = delimiter;
+		this.logFileRootPath = rootPath;
 		this.dataBuffer = new CircularBuffer<>(capacity);
 		this.dataBuffer.setOverwrite(true);
-		this.timestampBuffer = new CircularBuffer<>(capacity);
+		this.timestampBuffer = new LongCircularBuffer(capacity);
 		this.timestampBuffer.setOverwrite(true);
 		this.timestampFormatter = formatter;
 	}
@@ -136,9 +183,28 @@ public class DataLogger<T> {
 	 *         {@link DataLogger#logFileRootPath},
 	 *         {@link DataLogger#writerFileCount}
 	 */
-	public DataLoggerStatus getStatus() {
+	public synchronized DataLoggerStatus getStatus() {
 		return new DataLoggerStatus(capacity, saveLoggedData, logFilePrefix, logFileRootPath, logEntryDelimiter,
-				writerFileCount, timestampBuffer.size(), Objects.requireNonNullElse(timestampBuffer.end(), "never"));
+				writerFileCount, timestampBuffer.size(),
+				timestampBuffer.isEmpty() ? "never"
+						: timestampFormatter.format(Instant.ofEpochMilli(timestampBuffer.end())),
+				rotationPolicy, entriesWritten, writeFailures, lastWriteDurationMillis);
+	}
+
+	/**
+	 * @return the rotationPolicy
+	 */
+	public RotationPolicy getRotationPolicy() {
+		return rotationPolicy;
+	}
+
+	/**
+	 * @param rotationPolicy the rotationPolicy to set
+	 */
+	public void setRotationPolicy(RotationPolicy rotationPolicy) {
+		boolean wasLoggingRunning = stopLoggingAndWriteFileIfRunning();
+		this.rotationPolicy = (rotationPolicy == null) ? RotationPolicy.COUNT : rotationPolicy;
+		saveLoggedData = wasLoggingRunning;
 	}
 
 	/**
@@ -156,7 +222,7 @@ public class DataLogger<T> {
 		this.capacity = capacity;
 		this.dataBuffer = new CircularBuffer<>(capacity);
 		this.dataBuffer.setOverwrite(true);
-		this.timestampBuffer = new CircularBuffer<>(capacity);
+		this.timestampBuffer = new LongCircularBuffer(capacity);
 		this.timestampBuffer.setOverwrite(true);
 		saveLoggedData = wasLoggingRunning;
 	}
@@ -275,7 +341,7 @@ public class DataLogger<T> {
 		}
 		this.dataBuffer = new CircularBuffer<>(capacity);
 		this.dataBuffer.setOverwrite(true);
-		this.timestampBuffer = new CircularBuffer<>(capacity);
+		this.timestampBuffer = new LongCircularBuffer(capacity);
 		this.timestampBuffer.setOverwrite(true);
 		saveLoggedData();
 	}
@@ -304,6 +370,23 @@ public class DataLogger<T> {
 		saveLoggedData(entriesPerFile);
 	}
 
+	/**
+	 * activate the saving of logged data and set the {@link #logFilePrefix},
+	 * {@link #logEntryDelimiter}, {@link #capacity} and {@link #rotationPolicy}.
+	 *
+	 * @param filePrefix     the value to use for {@link #logFilePrefix}
+	 * @param delimiter      the value to use for {@link #logEntryDelimiter}
+	 * @param entriesPerFile the value to use for {@link #capacity}
+	 * @param rotationPolicy the value to use for {@link #rotationPolicy}
+	 */
+	public synchronized void saveLoggedData(String filePrefix, String delimiter, int entriesPerFile,
+			RotationPolicy rotationPolicy) {
+		// write out the buffered entries with the old settings first
+		stopLoggingAndWriteFileIfRunning();
+		this.rotationPolicy = (rotationPolicy == null) ? RotationPolicy.COUNT : rotationPolicy;
+		saveLoggedData(filePrefix, delimiter, entriesPerFile);
+	}
+
 	/**
 	 * if data is currently saved to a file, this command will write the last file
 	 * and stop the saving of files. This will clear the {@code DataLogger}.
@@ -326,16 +409,21 @@ public class DataLogger<T> {
 	public synchronized void addData(T[] data, long timestamp) {
 		// access to dataBuffer and timestampBuffer has to be synchronized
 		// make sure that there is new data to write
-		String newTimestamp = timestampFormatter.format(Instant.ofEpochMilli(timestamp));
-		String lastTimestamp = timestampBuffer.end();
-		if (lastTimestamp != null && newTimestamp.equals(lastTimestamp)) {
-			// check if there is already data in the buffer (lastTimestamp!=null)
+		if (!timestampBuffer.isEmpty() && timestampFormatter.format(Instant.ofEpochMilli(timestamp))
+				.equals(timestampFormatter.format(Instant.ofEpochMilli(timestampBuffer.end())))) {
+			// check if there is already data in the buffer
 			// and make sure the timestamp is updated
 			// if no new data is available, just return
 			return;
 		}
+		if (saveLoggedData && rotationPolicy != RotationPolicy.COUNT && !timestampBuffer.isEmpty()
+				&& windowStart(timestampBuffer.peek()) != windowStart(timestamp)) {
+			// the new entry belongs to the next time window, close the file of the current
+			// one
+			writeLoggedDataToFile();
+		}
 		// save new values
-		timestampBuffer.add(newTimestamp);
+		timestampBuffer.add(timestamp);
 		// save a shallow copy of data, otherwise the stored array will change when the
 		// outside
 		// array changes
@@ -353,15 +441,42 @@ public class DataLogger<T> {
 		if (checkAndFixBufferSync() == false) {
 			return false;
 		}
+		Instant firstTimestamp = Instant.ofEpochMilli(timestampBuffer.peek());
+		Instant lastTimestamp = Instant.ofEpochMilli(timestampBuffer.end());
 		String[][] fileContent = convertBuffersToStringArray();
+		File path;
+		String fileName;
+		if (rotationPolicy == RotationPolicy.COUNT) {
+			path = new File(logFileRootPath);
+			fileName = logFilePrefix + "-" + logFilename + "-" + writerFileCount + ".txt";
+			// the counter starts at 0 after each restart, do not overwrite the files of
+			// an earlier run
+			int fileIndex = writerFileCount;
+			while (new File(path, fileName).exists()) {
+				fileIndex++;
+				fileName = logFilePrefix + "-" + logFilename + "-" + fileIndex + ".txt";
+			}
+		} else {
+			path = new File(logFileRootPath, DIRECTORY_FORMATTER.format(firstTimestamp));
+			fileName = logFilePrefix + "-" + logFilename + "-" + FILE_TIMESTAMP_FORMATTER.format(firstTimestamp) + "_"
+					+ FILE_TIMESTAMP_FORMATTER.format(lastTimestamp) + ".txt";
+		}
 		// make sure the log dir exists
-		File path = new File(logFileRootPath);
 		if (!path.exists()) {
 			path.mkdirs();
 		}
-		String fileName = logFileRootPath + File.separator + logFilePrefix + "-" + logFilename + "-" + writerFileCount
-				+ ".txt";
-		return writeLogFile(fileContent, fileName);
+		return writeLogFile(fileContent, path.getPath() + File.separator + fileName);
+	}
+
+	/**
+	 * @param timestamp epoch milliseconds
+	 * @return the start of the {@link #rotationPolicy} window that contains
+	 *         {@code timestamp}, in epoch milliseconds
+	 */
+	private long windowStart(long timestamp) {
+		ZonedDateTime time = Instant.ofEpochMilli(timestamp).atZone(ZoneId.systemDefault());
+		ChronoUnit unit = (rotationPolicy == RotationPolicy.DAILY) ? ChronoUnit.DAYS : ChronoUnit.HOURS;
+		return time.truncatedTo(unit).toInstant().toEpochMilli();
 	}
 
 	/**
@@ -369,21 +484,23 @@ public class DataLogger<T> {
 	 */
 	private String[][] convertBuffersToStringArray() {
 		int cols = timestampBuffer.size();
-		int rows = dataBuffer.peek().length + 1; // +1 because first row will be timestamps
+		// copy both buffers in one go, instead of removing the entries one by one
+		long[] timestamps = timestampBuffer.toArray(0, cols);
+		Object[] entries = dataBuffer.toArray(0, cols);
+		timestampBuffer.clear();
+		dataBuffer.clear();
+		int rows = ((Object[]) entries[0]).length + 1; // +1 because first row will be timestamps
 		String[][] fileContent = new String[rows][cols];
-		int r = 0; // begin in first row/line
-		int c = 0; // begin in first column
 		// insert the timestamps into the first row/line
-		while (!timestampBuffer.isEmpty()) {
-			fileContent[r][c] = timestampBuffer.remove();
-			c++;
+		for (int c = 0; c < cols; c++) {
+			fileContent[0][c] = timestampFormatter.format(Instant.ofEpochMilli(timestamps[c]));
 		}
-		r = 1;// first row/line filled
-		c = 0;// begin in first column
 		// add the data records column by column to the fileContent
-		while (!dataBuffer.isEmpty()) {
-			T[] entry = dataBuffer.remove();
-			for (T e : entry) {
+		for (int c = 0; c < cols; c++) {
+			Object[] entry = (Object[]) entries[c];
+			// keep in mind, that the first row is already filled with the timestamps
+			int r = 1;
+			for (Object e : entry) {
 				if (e == null) {
 					fileContent[r][c] = "";
 				} else {
@@ -391,8 +508,6 @@ public class DataLogger<T> {
 				}
 				r++;
 			}
-			c++; // move to next column for next record
-			r = 1; // keep in mind, that the first column is already filled with the timestamps
 		}
 		return fileContent;
 	}
@@ -423,6 +538,7 @@ public class DataLogger<T> {
 	private boolean writeLogFile(String[][] fileContent, String fileName) {
 		int rows = fileContent.length;
 		int cols = fileContent[0].length;
+		long start = System.currentTimeMillis();
 		try {
 			FileWriter myWriter = new FileWriter(fileName);
 			BufferedWriter bufferedWriter = new BufferedWriter(myWriter);
@@ -439,10 +555,13 @@ public class DataLogger<T> {
 			bufferedWriter.close();
 			myWriter.close();
 			writerFileCount++;
+			entriesWritten += cols;
+			lastWriteDurationMillis = System.currentTimeMillis() - start;
 			System.out.println("[DataLogger] wrote " + fileName);
 		} catch (IOException e) {
 			System.out.println("[DataLogger] An error occurred while trying to write " + fileName);
 			e.printStackTrace();
+			writeFailures++;
 			return false;
 		}
 		return true;
@@ -0,0 +1,306 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.net.SocketException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
+
+/**
+ * Caches the result of {@link DeviceTouchSearch#searchAll()}, which takes
+ * a few seconds, because it broadcasts on every interface and waits for the
+ * replies.
+ * <p>
+ * The found units are cached for {@code ttlMillis}. After half of this time,
+ * the cached units are still returned, but a new search is started in the
+ * background, so callers only have to wait for the first search and after a
+ * long idle time. If no unit is found, this is cached for the shorter
+ * {@code notFoundTtlMillis}, but cached units are only replaced by this after
+ * they have expired. Concurrent callers waiting for a search share the same
+ * search.
+ * <p>
+ * If a {@link DeviceTouchListener} is set, lookups are answered from its
+ * registry without searching, as soon as port and password of all registered
+ * units are known. The units found by a search are added to the registry.
+ */
+public class DeviceTouchDiscovery {
+
+	/**
+	 * Inner class for representing the status of this @see DeviceTouchDiscovery
+	 */
+	public static class DeviceTouchDiscoveryStatus {
+		public final int units;
+		public final boolean listening;
+		public final int listenerUnits;
+		public final long listenerHits;
+		public final long ageMillis;
+		public final long hits;
+		public final long misses;
+		public final long searches;
+		public final long coalesced;
+		public final long lastSearchMillis;
+
+		public DeviceTouchDiscoveryStatus(int units, boolean listening, int listenerUnits, long listenerHits,
+				long ageMillis, long hits, long misses, long searches, long coalesced, long lastSearchMillis) {
+			this.units = units;
+			this.listening = listening;
+			this.listenerUnits = listenerUnits;
+			this.listenerHits = listenerHits;
+			this.ageMillis = ageMillis;
+			this.hits = hits;
+			this.misses = misses;
+			this.searches = searches;
+			this.coalesced = coalesced;
+			this.lastSearchMillis = lastSearchMillis;
+		}
+	}
+
+	/** time in milliseconds a found unit is cached */
+	public static final long DEFAULT_TTL_MILLIS = 10 * 60 * 1000;
+	/** time in milliseconds the result is cached, if no unit was found */
+	public static final long DEFAULT_NOT_FOUND_TTL_MILLIS = 30 * 1000;
+
+	private static DeviceTouchDiscovery instance = null;
+
+	private final Supplier<List<DeviceTouchDeviceInfo>> search;
+	private final long ttlMillis;
+	private final long notFoundTtlMillis;
+	private final ExecutorService searcher = Executors.newSingleThreadExecutor(r -> {
+		Thread t = new Thread(r, "DeviceTouchDiscovery");
+		t.setDaemon(true);
+		return t;
+	});
+	// guarded by this
+	private List<DeviceTouchDeviceInfo> units = Collections.emptyList();
+	private long searchedAt = -1;
+	private CompletableFuture<List<DeviceTouchDeviceInfo>> pending = null;
+	private DeviceTouchListener listener = null;
+	private long listenerHits = 0;
+	private long hits = 0;
+	private long misses = 0;
+	private long searches = 0;
+	private long coalesced = 0;
+	private long lastSearchMillis = -1;
+
+	/**
+	 * @param search            the search for units, usually
+	 *                          {@link DeviceTouchSearch#searchAll()}
+	 * @param ttlMillis         time in milliseconds a found unit is cached
+	 * @param notFoundTtlMillis time in milliseconds the result is cached, if no
+	 *                          unit was found
+	 */
+	public DeviceTouchDiscovery(Supplier<List<DeviceTouchDeviceInfo>> search, long ttlMillis,
+			long notFoundTtlMillis) {
+		this.search = search;
+		this.ttlMillis = ttlMillis;
+		this.notFoundTtlMillis = notFoundTtlMillis;
+	}
+
+	/**
+	 * @return the {@code DeviceTouchDiscovery} shared by {@link FakeSystaWeb} and
+	 *         {@link FakeSTouch}
+	 */
+	public static synchronized DeviceTouchDiscovery getInstance() {
+		if (instance == null) {
+			instance = new DeviceTouchDiscovery(DeviceTouchSearch::searchAll, DEFAULT_TTL_MILLIS,
+					DEFAULT_NOT_FOUND_TTL_MILLIS);
+		}
+		return instance;
+	}
+
+	/**
+	 * Returns the cached unit, or searches for it if the cache has expired. If
+	 * several units have been found, one is selected with
+	 * {@link DeviceTouchSearch#select(List)}
+	 *
+	 * @return the found unit, or {@code null} if no unit was found
+	 */
+	public DeviceTouchDeviceInfo lookup() {
+		return DeviceTouchSearch.select(lookupAll());
+	}
+
+	/**
+	 * Returns the cached units, or searches for them if the cache has expired
+	 *
+	 * @return the found units, empty if no unit was found
+	 */
+	public List<DeviceTouchDeviceInfo> lookupAll() {
+		CompletableFuture<List<DeviceTouchDeviceInfo>> result;
+		synchronized (this) {
+			if (listener != null && listener.isComplete()) {
+				listenerHits++;
+				return listener.getUnits();
+			}
+			long age = System.currentTimeMillis() - searchedAt;
+			if (searchedAt >= 0 && age < (units.isEmpty() ? notFoundTtlMillis : ttlMillis)) {
+				hits++;
+				if (!units.isEmpty() && age >= ttlMillis / 2 && pending == null) {
+					// refresh ahead, so the next callers do not have to wait
+					startSearch();
+				}
+				return units;
+			}
+			misses++;
+			result = startSearch();
+		}
+		return result.join();
+	}
+
+	/**
+	 * Searches for the unit, even if the cached result has not expired
+	 *
+	 * @return the found unit, or {@code null} if no unit was found
+	 */
+	public DeviceTouchDeviceInfo refresh() {
+		return DeviceTouchSearch.select(refreshAll());
+	}
+
+	/**
+	 * Searches for the units, even if the cached result has not expired
+	 *
+	 * @return the found units, empty if no unit was found
+	 */
+	public List<DeviceTouchDeviceInfo> refreshAll() {
+		CompletableFuture<List<DeviceTouchDeviceInfo>> result;
+		synchronized (this) {
+			result = startSearch();
+		}
+		return result.join();
+	}
+
+	/**
+	 * Discards the cached result, e.g. if the cached unit did not reply. The next
+	 * {@link #lookup()} searches again.
+	 */
+	public synchronized void invalidate() {
+		units = Collections.emptyList();
+		searchedAt = -1;
+		if (listener != null) {
+			listener.clear();
+		}
+	}
+
+	/**
+	 * Use {@code listener} for answering lookups. The units found by searches are
+	 * added to its registry.
+	 *
+	 * @param listener the {@link DeviceTouchListener} to use, or {@code null} to
+	 *                 only use searches
+	 */
+	public synchronized void setListener(DeviceTouchListener listener) {
+		this.listener = listener;
+		if (listener != null && !units.isEmpty()) {
+			listener.register(units);
+		}
+	}
+
+	/**
+	 * Start a {@link DeviceTouchListener} on port {@code 8001} and use it for
+	 * answering lookups, if none is set yet
+	 *
+	 * @return {@code true} if a listener is listening
+	 */
+	public synchronized boolean startListener() {
+		if (listener != null && listener.isListening()) {
+			return true;
+		}
+		DeviceTouchListener started = (listener == null) ? new DeviceTouchListener() : listener;
+		try {
+			started.start();
+		} catch (SocketException e) {
+			System.out.println("[DeviceTouchDiscovery] startListener: listening on the DeviceTouch port failed, "
+					+ "units are found by searching: " + e.getMessage());
+			return false;
+		}
+		setListener(started);
+		return true;
+	}
+
+	/**
+	 * Stop the {@link DeviceTouchListener} and only use searches for the lookups
+	 */
+	public synchronized void stopListener() {
+		if (listener != null) {
+			listener.stop();
+			listener = null;
+		}
+	}
+
+	/**
+	 * @return the {@link DeviceTouchDiscoveryStatus} of this
+	 *         {@code DeviceTouchDiscovery}
+	 */
+	public synchronized DeviceTouchDiscoveryStatus getStatus() {
+		long age = (searchedAt < 0) ? -1 : System.currentTimeMillis() - searchedAt;
+		boolean listening = listener != null && listener.isListening();
+		int listenerUnits = (listener == null) ? 0 : listener.getUnits().size();
+		return new DeviceTouchDiscoveryStatus(units.size(), listening, listenerUnits, listenerHits, age, hits, misses,
+				searches, coalesced, lastSearchMillis);
+	}
+
+	/**
+	 * Start a search, or join the running one. Must be called while holding the
+	 * lock of this object.
+	 */
+	private CompletableFuture<List<DeviceTouchDeviceInfo>> startSearch() {
+		if (pending != null) {
+			coalesced++;
+			return pending;
+		}
+		searches++;
+		CompletableFuture<List<DeviceTouchDeviceInfo>> started = CompletableFuture.supplyAsync(this::search,
+				searcher);
+		pending = started;
+		return started;
+	}
+
+	private List<DeviceTouchDeviceInfo> search() {
+		long start = System.currentTimeMillis();
+		List<DeviceTouchDeviceInfo> found = Collections.emptyList();
+		try {
+			List<DeviceTouchDeviceInfo> result = search.get();
+			if (result != null) {
+				found = Collections.unmodifiableList(result);
+			}
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+		synchronized (this) {
+			long now = System.currentTimeMillis();
+			lastSearchMillis = now - start;
+			pending = null;
+			if (found.isEmpty() && !units.isEmpty() && now - searchedAt < ttlMillis) {
+				// a lost reply should not discard units that have not expired yet
+				return units;
+			}
+			units = found;
+			searchedAt = now;
+			if (listener != null) {
+				listener.register(found);
+			}
+		}
+		return found;
+	}
+}
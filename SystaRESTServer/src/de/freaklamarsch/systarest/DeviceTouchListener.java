@@ -0,0 +1,313 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
+import de.freaklamarsch.systarest.DeviceTouchSearch.SearchTarget;
+
+/**
+ * Listens on the DeviceTouch broadcast port {@code 8001} and keeps a registry
+ * of the SystaComfort units seen on the network, so {@link DeviceTouchDiscovery}
+ * can answer lookups without searching.
+ * <p>
+ * A unit is registered when its info string is received, e.g. when it
+ * announces itself, or replies to the search broadcast that is sent when the
+ * listener is started. Units reply to the port and password requests of other
+ * clients directly to these clients and without their MAC address, so the
+ * listener requests port and password for each newly seen unit itself. The
+ * units found by an active search are registered with
+ * {@link #register(List)}.
+ */
+public class DeviceTouchListener {
+
+	private final int localPort;
+	private final int unitPort;
+	private final List<SearchTarget> targets;
+	// guarded by this
+	private final Map<String, DeviceTouchDeviceInfo> units = new LinkedHashMap<>();
+	private final Set<String> complete = new HashSet<>();
+	private final Map<InetAddress, FollowUp> followUps = new HashMap<>();
+	private DatagramSocket socket = null;
+	private long received = 0;
+
+	/** the follow-up request sent to a unit */
+	private static class FollowUp {
+		private final DeviceTouchDeviceInfo info;
+		private final InetAddress destination;
+		private boolean portRequested = true;
+
+		private FollowUp(DeviceTouchDeviceInfo info, InetAddress destination) {
+			this.info = info;
+			this.destination = destination;
+		}
+	}
+
+	/**
+	 * Create a {@code DeviceTouchListener} on port {@code 8001} for all
+	 * interfaces, see {@link DeviceTouchSearch#getSearchTargets()}
+	 */
+	public DeviceTouchListener() {
+		this(DeviceTouchSearch.BCAST_PORT, DeviceTouchSearch.BCAST_PORT, DeviceTouchSearch.getSearchTargets());
+	}
+
+	/**
+	 * @param localPort the port to listen on, {@code 0} for an ephemeral port
+	 * @param unitPort  the port the units are listening on, {@code 8001}
+	 * @param targets   the interfaces to send the search broadcast on
+	 */
+	public DeviceTouchListener(int localPort, int unitPort, List<SearchTarget> targets) {
+		this.localPort = localPort;
+		this.unitPort = unitPort;
+		this.targets = targets;
+	}
+
+	/**
+	 * open the socket, start listening in a background thread and broadcast a
+	 * search, so the units attached register right away
+	 *
+	 * @throws SocketException if the port can not be opened, e.g. because it is
+	 *                         used by another program
+	 */
+	public synchronized void start() throws SocketException {
+		if (socket != null) {
+			return;
+		}
+		DatagramSocket s = new DatagramSocket(null);
+		s.setReuseAddress(true);
+		s.setBroadcast(true);
+		s.bind(new InetSocketAddress(localPort));
+		socket = s;
+		Thread thread = new Thread(() -> listen(s), "DeviceTouchListener");
+		thread.setDaemon(true);
+		thread.start();
+		System.out.println("[DeviceTouchListener] start: listening on port " + s.getLocalPort());
+		broadcastSearch();
+	}
+
+	/**
+	 * close the socket and stop listening. The registry is kept.
+	 */
+	public synchronized void stop() {
+		if (socket == null) {
+			return;
+		}
+		socket.close();
+		socket = null;
+		followUps.clear();
+		System.out.println("[DeviceTouchListener] stop: stopped");
+	}
+
+	/**
+	 * @return {@code true} if the listener has been started and not stopped
+	 */
+	public synchronized boolean isListening() {
+		return socket != null;
+	}
+
+	/**
+	 * @return the port the listener is bound to, or {@code -1} if it is not
+	 *         listening
+	 */
+	public synchronized int getLocalPort() {
+		return (socket == null) ? -1 : socket.getLocalPort();
+	}
+
+	/**
+	 * @return the number of packets received
+	 */
+	public synchronized long getReceived() {
+		return received;
+	}
+
+	/**
+	 * @return the registered units, in the order they have been seen first
+	 */
+	public synchronized List<DeviceTouchDeviceInfo> getUnits() {
+		return new ArrayList<>(units.values());
+	}
+
+	/**
+	 * @return {@code true} if port and password have been requested from all
+	 *         registered units, and at least one unit is registered
+	 */
+	public synchronized boolean isComplete() {
+		return !units.isEmpty() && complete.containsAll(units.keySet());
+	}
+
+	/**
+	 * register units found by an active search, replacing the registered units
+	 * with the same MAC address
+	 *
+	 * @param found the units found by {@link DeviceTouchSearch#searchAll()}
+	 */
+	public synchronized void register(List<DeviceTouchDeviceInfo> found) {
+		for (DeviceTouchDeviceInfo info : found) {
+			if (info.mac != null) {
+				units.put(info.mac, info);
+				complete.add(info.mac);
+			}
+		}
+	}
+
+	/**
+	 * forget all registered units, e.g. if the registered unit did not reply, and
+	 * search for them again
+	 */
+	public synchronized void clear() {
+		units.clear();
+		complete.clear();
+		followUps.clear();
+		broadcastSearch();
+	}
+
+	/**
+	 * broadcast the search message on all targets. Must be called while holding
+	 * the lock of this object.
+	 */
+	private void broadcastSearch() {
+		if (socket == null) {
+			return;
+		}
+		for (SearchTarget target : targets) {
+			send(DeviceTouchSearch.createSearchMessage(target.broadcast));
+		}
+	}
+
+	private void listen(DatagramSocket s) {
+		byte[] receiveData = new byte[DeviceTouchSearch.MAX_DATA_LENGTH];
+		while (!s.isClosed()) {
+			DatagramPacket receivePacket = new DatagramPacket(receiveData, receiveData.length);
+			try {
+				s.receive(receivePacket);
+				handle(receivePacket);
+			} catch (SocketException e) {
+				// the socket has been closed by stop()
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * process a packet received on the broadcast port
+	 */
+	private synchronized void handle(DatagramPacket packet) {
+		received++;
+		InetAddress from = packet.getAddress();
+		try {
+			DeviceTouchDeviceInfo info = DeviceTouchSearch
+					.parseDeviceTouchInfoString(DeviceTouchSearch.getSearchReplyString(packet));
+			if (info != null && info.mac != null) {
+				announced(info, from);
+				return;
+			}
+		} catch (RuntimeException e) {
+			// not an info string
+		}
+		FollowUp followUp = followUps.get(from);
+		if (followUp == null) {
+			// e.g. the requests of other clients
+			return;
+		}
+		DeviceTouchDeviceInfo info = followUp.info;
+		try {
+			if (followUp.portRequested) {
+				info.port = DeviceTouchSearch.parsePortReplyString(DeviceTouchSearch.getPortReplyString(packet));
+				if (info.port == -1) {
+					finished(from, info);
+					return;
+				}
+				followUp.portRequested = false;
+				send(DeviceTouchSearch.createPasswordRequestMessage(info.mac, followUp.destination));
+			} else {
+				info.password = DeviceTouchSearch
+						.parsePasswordReplyString(DeviceTouchSearch.getPasswordReplyString(packet));
+				// if this point is reached, port and password for S-Touch App are known
+				info.stouchSupported = true;
+				finished(from, info);
+			}
+		} catch (RuntimeException e) {
+			// not a valid reply, the unit does not support the S-Touch app
+			finished(from, info);
+		}
+	}
+
+	/**
+	 * register a unit that sent its info string and request its port, if it is
+	 * not known yet
+	 */
+	private void announced(DeviceTouchDeviceInfo info, InetAddress from) {
+		DeviceTouchDeviceInfo known = units.get(info.mac);
+		if (known != null && complete.contains(info.mac) && info.ip.equals(known.ip)) {
+			return;
+		}
+		InetAddress destination = from;
+		for (SearchTarget target : targets) {
+			if (target.contains(from)) {
+				info.localIp = target.localAddress.getHostAddress();
+				destination = target.broadcast;
+				break;
+			}
+		}
+		info.bcastIp = destination.getHostAddress();
+		info.bcastPort = unitPort;
+		units.put(info.mac, info);
+		complete.remove(info.mac);
+		followUps.put(from, new FollowUp(info, destination));
+		send(DeviceTouchSearch.createPortRequestMessage(info.mac, destination));
+	}
+
+	private void finished(InetAddress from, DeviceTouchDeviceInfo info) {
+		followUps.remove(from);
+		complete.add(info.mac);
+		System.out.println("[DeviceTouchListener] handle: registered unit " + info.mac + " at " + info.ip
+				+ ", S-Touch app supported: " + info.stouchSupported);
+	}
+
+	/**
+	 * send {@code packet} to the {@code unitPort}. Must be called while holding
+	 * the lock of this object.
+	 */
+	private void send(DatagramPacket packet) {
+		if (socket == null) {
+			return;
+		}
+		try {
+			packet.setPort(unitPort);
+			socket.send(packet);
+		} catch (IOException e) {
+			System.out.println("[DeviceTouchListener] send: sending to " + packet.getAddress() + " failed: "
+					+ e.getMessage());
+		}
+	}
+}
@@ -18,17 +18,30 @@
 */
 package de.freaklamarsch.systarest;
 
+import java.io.IOException;
 import java.net.DatagramPacket;
 import java.net.DatagramSocket;
 import java.net.Inet4Address;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
 import java.net.InterfaceAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Enumeration;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * A utility class for searching and interacting with DeviceTouch devices. This
@@ -74,76 +87,299 @@ public class DeviceTouchSearch {
 		}
 	}
 
-	private static final int MAX_DATA_LENGTH = 1024;
-	private static final int BCAST_PORT = 8001;
+	/**
+	 * An interface address the search is broadcast on
+	 */
+	public static class SearchTarget {
+		public final InetAddress localAddress;
+		public final InetAddress broadcast;
+		public final int prefixLength;
+
+		/**
+		 * @param localAddress the IPv4 address of the interface
+		 * @param broadcast    the broadcast address of the interface
+		 * @param prefixLength the length of the network prefix of the interface
+		 */
+		public SearchTarget(InetAddress localAddress, InetAddress broadcast, int prefixLength) {
+			this.localAddress = localAddress;
+			this.broadcast = broadcast;
+			this.prefixLength = prefixLength;
+		}
+
+		/**
+		 * @param address an IPv4 address
+		 * @return {@code true} if {@code address} is in the network of this target
+		 */
+		boolean contains(InetAddress address) {
+			byte[] a = address.getAddress();
+			byte[] b = localAddress.getAddress();
+			if (a.length != b.length) {
+				return false;
+			}
+			for (int bit = 0; bit < prefixLength && bit < a.length * 8; bit++) {
+				int mask = 0x80 >> (bit % 8);
+				if ((a[bit / 8] & mask) != (b[bit / 8] & mask)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	/** the state of the follow-up requests for a found unit */
+	private static class PendingUnit {
+		private final DeviceTouchDeviceInfo info;
+		private final InetAddress destination;
+		private boolean portRequested = true;
+		private boolean done = false;
+		private long deadline;
+
+		private PendingUnit(DeviceTouchDeviceInfo info, InetAddress destination, long deadline) {
+			this.info = info;
+			this.destination = destination;
+			this.deadline = deadline;
+		}
+	}
+
+	static final int MAX_DATA_LENGTH = 1024;
+	static final int BCAST_PORT = 8001;
+	/** time in milliseconds to wait for the replies of each step of the search */
+	private static final long STEP_TIMEOUT = 1000;
+	/**
+	 * time in milliseconds to wait for further units after the last new unit
+	 * replied, once a unit has replied on each target
+	 */
+	private static final long REPLY_GRACE = 300;
 
 	/**
 	 * Search for devices supporting the DeviceTouch protocol. The search sends UDP
 	 * broadcasts and returns the {@link DeviceTouchDeviceInfo} object parsed from
-	 * received reply messages
+	 * received reply messages. If several units are found, a unit supporting the
+	 * S-Touch app is preferred
 	 * 
-	 * @return received {@link DeviceTouchDeviceInfo}
+	 * @return received {@link DeviceTouchDeviceInfo}, or {@code null} if no unit
+	 *         was found
 	 */
 	public static DeviceTouchDeviceInfo search() {
-		DeviceTouchDeviceInfo deviceInfo = null;
-		// loop over all available interfaces
-		Enumeration<NetworkInterface> interfaces;
-		try {
-			interfaces = NetworkInterface.getNetworkInterfaces();
+		return select(searchAll());
+	}
 
+	/**
+	 * @param units the units found by {@link #searchAll()}
+	 * @return the first unit supporting the S-Touch app, or the first unit if none
+	 *         supports it, or {@code null} if {@code units} is empty
+	 */
+	public static DeviceTouchDeviceInfo select(List<DeviceTouchDeviceInfo> units) {
+		for (DeviceTouchDeviceInfo unit : units) {
+			if (unit.stouchSupported) {
+				return unit;
+			}
+		}
+		return units.isEmpty() ? null : units.get(0);
+	}
+
+	/**
+	 * Search for all devices supporting the DeviceTouch protocol on all
+	 * available interfaces, see {@link #searchAll(List, int, long)}
+	 *
+	 * @return the {@link DeviceTouchDeviceInfo} of all units that replied
+	 */
+	public static List<DeviceTouchDeviceInfo> searchAll() {
+		return searchAll(getSearchTargets(), BCAST_PORT, STEP_TIMEOUT);
+	}
+
+	/**
+	 * @return a {@link SearchTarget} for each IPv4 address of the available
+	 *         interfaces, except the loopback interface
+	 */
+	public static List<SearchTarget> getSearchTargets() {
+		List<SearchTarget> targets = new ArrayList<>();
+		try {
+			Enumeration<NetworkInterface> interfaces = NetworkInterface.getNetworkInterfaces();
 			while (interfaces.hasMoreElements()) {
 				NetworkInterface networkInterface = interfaces.nextElement();
-				List<InterfaceAddress> interfaceAddresses = networkInterface.getInterfaceAddresses();
-				for (InterfaceAddress ia : interfaceAddresses) {
+				if (!networkInterface.isUp() || networkInterface.isLoopback()) {
+					continue;
+				}
+				for (InterfaceAddress ia : networkInterface.getInterfaceAddresses()) {
 					InetAddress ip = ia.getAddress();
-					if (ip instanceof Inet4Address && !ip.isLoopbackAddress()) {
-						DatagramSocket searchSocket = new DatagramSocket();
-						searchSocket.setBroadcast(true);
-						searchSocket.setSoTimeout(1000);
-						try {
-							byte[] receiveData = new byte[MAX_DATA_LENGTH];
-							DatagramPacket receivePacket = new DatagramPacket(receiveData, receiveData.length);
-							DatagramPacket packet = createSearchMessage(ia.getBroadcast());
-							String rxMessage = "";
-							// search for Systa Comfort unit attached to this interface
-							searchSocket.send(packet);
-							searchSocket.receive(receivePacket);
-							rxMessage = getSearchReplyString(receivePacket);
-							deviceInfo = parseDeviceTouchInfoString(rxMessage);
-							deviceInfo.localIp = ip.getHostAddress();
-							deviceInfo.bcastIp = ia.getBroadcast().getHostAddress();
-							deviceInfo.bcastPort = BCAST_PORT;
-							// request port from Systa Comfort
-							packet = createPortRequestMessage(deviceInfo.mac, ia.getBroadcast());
-							searchSocket.send(packet);
-							searchSocket.receive(receivePacket);
-							rxMessage = getPortReplyString(receivePacket);
-							deviceInfo.port = parsePortReplyString(rxMessage);
-							if (deviceInfo.port != -1) {
-								packet = createPasswordRequestMessage(deviceInfo.mac, ia.getBroadcast());
-								searchSocket.send(packet);
-								searchSocket.receive(receivePacket);
-								rxMessage = getPasswordReplyString(receivePacket);
-								deviceInfo.password = parsePasswordReplyString(rxMessage);
-								// if this point is reached, port and password for S-Touch App are known
-								deviceInfo.stouchSupported = true;
-							}
-						} catch (Exception e) {
-							// do nothing
-						}
-						searchSocket.close();
-						if (deviceInfo == null) {
-							// no SystaComfort found on this link, check the next interface
-							continue;
-						}
-						return deviceInfo;
+					if (ip instanceof Inet4Address && !ip.isLoopbackAddress() && ia.getBroadcast() != null) {
+						targets.add(new SearchTarget(ip, ia.getBroadcast(), ia.getNetworkPrefixLength()));
 					}
 				}
 			}
 		} catch (SocketException e) {
 			e.printStackTrace();
 		}
-		return null;
+		return targets;
+	}
+
+	/**
+	 * Search for devices supporting the DeviceTouch protocol on all
+	 * {@code targets} at the same time. The search message is broadcast on all
+	 * targets from one {@link DatagramChannel}. For each unit replying, the port
+	 * and the password for the S-Touch app are requested right away, without
+	 * waiting for the other units. Several units can reply on the same target, so
+	 * the search waits for replies until {@code timeoutMillis} has passed. Once a
+	 * unit has replied on each target, it ends earlier, if no new unit replied
+	 * for {@value #REPLY_GRACE} ms and all follow-up requests have been answered.
+	 *
+	 * @param targets       the interfaces to search on
+	 * @param port          the port the units are listening on, {@code 8001}
+	 * @param timeoutMillis time in milliseconds to wait for the replies to the
+	 *                      search, and for each follow-up request
+	 * @return the {@link DeviceTouchDeviceInfo} of all units that replied, in the
+	 *         order of their replies
+	 */
+	public static List<DeviceTouchDeviceInfo> searchAll(List<SearchTarget> targets, int port, long timeoutMillis) {
+		List<DeviceTouchDeviceInfo> found = new ArrayList<>();
+		if (targets.isEmpty()) {
+			return found;
+		}
+		// units are identified by the address they reply from
+		Map<InetAddress, PendingUnit> units = new LinkedHashMap<>();
+		Set<SearchTarget> answered = new HashSet<>();
+		try (Selector selector = Selector.open();
+				DatagramChannel channel = DatagramChannel.open(StandardProtocolFamily.INET)) {
+			channel.setOption(StandardSocketOptions.SO_BROADCAST, true);
+			channel.configureBlocking(false);
+			channel.bind(null);
+			channel.register(selector, SelectionKey.OP_READ);
+			for (SearchTarget target : targets) {
+				send(channel, createSearchMessage(target.broadcast), port);
+			}
+			long searchDeadline = System.currentTimeMillis() + timeoutMillis;
+			long grace = Math.min(REPLY_GRACE, timeoutMillis);
+			long lastNewReply = System.currentTimeMillis();
+			ByteBuffer buffer = ByteBuffer.allocate(MAX_DATA_LENGTH);
+			while (true) {
+				long now = System.currentTimeMillis();
+				// wait for search replies until the timeout, or for the grace period after
+				// the last new unit, if a unit has replied on each target
+				long searchEnd = (answered.size() < targets.size()) ? searchDeadline
+						: Math.min(searchDeadline, lastNewReply + grace);
+				long wakeUp = (now < searchEnd) ? searchEnd : Long.MAX_VALUE;
+				for (PendingUnit unit : units.values()) {
+					if (!unit.done && now >= unit.deadline) {
+						// no reply, the unit does not support the S-Touch app
+						unit.done = true;
+					}
+					if (!unit.done) {
+						wakeUp = Math.min(wakeUp, unit.deadline);
+					}
+				}
+				if (wakeUp == Long.MAX_VALUE) {
+					break;
+				}
+				selector.select(Math.max(1, wakeUp - now));
+				selector.selectedKeys().clear();
+				InetSocketAddress from;
+				while ((from = (InetSocketAddress) channel.receive(buffer)) != null) {
+					buffer.flip();
+					DatagramPacket reply = new DatagramPacket(Arrays.copyOf(buffer.array(), buffer.limit()),
+							buffer.limit());
+					buffer.clear();
+					if (handleReply(channel, port, timeoutMillis, targets, units, answered, from.getAddress(),
+							reply)) {
+						lastNewReply = System.currentTimeMillis();
+					}
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		for (PendingUnit unit : units.values()) {
+			found.add(unit.info);
+		}
+		return found;
+	}
+
+	/**
+	 * process a reply received during {@link #searchAll(List, int, long)}
+	 *
+	 * @return {@code true} if a new unit replied to the search
+	 */
+	private static boolean handleReply(DatagramChannel channel, int port, long timeoutMillis,
+			List<SearchTarget> targets, Map<InetAddress, PendingUnit> units, Set<SearchTarget> answered,
+			InetAddress from, DatagramPacket reply) throws IOException {
+		PendingUnit unit = units.get(from);
+		DeviceTouchDeviceInfo info = parseDeviceTouchInfoString(getSearchReplyString(reply));
+		if (info != null && info.mac != null) {
+			if (unit != null) {
+				// the search was received on more than one interface
+				return false;
+			}
+			SearchTarget target = null;
+			for (SearchTarget t : targets) {
+				if (t.contains(from)) {
+					target = t;
+					break;
+				}
+			}
+			InetAddress destination;
+			if (target != null) {
+				info.localIp = target.localAddress.getHostAddress();
+				destination = target.broadcast;
+				answered.add(target);
+			} else {
+				// the unit is not in the network of any interface, e.g. because of a wrong
+				// configuration, talk to it directly
+				info.localIp = localAddressFor(from, port).getHostAddress();
+				destination = from;
+			}
+			info.bcastIp = destination.getHostAddress();
+			info.bcastPort = port;
+			units.put(from, new PendingUnit(info, destination, System.currentTimeMillis() + timeoutMillis));
+			send(channel, createPortRequestMessage(info.mac, destination), port);
+			return true;
+		}
+		if (unit == null || unit.done) {
+			return false;
+		}
+		try {
+			if (unit.portRequested) {
+				unit.info.port = parsePortReplyString(getPortReplyString(reply));
+				if (unit.info.port == -1) {
+					unit.done = true;
+					return false;
+				}
+				unit.portRequested = false;
+				unit.deadline = System.currentTimeMillis() + timeoutMillis;
+				send(channel, createPasswordRequestMessage(unit.info.mac, unit.destination), port);
+			} else {
+				unit.info.password = parsePasswordReplyString(getPasswordReplyString(reply));
+				// if this point is reached, port and password for S-Touch App are known
+				unit.info.stouchSupported = true;
+				unit.done = true;
+			}
+		} catch (RuntimeException e) {
+			// not a valid reply, the unit does not support the S-Touch app
+			unit.done = true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return the address of the interface used for sending to {@code address},
+	 *         or the wildcard address if there is no route
+	 */
+	private static InetAddress localAddressFor(InetAddress address, int port) {
+		try (DatagramSocket socket = new DatagramSocket()) {
+			// connecting a DatagramSocket sends nothing, it only selects the route
+			socket.connect(address, port);
+			return socket.getLocalAddress();
+		} catch (SocketException e) {
+			return new InetSocketAddress(0).getAddress();
+		}
+	}
+
+	/**
+	 * send {@code packet} to {@code port}. The messages of this class are created
+	 * for port {@code 8001}, which is replaced for testing
+	 */
+	private static void send(DatagramChannel channel, DatagramPacket packet, int port) throws IOException {
+		channel.send(ByteBuffer.wrap(packet.getData(), packet.getOffset(), packet.getLength()),
+				new InetSocketAddress(packet.getAddress(), port));
 	}
 
 	/**
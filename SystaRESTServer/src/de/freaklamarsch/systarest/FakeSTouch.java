@@ -67,8 +67,11 @@ public class FakeSTouch {
 	int lastId = -1;
 	int lastX = -1;
 	int lastY = -1;
-	/** The display associated with this S-Touch device. */
-	private FakeSTouchDisplay display = new FakeSTouchDisplay();
+	/**
+	 * The display associated with this S-Touch device, created with the first
+	 * access, because it needs AWT.
+	 */
+	private FakeSTouchDisplay display = null;
 
 	// int rxRetryCount = 0;
 	long PktCmd;
@@ -159,6 +162,9 @@ public class FakeSTouch {
 	 * @return the {@link FakeSTouchDisplay} instance
 	 */
 	public synchronized FakeSTouchDisplay getDisplay() {
+		if (display == null) {
+			display = new FakeSTouchDisplay();
+		}
 		return display;
 	}
 
@@ -246,6 +252,9 @@ public class FakeSTouch {
 			}
 		}
 		this.socket.close();
+		// the unit might have a new address, search again with the next connect
+		DeviceTouchDiscovery.getInstance().invalidate();
+		this.info = null;
 		return ConnectionStatus.TIMEOUT;
 	}
 
@@ -383,7 +392,7 @@ public class FakeSTouch {
 	}
 
 	public DeviceTouchDeviceInfo searchSTouchDevice() {
-		return DeviceTouchSearch.search();
+		return DeviceTouchDiscovery.getInstance().lookup();
 	}
 
 	private void printDebugInfo(String string) {
@@ -428,6 +437,36 @@ public class FakeSTouch {
 		this.inetAddress = addr;
 	}
 
+	/**
+	 * @param cmd a command received from the SystaComfort
+	 * @return {@code true} if {@code cmd} draws on the screen or changes its
+	 *         buttons, {@code false} for commands that only change the state for
+	 *         the next drawing command, or do not affect the screen at all
+	 */
+	private static boolean changesScreen(STouchCommand cmd) {
+		switch (cmd) {
+		case DISPLAY_SWITCHON:
+		case DISPLAY_SWITCHOFF:
+		case DISPLAY_SETPIXEL:
+		case DISPLAY_LINETO:
+		case DISPLAY_DRAWRECT:
+		case DISPLAY_DRAWARC:
+		case DISPLAY_DRAWROUNDRECT:
+		case DISPLAY_DRAWSYMBOL:
+		case DISPLAY_DELETESYMBOL:
+		case DISPLAY_PUTC:
+		case DISPLAY_PRINT:
+		case DISPLAY_PRINTXY:
+		case DISPLAY_PUTCROT:
+		case DISPLAY_PRINTROT:
+		case DISPLAY_SETBUTTON:
+		case DISPLAY_DELBUTTON:
+			return true;
+		default:
+			return false;
+		}
+	}
+
 	private boolean isCommandEnabled(STouchCommand cmd) {
 		boolean enabled;
 		switch (cmd) {
@@ -494,6 +533,8 @@ public class FakeSTouch {
 			}
 			int ignoredCommandsCount = 0;
 			int processedCommandsCount = 0;
+			// set if a command changed the content of the screen
+			boolean screenChanged = false;
 			// loop over all received commands
 			while (true) {
 				printDebugInfo("pos @ " + rcvBuffer.position());
@@ -551,6 +592,7 @@ public class FakeSTouch {
 										}
 										printDebugInfo(cmd.name());
 										Function<Object, Boolean> processor = displayMethods.get(cmd);
+										screenChanged |= changesScreen(cmd);
 										if (processor != null) {
 											// printDebugInfo(cmd.name());
 											try {
@@ -705,9 +747,9 @@ public class FakeSTouch {
 				} else {
 					STouchProtocol.write(STouchCommand.TYPE_BYTE, replyBuffer, processedCommandsCount);
 				}
-				STouchProtocol.write(STouchCommand.TYPE_BYTE, replyBuffer, this.display.getButton());
+				STouchProtocol.write(STouchCommand.TYPE_BYTE, replyBuffer, this.getDisplay().getButton());
 				STouchProtocol.write(STouchCommand.DISPLAY_SETXY, replyBuffer,
-						new Coordinates(this.display.getX(), this.display.getY()));
+						new Coordinates(this.getDisplay().getX(), this.getDisplay().getY()));
 				STouchProtocol.write(STouchCommand.TYPE_BYTE, replyBuffer, 0);
 				STouchProtocol.write(STouchCommand.TYPE_BYTE, replyBuffer, 0);
 				STouchProtocol.write(STouchCommand.TYPE_SHORT_INTEGER, replyBuffer,
@@ -715,6 +757,10 @@ public class FakeSTouch {
 				STouchProtocol.write(STouchCommand.TYPE_SHORT_INTEGER, replyBuffer, ignoredCommandsCount);
 			}
 			replyPacket.setLength(replyBuffer.position());
+			if (screenChanged) {
+				// tell waiting automations that the screen has changed
+				this.getDisplay().publishVersion();
+			}
 		} else {
 			printDebugInfo("Unknow packet type received. Clearing reply packet.");
 			replyPacket = null;
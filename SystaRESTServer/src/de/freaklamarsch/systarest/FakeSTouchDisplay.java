@@ -59,6 +59,9 @@ public class FakeSTouchDisplay {
 	private Color foregroundColor = Color.BLACK;
 	private Color backgroundColor = Color.WHITE;
 	private int style = -1;
+	// incremented for each packet of drawing commands, see publishVersion()
+	private long version = 0;
+	private long versionChanged = System.currentTimeMillis();
 
 	public class DisplayButton {
 		Button button;
@@ -580,4 +583,62 @@ public class FakeSTouchDisplay {
 		return getObjectTree().getImage();
 	}
 
+	/**
+	 * @return the version of the screen content, which is incremented each time
+	 *         the SystaComfort sent display commands
+	 */
+	public synchronized long getVersion() {
+		return version;
+	}
+
+	/**
+	 * increment the version of the screen content and wake up the threads waiting
+	 * in {@link #awaitSettled(long, long, long)}. Called by
+	 * {@link FakeSTouch#processCommands(java.net.DatagramPacket)} after a packet
+	 * that drew on the screen or changed its buttons has been processed.
+	 *
+	 * @return the new version
+	 */
+	public synchronized long publishVersion() {
+		version++;
+		versionChanged = System.currentTimeMillis();
+		notifyAll();
+		return version;
+	}
+
+	/**
+	 * Wait until the screen has been redrawn. The SystaComfort redraws the screen
+	 * with several packets, so the screen is considered settled, if the version is
+	 * newer than {@code since} and has not changed for {@code quietMillis}.
+	 *
+	 * @param since         the version before the screen was changed, e.g. by a
+	 *                      touch
+	 * @param quietMillis   time in milliseconds without new display commands,
+	 *                      after which the screen is considered settled
+	 * @param timeoutMillis maximum time to wait in milliseconds
+	 * @return {@code true} if the screen has settled, {@code false} if the timeout
+	 *         elapsed before
+	 * @throws InterruptedException if the current thread is interrupted while
+	 *                              waiting
+	 */
+	public synchronized boolean awaitSettled(long since, long quietMillis, long timeoutMillis)
+			throws InterruptedException {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		while (true) {
+			long now = System.currentTimeMillis();
+			long wakeUp = deadline;
+			if (version > since) {
+				long settledAt = versionChanged + quietMillis;
+				if (now >= settledAt) {
+					return true;
+				}
+				wakeUp = Math.min(wakeUp, settledAt);
+			}
+			if (now >= deadline) {
+				return false;
+			}
+			wait(wakeUp - now);
+		}
+	}
+
 }
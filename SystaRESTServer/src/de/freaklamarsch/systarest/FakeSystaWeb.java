@@ -28,19 +28,29 @@ import java.net.DatagramSocket;
 import java.net.InetAddress;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
 import de.freaklamarsch.systarest.DataLogger.DataLoggerStatus;
+import de.freaklamarsch.systarest.DataLogger.RotationPolicy;
 import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
+import de.freaklamarsch.systarest.HistoryImporter.HistoryImporterStatus;
+import de.freaklamarsch.systarest.LogRetentionService.LogRetentionStatus;
+import de.freaklamarsch.systarest.SnapshotStore.Snapshot;
 import de.freaklamarsch.systarest.SystaWaterHeaterStatus.tempUnit;
 
 /**
@@ -74,12 +84,14 @@ public class FakeSystaWeb implements Runnable {
 		public final String loggerFileRootPath;
 		public final int loggerFileCount;
 		public final int loggerBufferedEntries;
+		public final RotationPolicy loggerRotationPolicy;
 		public final String commitDate;
 
 		public FakeSystaWebStatus(boolean running, boolean connected, long udpPacketsReceived, long processedPackets,
 				String timestamp, String localAddress, int localPort, InetAddress remoteAddress, int remotePort,
 				boolean saveLoggedData, int capacity, String logFilePrefix, String logEntryDelimiter,
-				String logFileRootPath, int writerFileCount, int bufferedEntries, String commitDate) {
+				String logFileRootPath, int writerFileCount, int bufferedEntries, RotationPolicy rotationPolicy,
+				String commitDate) {
 
 			this.running = running;
 			this.connected = connected;
@@ -97,6 +109,7 @@ public class FakeSystaWeb implements Runnable {
 			this.loggerFileRootPath = logFileRootPath;
 			this.loggerFileCount = writerFileCount;
 			this.loggerBufferedEntries = bufferedEntries;
+			this.loggerRotationPolicy = rotationPolicy;
 			this.commitDate = "2025-06-14T14:06:47+00:00";
 		}
 	}
@@ -154,6 +167,8 @@ public class FakeSystaWeb implements Runnable {
 	private static final int MAX_DATA_LENGTH = 1048;
 	private static final int MAX_NUMBER_ENTRIES = 256;
 	private static final int MAX_NUMBER_DATA_PACKETS = 4;
+	/** number of values returned by {@link #getData()} */
+	public static final int RAW_DATA_SIZE = MAX_NUMBER_ENTRIES * MAX_NUMBER_DATA_PACKETS;
 	private static final int COUNTER_OFFSET_REPLY = 0x3FBF;
 	private static final int COUNTER_OFFSET_REPLY_2 = 0x3FC0;
 	private static final int MAC_OFFSET_REPLY = 0x8E82;
@@ -167,8 +182,14 @@ public class FakeSystaWeb implements Runnable {
 	private static final int WRITER_MAX_DATA = 60;
 	private static final String DELIMITER = ";";
 	private static final String PREFIX = "SystaREST";
+	// the last received values are kept in this file in the log directory
+	private static final String SNAPSHOT_FILE_NAME = "SystaREST-snapshot.bin";
+	// write the snapshot file at most every 5 minutes, to spare the SD card
+	private static final long SNAPSHOT_INTERVAL = 5 * 60 * 1000;
 	private static String LOG_PATH = System.getProperty("user.home") + File.separator + "logs";
-	private static final String logFileFilterString = ".*-(raw|data)-[0-9]+\\.txt";
+	// matches the names written by DataLogger for all rotation policies, e.g.
+	// SystaREST-data-12.txt or SystaREST-data-20250614T140000_20250614T145900.txt
+	private static final String logFileFilterString = ".*-(raw|data)-([0-9]+|[0-9]{8}T[0-9]{6}_[0-9]{8}T[0-9]{6})\\.txt";
 	private static final FilenameFilter logFileFilter = (dir, name) -> name.matches(logFileFilterString);
 	/*
 	 * private static final FilenameFilter logFileFilter = new FilenameFilter() {
@@ -191,8 +212,10 @@ public class FakeSystaWeb implements Runnable {
 
 	private String inetAddress = "not configured";
 	private DatagramSocket socket = null;
-	private boolean running = false;
-	private boolean stopRequested = false;
+	private volatile boolean running = false;
+	private volatile boolean stopRequested = false;
+	// time the socket has been opened, -1 while no socket is open
+	private volatile long listeningSince = -1;
 	private byte[] receiveData = new byte[MAX_DATA_LENGTH];
 	private DatagramPacket receivePacket = new DatagramPacket(receiveData, receiveData.length);
 
@@ -202,6 +225,19 @@ public class FakeSystaWeb implements Runnable {
 			timestampFormatter);
 	private DataLogger<Byte> logRaw = new DataLogger<>(PREFIX, "raw", DELIMITER, WRITER_MAX_DATA, LOG_PATH,
 			timestampFormatter);
+	private LogRetentionService logRetention = new LogRetentionService(LOG_PATH, logFileFilter);
+	private final SystaHistory history = new SystaHistory();
+	// every complete data set is published here, for consumers like push streams
+	// and metrics
+	private final BroadcastRing<Snapshot> snapshots = new BroadcastRing<>(16);
+	private final HistoryImporter historyImporter = new HistoryImporter(history);
+	private boolean importHistory = true;
+	private boolean historyImportStarted = false;
+	// true, as long as the served data is restored from the snapshot file and no
+	// new data has been received
+	private volatile boolean stale = false;
+	private long lastSnapshotSaved = -1;
+	private Thread snapshotShutdownHook = null;
 
 	// constructor
 	public FakeSystaWeb() {
@@ -216,6 +252,154 @@ public class FakeSystaWeb implements Runnable {
 		LOG_PATH = path;
 		logInt.setLogFileRootPath(path);
 		logRaw.setLogFileRootPath(path);
+		logRetention.setLogFileRootPath(path);
+	}
+
+	/**
+	 * configure the limits for the log files kept in the log directory
+	 *
+	 * @param maxBytes   maximum number of bytes used by log files, values smaller
+	 *                   than 1 disable this limit
+	 * @param maxAgeDays maximum age of log files in days, values smaller than 1
+	 *                   disable this limit
+	 */
+	public void setLogRetention(long maxBytes, int maxAgeDays) {
+		logRetention.setLimits(maxBytes, maxAgeDays);
+	}
+
+	/**
+	 * @param importHistory if {@code true}, the data log files found in the log
+	 *                      directory are imported into the {@link SystaHistory}
+	 *                      when this {@code FakeSystaWeb} is started
+	 */
+	public void setImportHistory(boolean importHistory) {
+		this.importHistory = importHistory;
+	}
+
+	/**
+	 * @return the {@link SystaHistory} holding the received values
+	 */
+	public SystaHistory getHistory() {
+		return history;
+	}
+
+	/**
+	 * @return the status of the import of the data log files into the
+	 *         {@link SystaHistory}
+	 */
+	public HistoryImporterStatus getHistoryImporterStatus() {
+		return historyImporter.getStatus();
+	}
+
+	/**
+	 * @return the {@link BroadcastRing} each received data set is published to.
+	 *         Consumers can subscribe to it at any time
+	 */
+	public BroadcastRing<Snapshot> getSnapshots() {
+		return snapshots;
+	}
+
+	/**
+	 * @return the version of the served data. It changes with every processed data
+	 *         packet, -1 if no data is available
+	 */
+	public long getSnapshotVersion() {
+		return snapshots.getSequence();
+	}
+
+	/**
+	 * @return {@code true} if the communication with the SystaComfort has been
+	 *         started with {@link #run()} and has not stopped yet
+	 */
+	public boolean isRunning() {
+		return running;
+	}
+
+	/**
+	 * @return the time in epoch milliseconds the socket for receiving packets from
+	 *         the SystaComfort has been opened, or -1 if it is not open
+	 */
+	public long getListeningSince() {
+		return listeningSince;
+	}
+
+	/**
+	 * @return {@code true} if the served data has been restored from the snapshot
+	 *         file at startup and no new data has been received from the
+	 *         SystaComfort since
+	 */
+	public boolean isStale() {
+		return stale;
+	}
+
+	/**
+	 * restore the last values saved by {@link #saveSnapshot()}. The restored
+	 * values are served as {@link #isStale() stale} until the first data packet is
+	 * received. Nothing is restored, if data has already been received.
+	 *
+	 * @return {@code true} if a snapshot has been restored
+	 */
+	public synchronized boolean restoreSnapshot() {
+		if (readIndex >= 0) {
+			return false;
+		}
+		Snapshot snapshot = SnapshotStore.read(Paths.get(LOG_PATH, SNAPSHOT_FILE_NAME));
+		if (snapshot == null || snapshot.timestamp <= 0) {
+			return false;
+		}
+		Integer[] data = intData[0];
+		Arrays.fill(data, 0);
+		System.arraycopy(snapshot.data, 0, data, 0, Math.min(data.length, snapshot.data.length));
+		timestamp[0] = snapshot.timestamp;
+		stale = true;
+		lastSnapshotSaved = snapshot.timestamp;
+		readIndex = 0;
+		snapshots.publish(new Snapshot(snapshot.timestamp, Arrays.copyOf(data, data.length)));
+		System.out.println("[FakeSystaWeb] restoreSnapshot: restored data received at "
+				+ getFormattedTimeString(snapshot.timestamp));
+		return true;
+	}
+
+	/**
+	 * write the last received values to the snapshot file in the log directory
+	 */
+	public synchronized void saveSnapshot() {
+		int i = readIndex;
+		if (i < 0 || timestamp[i] <= 0 || stale) {
+			// nothing new to save
+			return;
+		}
+		try {
+			SnapshotStore.write(Paths.get(LOG_PATH, SNAPSHOT_FILE_NAME), timestamp[i], intData[i]);
+			lastSnapshotSaved = timestamp[i];
+		} catch (IOException e) {
+			System.out.println("[FakeSystaWeb] saveSnapshot: could not write snapshot file");
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * @return the status of the {@link LogRetentionService} managing the log
+	 *         directory
+	 */
+	public LogRetentionStatus getLogRetentionStatus() {
+		return logRetention.getStatus();
+	}
+
+	/**
+	 * @return the status of the {@link DataLogger} for the raw data packets, see
+	 *         {@link #logRawData()}
+	 */
+	public DataLoggerStatus getRawDataLoggerStatus() {
+		return logRaw.getStatus();
+	}
+
+	/**
+	 * @return the status of the {@link DataLogger} for the decoded values, see
+	 *         {@link #logRawData()}
+	 */
+	public DataLoggerStatus getIntDataLoggerStatus() {
+		return logInt.getStatus();
 	}
 
 	/**
@@ -226,17 +410,49 @@ public class FakeSystaWeb implements Runnable {
 	public FakeSystaWebStatus getStatus() {
 		DataLoggerStatus dls = logRaw.getStatus();
 		// if we have received data within the last 120 seconds, we are considered being
-		// connected
-		boolean connected = (readIndex < 0) ? false
+		// connected. Data restored from the snapshot file has not been received
+		boolean connected = (readIndex < 0 || stale) ? false
 				: (timestamp[readIndex] > 0 && (Instant.now().toEpochMilli() - timestamp[readIndex] < 120));
 		return new FakeSystaWebStatus(this.running, connected, this.dataPacketsReceived, this.dataPacketsProcessed,
 				this.getTimestampString(), this.inetAddress, FakeSystaWeb.PORT, this.remoteAddress, this.remotePort,
 				dls.saveLoggedData, dls.capacity, dls.logFilePrefix, dls.logEntryDelimiter, dls.logFileRootPath,
-				dls.writerFileCount, dls.bufferedEntries, FakeSystaWeb.commitDate);
+				dls.writerFileCount, dls.bufferedEntries, dls.rotationPolicy, FakeSystaWeb.commitDate);
 	}
 
+	/**
+	 * Find a SystaComfort unit with the DeviceTouch protocol, or return the cached
+	 * unit
+	 *
+	 * @return the found unit, or {@code null} if no unit was found
+	 */
 	public DeviceTouchDeviceInfo findSystaComfort() {
-		return DeviceTouchSearch.search();
+		return findSystaComfort(false);
+	}
+
+	/**
+	 * Find a SystaComfort unit with the DeviceTouch protocol. The result is cached
+	 * by the {@link DeviceTouchDiscovery}.
+	 *
+	 * @param refresh {@code true} to search again, even if a cached result is
+	 *                available
+	 * @return the found unit, or {@code null} if no unit was found
+	 */
+	public DeviceTouchDeviceInfo findSystaComfort(boolean refresh) {
+		DeviceTouchDiscovery discovery = DeviceTouchDiscovery.getInstance();
+		return refresh ? discovery.refresh() : discovery.lookup();
+	}
+
+	/**
+	 * Find all SystaComfort units replying to the DeviceTouch search on any
+	 * interface. The result is cached by the {@link DeviceTouchDiscovery}.
+	 *
+	 * @param refresh {@code true} to search again, even if a cached result is
+	 *                available
+	 * @return the found units, empty if no unit was found
+	 */
+	public List<DeviceTouchDeviceInfo> findSystaComforts(boolean refresh) {
+		DeviceTouchDiscovery discovery = DeviceTouchDiscovery.getInstance();
+		return refresh ? discovery.refreshAll() : discovery.lookupAll();
 	}
 
 	/**
@@ -319,6 +535,7 @@ public class FakeSystaWeb implements Runnable {
 		status.operationList = WATER_HEATER_OPERATION_MODES;
 		status.supportedFeatures = new String[] {}; // TODO check what supported features are
 		status.is_away_mode_on = false; // TODO match with ferien mode if possible
+		status.stale = stale;
 		status.timestamp = timestamp[i];
 		status.timestampString = getFormattedTimeString(timestamp[readIndex]);
 		return status;
@@ -440,6 +657,7 @@ public class FakeSystaWeb implements Runnable {
 		status.logBoilerOperationMode = intData[i][SystaIndex.LOG_BOILER_OPERATION_MODE];
 		status.boilerHeatsBuffer = (status.logBoilerSettings & SystaStatus.BOILER_HEATS_BUFFER_MASK) != 0;
 		status.bufferType = intData[i][SystaIndex.BUFFER_TYPE];
+		status.stale = stale;
 		status.timestamp = timestamp[i];
 		status.timestampString = getFormattedTimeString(timestamp[readIndex]);
 		return status;
@@ -449,6 +667,11 @@ public class FakeSystaWeb implements Runnable {
 	 * stop the communication with a Paradigma SystaComfort II if running
 	 */
 	public void stop() {
+		if (running) {
+			// clean up here, so run() can return as soon as the socket is closed
+			logRetention.stop();
+			saveSnapshot();
+		}
 		stopRequested = true;
 		if (socket != null && !socket.isClosed()) {
 			socket.close();
@@ -466,6 +689,12 @@ public class FakeSystaWeb implements Runnable {
 			return;
 		}
 		running = true;
+		// serve the last known values until the SystaComfort sends new ones
+		restoreSnapshot();
+		if (snapshotShutdownHook == null) {
+			snapshotShutdownHook = new Thread(this::saveSnapshot, "FakeSystaWeb-snapshot");
+			Runtime.getRuntime().addShutdownHook(snapshotShutdownHook);
+		}
 		System.out.println("[FakeSystaWeb] run: trying to open DatagramSocket for UDP communication on " + inetAddress
 				+ ":" + PORT);
 		// try to open the listening socket
@@ -482,7 +711,15 @@ public class FakeSystaWeb implements Runnable {
 			return;
 		}
 		stopRequested = false;
+		listeningSince = System.currentTimeMillis();
 		dataPacketsReceived = 0;
+		logRetention.start();
+		if (importHistory && !historyImportStarted) {
+			// the socket is open, so importing the existing logs does not delay the
+			// communication with the SystaComfort
+			historyImportStarted = true;
+			historyImporter.start(LOG_PATH);
+		}
 		System.out.println("[FakeSystaWeb] run: UDP communication with Paradigma SystaComfort II started");
 		while (!stopRequested) {
 			receiveNextDatagram();
@@ -497,7 +734,13 @@ public class FakeSystaWeb implements Runnable {
 			}
 		}
 		System.out.println("[FakeSystaWeb] run: UDP communication with Paradigma SystaComfort II stopped");
+		if (!stopRequested) {
+			// the communication failed, otherwise stop() has already cleaned up
+			logRetention.stop();
+			saveSnapshot();
+		}
 		socket.close();
+		listeningSince = -1;
 		stopRequested = false;
 		running = false;
 	}
@@ -560,6 +803,15 @@ public class FakeSystaWeb implements Runnable {
 					"[FakeSystaWeb] processDatagram: unknown message type received " + String.format("0x%02X", type));
 			typeOfLastReceivedMessage = MessageType.ERR;
 		}
+		if (type >= 0x01 && type <= 0x04) {
+			history.add(timestamp[readIndex], intData[readIndex]);
+			// publish a copy, the consumers read it from other threads
+			snapshots.publish(new Snapshot(timestamp[readIndex],
+					Arrays.copyOf(intData[readIndex], intData[readIndex].length)));
+			if (timestamp[readIndex] - lastSnapshotSaved >= SNAPSHOT_INTERVAL) {
+				saveSnapshot();
+			}
+		}
 	}
 
 	/**
@@ -658,6 +910,7 @@ public class FakeSystaWeb implements Runnable {
 			intData[writeIndex][offset + (data.position() - 24) / 4] = data.getInt();
 		}
 		readIndex = writeIndex;
+		stale = false;
 	}
 
 	/**
@@ -720,6 +973,11 @@ public class FakeSystaWeb implements Runnable {
 		logInt.saveLoggedData(filePrefix, delimiter, entriesPerFile);
 	}
 
+	public void logRawData(String filePrefix, String delimiter, int entriesPerFile, RotationPolicy rotationPolicy) {
+		logRaw.saveLoggedData(filePrefix, delimiter, entriesPerFile, rotationPolicy);
+		logInt.saveLoggedData(filePrefix, delimiter, entriesPerFile, rotationPolicy);
+	}
+
 	public void stopLoggingRawData() {
 		logRaw.stopSavingLoggedData();
 		logInt.stopSavingLoggedData();
@@ -736,20 +994,19 @@ public class FakeSystaWeb implements Runnable {
 			FileOutputStream fos = new FileOutputStream(zippedLogs);
 			ZipOutputStream zos = new ZipOutputStream(fos);
 			// no checked needed, if the folder does not exist, it is empty
-			File folderToBeZipped = new File(LOG_PATH);
-			File[] files = folderToBeZipped.listFiles(logFileFilter);
-			System.out.println("[FakeSystaWeb] getAllLogs: found " + files.length + " files to be zipped");
-			for (File file : files) {
-				if (file.isDirectory()) {
-					// ignore directories
-					continue;
-				}
-				FileInputStream fis = new FileInputStream(file);
-				ZipEntry zipEntry = new ZipEntry(file.getName());
+			Path folderToBeZipped = Paths.get(LOG_PATH);
+			List<Path> files = listLogFiles(folderToBeZipped);
+			System.out.println("[FakeSystaWeb] getAllLogs: found " + files.size() + " files to be zipped");
+			byte[] bytes = new byte[8192];
+			for (Path file : files) {
+				FileInputStream fis = new FileInputStream(file.toFile());
+				// files of the time based rotation are stored in yyyy/MM/dd subfolders, keep
+				// them in the zip
+				ZipEntry zipEntry = new ZipEntry(folderToBeZipped.relativize(file).toString().replace('\\', '/'));
 				zos.putNextEntry(zipEntry);
-				byte[] bytes = new byte[1024];
-				while (fis.read(bytes) >= 0) {
-					zos.write(bytes, 0, bytes.length);
+				int read;
+				while ((read = fis.read(bytes)) >= 0) {
+					zos.write(bytes, 0, read);
 				}
 				zos.closeEntry();
 				fis.close();
@@ -771,20 +1028,51 @@ public class FakeSystaWeb implements Runnable {
 		}
 
 		AtomicInteger i = new AtomicInteger(0);
-		Arrays.stream(logDirectory.listFiles(logFileFilter)).forEach(file -> {
-			if (file.delete()) {
-				System.out.println("[FakeSystaWeb] deleteAllLogs: deleted " + file.getName());
-				i.incrementAndGet();
+		AtomicInteger archives = new AtomicInteger(0);
+		listLogFiles(logDirectory.toPath()).forEach(file -> {
+			if (file.toFile().delete()) {
+				System.out.println("[FakeSystaWeb] deleteAllLogs: deleted " + file.getFileName());
+				if (LogRetentionService.isArchive(file)) {
+					archives.incrementAndGet();
+				} else {
+					i.incrementAndGet();
+				}
+				LogRetentionService.deleteEmptyDateDirectories(file.getParent(), logDirectory.toPath());
 			}
 		});
-		if (i.get() != (logRaw.getWriterFileCount() + logInt.getWriterFileCount())) {
+		// the loggers count the files they have written, not the files that have
+		// been compacted into archives since then
+		if (archives.get() == 0 && i.get() != (logRaw.getWriterFileCount() + logInt.getWriterFileCount())) {
 			System.out.println("[FakeSystaWeb] deleteAllLogs: missmatch in numbers. Deleted " + i.get()
 					+ " files, but loggers had counted " + (logRaw.getWriterFileCount() + logInt.getWriterFileCount())
 					+ " files.");
 		}
 		logRaw.setWriterFileCount(0);
 		logInt.setWriterFileCount(0);
-		return i.get();
+		return i.get() + archives.get();
+	}
+
+	/**
+	 * @param root the log directory
+	 * @return all log files in {@code root} and the {@code yyyy/MM/dd}
+	 *         subdirectories used by the time based rotation of the
+	 *         {@link DataLogger}, and the archives in {@code root} created by the
+	 *         {@link LogRetentionService}
+	 */
+	private static List<Path> listLogFiles(Path root) {
+		if (!Files.isDirectory(root)) {
+			return new ArrayList<>();
+		}
+		try (Stream<Path> stream = Files.walk(root, 4)) {
+			return stream.filter(Files::isRegularFile)
+					.filter(p -> logFileFilter.accept(p.getParent().toFile(), p.getFileName().toString())
+							|| (root.equals(p.getParent()) && LogRetentionService.isArchive(p)))
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			System.out.println("[FakeSystaWeb] listLogFiles: could not list " + root);
+			e.printStackTrace();
+			return new ArrayList<>();
+		}
 	}
 
 	/*
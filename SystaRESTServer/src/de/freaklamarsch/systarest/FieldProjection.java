@@ -0,0 +1,148 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A selection of the fields of the JSON returned by {@code /status}, or of the
+ * values of the JSON returned by {@code /rawdata}, so clients can request only
+ * the values they are using.
+ * <p>
+ * A projection is parsed once from the list requested by the client and cached
+ * for that list, up to {@link #MAX_CACHED} lists per kind. It is used by
+ * {@link JsonFieldWriter} to write only the selected values.
+ */
+public class FieldProjection {
+
+	/** maximum number of cached projections per kind */
+	public static final int MAX_CACHED = 64;
+	private static final Map<String, FieldProjection> fieldsCache = new ConcurrentHashMap<>();
+	private static final Map<String, FieldProjection> indicesCache = new ConcurrentHashMap<>();
+
+	private final String key;
+	private final Set<String> fields;
+	private final int[] indices;
+
+	private FieldProjection(String key, Set<String> fields, int[] indices) {
+		this.key = key;
+		this.fields = fields;
+		this.indices = indices;
+	}
+
+	/**
+	 * @param list comma separated list of field names, e.g.
+	 *             {@code outsideTemp,hotWaterTemp}
+	 * @return the projection to the fields in {@code list}
+	 * @throws IllegalArgumentException if {@code list} holds no field name
+	 */
+	public static FieldProjection ofFields(String list) {
+		FieldProjection p = fieldsCache.get(list);
+		if (p != null) {
+			return p;
+		}
+		Set<String> names = new LinkedHashSet<>();
+		for (String name : list.split(",")) {
+			if (!name.isBlank()) {
+				names.add(name.trim());
+			}
+		}
+		if (names.isEmpty()) {
+			throw new IllegalArgumentException("no fields given: " + list);
+		}
+		p = new FieldProjection("fields=" + String.join(",", names), names, null);
+		cache(fieldsCache, list, p);
+		return p;
+	}
+
+	/**
+	 * @param list comma separated list of indices or ranges of indices, e.g.
+	 *             {@code 0-20,36}
+	 * @param size the number of values, all indices have to be lower
+	 * @return the projection to the values at the indices in {@code list}
+	 * @throws IllegalArgumentException if {@code list} can not be parsed, or an
+	 *                                  index is out of range
+	 */
+	public static FieldProjection ofIndices(String list, int size) {
+		FieldProjection p = indicesCache.get(list);
+		if (p != null) {
+			return p;
+		}
+		List<Integer> selected = new ArrayList<>();
+		for (String range : list.split(",")) {
+			range = range.trim();
+			if (range.isEmpty()) {
+				continue;
+			}
+			int dash = range.indexOf('-', 1);
+			int first = Integer.parseInt((dash < 0) ? range : range.substring(0, dash).trim());
+			int last = (dash < 0) ? first : Integer.parseInt(range.substring(dash + 1).trim());
+			if (first < 0 || last >= size || first > last) {
+				throw new IllegalArgumentException("invalid range " + range + ", indices have to be between 0 and "
+						+ (size - 1));
+			}
+			for (int i = first; i <= last; i++) {
+				selected.add(i);
+			}
+		}
+		if (selected.isEmpty()) {
+			throw new IllegalArgumentException("no indices given: " + list);
+		}
+		p = new FieldProjection("indices=" + list.replace(" ", ""),
+				null, selected.stream().mapToInt(Integer::intValue).toArray());
+		cache(indicesCache, list, p);
+		return p;
+	}
+
+	private static void cache(Map<String, FieldProjection> cache, String list, FieldProjection p) {
+		// the lists are chosen by the clients, so do not let the cache grow unbounded
+		if (cache.size() < MAX_CACHED) {
+			cache.put(list, p);
+		}
+	}
+
+	/**
+	 * @return a normalized textual representation of this projection, e.g.
+	 *         {@code fields=outsideTemp,hotWaterTemp}
+	 */
+	public String getKey() {
+		return key;
+	}
+
+	/**
+	 * @param field the name of a field
+	 * @return {@code true} if {@code field} is selected by this projection
+	 */
+	public boolean includes(String field) {
+		return fields != null && fields.contains(field);
+	}
+
+	/**
+	 * @return the selected indices, or {@code null} if this is a projection to
+	 *         fields
+	 */
+	public int[] getIndices() {
+		return (indices == null) ? null : indices.clone();
+	}
+}
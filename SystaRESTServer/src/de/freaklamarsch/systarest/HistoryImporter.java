@@ -0,0 +1,376 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Imports the data log files written by the {@link DataLogger} of
+ * {@link FakeSystaWeb} into a {@link SystaHistory}. The import runs in the
+ * background, the files are parsed in parallel, one file per task. Each file is
+ * read line by line, and only the lines holding values kept by the
+ * {@link SystaHistory} are parsed. The daily archives created by the
+ * {@link LogRetentionService} are read entry by entry, without unpacking them.
+ * <p>
+ * The files use a transposed layout: the first line holds the timestamps of the
+ * entries, each following line holds the value of one index for all entries.
+ */
+public class HistoryImporter {
+
+	/**
+	 * Inner class for representing the status of this @see HistoryImporter
+	 */
+	public static class HistoryImporterStatus {
+		public final boolean running;
+		public final int filesTotal;
+		public final int filesImported;
+		public final int filesFailed;
+		public final long entriesImported;
+		public final long durationMillis;
+
+		public HistoryImporterStatus(boolean running, int filesTotal, int filesImported, int filesFailed,
+				long entriesImported, long durationMillis) {
+			this.running = running;
+			this.filesTotal = filesTotal;
+			this.filesImported = filesImported;
+			this.filesFailed = filesFailed;
+			this.entriesImported = entriesImported;
+			this.durationMillis = durationMillis;
+		}
+	}
+
+	// data files of all rotation policies, raw files hold the bytes of the packets
+	// and are not imported
+	private static final Pattern dataFilePattern = Pattern
+			.compile(".*-data-([0-9]+|[0-9]{8}T[0-9]{6}_[0-9]{8}T[0-9]{6})\\.txt");
+	private static final DateTimeFormatter[] TIMESTAMP_FORMATTERS = {
+			DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault()),
+			// the default format of the DataLogger
+			DateTimeFormatter.ofPattern("E-dd.MM.yy-HH:mm:ss.SSS").withZone(ZoneId.systemDefault()),
+			DateTimeFormatter.ofPattern("E-dd.MM.yy-HH:mm:ss.SSS", Locale.ENGLISH).withZone(ZoneId.systemDefault()) };
+
+	private final SystaHistory history;
+	private final int threads;
+	private volatile ExecutorService importService = null;
+	private volatile boolean running = false;
+	private volatile long startTime = -1;
+	private volatile long endTime = -1;
+	private final AtomicInteger filesTotal = new AtomicInteger();
+	private final AtomicInteger filesImported = new AtomicInteger();
+	private final AtomicInteger filesFailed = new AtomicInteger();
+	private final AtomicLong entriesImported = new AtomicLong();
+
+	/**
+	 * @param history the {@link SystaHistory} the files are imported into
+	 */
+	public HistoryImporter(SystaHistory history) {
+		this(history, Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	/**
+	 * @param history the {@link SystaHistory} the files are imported into
+	 * @param threads the number of files parsed in parallel
+	 */
+	public HistoryImporter(SystaHistory history, int threads) {
+		this.history = history;
+		this.threads = Math.max(1, threads);
+	}
+
+	/**
+	 * start importing all data log files found in {@code logFileRootPath} and its
+	 * subdirectories in the background. The call returns immediately. If an
+	 * import is already running, the call is ignored.
+	 *
+	 * @param logFileRootPath the directory holding the log files
+	 */
+	public synchronized void start(String logFileRootPath) {
+		if (running) {
+			return;
+		}
+		running = true;
+		startTime = System.currentTimeMillis();
+		endTime = -1;
+		filesTotal.set(0);
+		filesImported.set(0);
+		filesFailed.set(0);
+		entriesImported.set(0);
+		AtomicInteger threadCount = new AtomicInteger();
+		importService = Executors.newFixedThreadPool(threads, r -> {
+			Thread thread = new Thread(r, "HistoryImporter-" + threadCount.incrementAndGet());
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		ExecutorService service = importService;
+		// listing the files can take a while on an SD card, so it is done by the first
+		// task, not by the caller
+		service.execute(() -> {
+			List<Path> files = listDataFiles(Paths.get(logFileRootPath));
+			// the data files in the archives are counted when the archives are read
+			filesTotal.addAndGet((int) files.stream().filter(f -> !LogRetentionService.isArchive(f)).count());
+			System.out.println("[HistoryImporter] importing " + files.size() + " files from " + logFileRootPath);
+			if (files.isEmpty()) {
+				finished(service);
+				return;
+			}
+			AtomicInteger remaining = new AtomicInteger(files.size());
+			for (Path file : files) {
+				service.execute(() -> {
+					if (LogRetentionService.isArchive(file)) {
+						importArchive(file);
+					} else {
+						importFile(file);
+					}
+					if (remaining.decrementAndGet() == 0) {
+						finished(service);
+					}
+				});
+			}
+		});
+	}
+
+	/**
+	 * stop a running import. Files that are already imported stay in the
+	 * {@link SystaHistory}.
+	 */
+	public synchronized void stop() {
+		if (importService != null) {
+			importService.shutdownNow();
+			importService = null;
+			endTime = System.currentTimeMillis();
+			running = false;
+		}
+	}
+
+	/**
+	 * @return the status of this {@code HistoryImporter}
+	 */
+	public HistoryImporterStatus getStatus() {
+		long duration = (startTime < 0) ? 0 : ((endTime < 0) ? System.currentTimeMillis() : endTime) - startTime;
+		return new HistoryImporterStatus(running, filesTotal.get(), filesImported.get(), filesFailed.get(),
+				entriesImported.get(), duration);
+	}
+
+	private synchronized void finished(ExecutorService service) {
+		service.shutdown();
+		if (importService != service) {
+			// the import was stopped
+			return;
+		}
+		importService = null;
+		endTime = System.currentTimeMillis();
+		running = false;
+		System.out.println("[HistoryImporter] imported " + entriesImported.get() + " entries from "
+				+ filesImported.get() + " files in " + (endTime - startTime) + " ms, " + filesFailed.get()
+				+ " files failed");
+	}
+
+	/**
+	 * import a single file into the {@link SystaHistory}
+	 *
+	 * @param file the data log file
+	 * @return the number of imported entries
+	 */
+	public int importFile(Path file) {
+		try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+			return importData(reader, file.toString());
+		} catch (IOException e) {
+			return failed(file.toString(), e);
+		}
+	}
+
+	/**
+	 * import the data log files stored in an archive of the
+	 * {@link LogRetentionService} into the {@link SystaHistory}. Each data log
+	 * file is counted like a single file.
+	 *
+	 * @param archive the {@code SystaPiArchive-yyyyMMdd.zip} file
+	 * @return the number of imported entries
+	 */
+	public int importArchive(Path archive) {
+		int entries = 0;
+		try (ZipInputStream zis = new ZipInputStream(new BufferedInputStream(Files.newInputStream(archive)))) {
+			ZipEntry entry;
+			while ((entry = zis.getNextEntry()) != null) {
+				String name = entry.getName().substring(entry.getName().lastIndexOf('/') + 1);
+				if (entry.isDirectory() || !dataFilePattern.matcher(name).matches()) {
+					continue;
+				}
+				filesTotal.incrementAndGet();
+				// the reader is not closed, this would close the archive. Lines not read
+				// are skipped by getNextEntry()
+				BufferedReader reader = new BufferedReader(new InputStreamReader(zis, StandardCharsets.UTF_8));
+				entries += importData(reader, archive + "!" + entry.getName());
+			}
+		} catch (IOException e) {
+			failed(archive.toString(), e);
+		}
+		return entries;
+	}
+
+	/**
+	 * parse the data log file read by {@code reader}
+	 *
+	 * @param source the name of the file, for logging
+	 * @return the number of imported entries
+	 */
+	private int importData(BufferedReader reader, String source) {
+		try {
+			String timestampLine = reader.readLine();
+			String firstValueLine = reader.readLine();
+			if (timestampLine == null || firstValueLine == null) {
+				throw new IOException("file holds no entries");
+			}
+			String delimiter = detectDelimiter(firstValueLine);
+			long[] timestamps = parseTimestamps(timestampLine, delimiter);
+			int[][] values = new int[timestamps.length][SystaHistory.HISTORY_FIELDS];
+			String line = firstValueLine;
+			// only read as many lines as there are fields in the history, the rest of the
+			// file is not needed
+			for (int index = 0; index < SystaHistory.HISTORY_FIELDS && line != null; index++) {
+				parseValues(line, delimiter, index, values);
+				line = reader.readLine();
+			}
+			history.addAll(timestamps, values);
+			filesImported.incrementAndGet();
+			entriesImported.addAndGet(timestamps.length);
+			return timestamps.length;
+		} catch (IOException | RuntimeException e) {
+			return failed(source, e);
+		}
+	}
+
+	private int failed(String source, Exception e) {
+		filesFailed.incrementAndGet();
+		System.out.println("[HistoryImporter] could not import " + source + ": " + e.getMessage());
+		return 0;
+	}
+
+	/**
+	 * @return all data log files below {@code root} and the archives in
+	 *         {@code root}, oldest first
+	 */
+	private static List<Path> listDataFiles(Path root) {
+		if (!Files.isDirectory(root)) {
+			return List.of();
+		}
+		try (Stream<Path> stream = Files.walk(root, 4)) {
+			return stream.filter(Files::isRegularFile)
+					.filter(p -> dataFilePattern.matcher(p.getFileName().toString()).matches()
+							|| (root.equals(p.getParent()) && LogRetentionService.isArchive(p)))
+					.sorted()
+					.collect(Collectors.toList());
+		} catch (IOException e) {
+			System.out.println("[HistoryImporter] could not list " + root);
+			e.printStackTrace();
+			return List.of();
+		}
+	}
+
+	/**
+	 * The delimiter can be configured by the user, so it is taken from the first
+	 * line of values, which holds only integers
+	 *
+	 * @param valueLine a line of values
+	 * @return the delimiter used in {@code valueLine}
+	 */
+	static String detectDelimiter(String valueLine) {
+		int start = 0;
+		// skip the first value, which might be negative
+		if (start < valueLine.length() && valueLine.charAt(start) == '-') {
+			start++;
+		}
+		while (start < valueLine.length() && Character.isDigit(valueLine.charAt(start))) {
+			start++;
+		}
+		int end = start;
+		while (end < valueLine.length() && !Character.isDigit(valueLine.charAt(end))) {
+			end++;
+		}
+		if (end < valueLine.length() && end > start + 1 && valueLine.charAt(end - 1) == '-') {
+			// the next value is negative
+			end--;
+		}
+		if (start == end) {
+			// a single entry, the delimiter does not matter
+			return ";";
+		}
+		return valueLine.substring(start, end);
+	}
+
+	private static long[] parseTimestamps(String line, String delimiter) {
+		String[] fields = line.split(Pattern.quote(delimiter), -1);
+		long[] timestamps = new long[fields.length];
+		for (int i = 0; i < fields.length; i++) {
+			timestamps[i] = parseTimestamp(fields[i]);
+		}
+		return timestamps;
+	}
+
+	private static long parseTimestamp(String timestamp) {
+		for (DateTimeFormatter formatter : TIMESTAMP_FORMATTERS) {
+			try {
+				return Instant.from(formatter.parse(timestamp)).toEpochMilli();
+			} catch (DateTimeParseException e) {
+				// try the next format
+			}
+		}
+		throw new IllegalArgumentException("unknown timestamp format " + timestamp);
+	}
+
+	/**
+	 * parse the integers of {@code line} without creating intermediate strings
+	 */
+	private static void parseValues(String line, String delimiter, int index, int[][] values) {
+		int entry = 0;
+		int pos = 0;
+		int length = line.length();
+		while (pos <= length && entry < values.length) {
+			int next = line.indexOf(delimiter, pos);
+			if (next < 0) {
+				next = length;
+			}
+			values[entry][index] = (next > pos) ? Integer.parseInt(line, pos, next, 10) : 0;
+			entry++;
+			pos = next + delimiter.length();
+		}
+	}
+}
@@ -0,0 +1,285 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.IOException;
+import java.net.URI;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.glassfish.grizzly.http.server.NetworkListener;
+import org.glassfish.grizzly.nio.transport.TCPNIOTransport;
+import org.glassfish.grizzly.threadpool.ThreadPoolConfig;
+import org.glassfish.jersey.grizzly2.httpserver.GrizzlyHttpServerFactory;
+import org.glassfish.jersey.jdkhttp.JdkHttpServerFactory;
+import org.glassfish.jersey.server.ResourceConfig;
+
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * The HTTP server running the REST APIs of {@link SystaRESTServer}. The engine
+ * is selected with {@value #PROP_ENGINE} in SystaREST.properties:
+ * <ul>
+ * <li>{@code jdk} the {@link com.sun.net.httpserver.HttpServer} of the JDK.
+ * This is the default. It can not suspend requests, so long polls with
+ * {@code waitForNewerThan} and Server-Sent Events are not available, see
+ * {@link LongPollFilter}</li>
+ * <li>{@code grizzly} the Grizzly NIO server, which handles many open
+ * connections, e.g. of dashboards and Server-Sent Events clients, with a few
+ * selector threads and a fixed pool of worker threads</li>
+ * </ul>
+ * The number of threads and the keep-alive of idle connections can be
+ * configured with the other {@code HTTP_*} properties. Values smaller than 1 keep
+ * the defaults of the engine. With {@value #PROP_VIRTUAL_THREADS}, the
+ * {@code jdk} engine handles each request in its own virtual thread, if the
+ * Java runtime supports them, so requests blocking for a long time, e.g.
+ * {@code /STouchREST/automation} or {@code /SystaREST/findsystacomfort}, do not
+ * delay other requests.
+ */
+public abstract class HttpEngine {
+
+	/** {@code jdk} or {@code grizzly} */
+	public static final String PROP_ENGINE = "HTTP_ENGINE";
+	/** number of threads handling the requests */
+	public static final String PROP_WORKER_THREADS = "HTTP_WORKER_THREADS";
+	/** number of threads accepting and reading connections, {@code grizzly} only */
+	public static final String PROP_SELECTOR_THREADS = "HTTP_SELECTOR_THREADS";
+	/** time in seconds an idle connection is kept open */
+	public static final String PROP_KEEP_ALIVE_SECONDS = "HTTP_KEEP_ALIVE_SECONDS";
+	/** number of requests served over one connection, {@code grizzly} only */
+	public static final String PROP_KEEP_ALIVE_MAX_REQUESTS = "HTTP_KEEP_ALIVE_MAX_REQUESTS";
+	/** {@code true} for handling each request in a virtual thread, {@code jdk} only */
+	public static final String PROP_VIRTUAL_THREADS = "HTTP_VIRTUAL_THREADS";
+
+	protected final URI baseUri;
+
+	protected HttpEngine(URI baseUri) {
+		this.baseUri = baseUri;
+	}
+
+	/**
+	 * Create the HTTP engine configured in {@code props}, without starting it
+	 *
+	 * @param props   the properties read from SystaREST.properties
+	 * @param baseUri the URI the server is listening on
+	 * @param config  the {@link ResourceConfig} of the REST APIs
+	 * @return the created {@code HttpEngine}
+	 * @throws IllegalArgumentException if the configured engine is unknown
+	 */
+	public static HttpEngine create(Properties props, URI baseUri, ResourceConfig config) {
+		String engine = props.getProperty(PROP_ENGINE, "jdk").trim().toLowerCase();
+		int workers = intProperty(props, PROP_WORKER_THREADS);
+		int keepAlive = intProperty(props, PROP_KEEP_ALIVE_SECONDS);
+		switch (engine) {
+		case "jdk":
+			return new JdkEngine(baseUri, config, workers, keepAlive,
+					Boolean.parseBoolean(props.getProperty(PROP_VIRTUAL_THREADS, "false").trim()));
+		case "grizzly":
+			return new GrizzlyEngine(baseUri, config, intProperty(props, PROP_SELECTOR_THREADS), workers, keepAlive,
+					intProperty(props, PROP_KEEP_ALIVE_MAX_REQUESTS));
+		default:
+			throw new IllegalArgumentException("unknown " + PROP_ENGINE + " " + engine + ", use jdk or grizzly");
+		}
+	}
+
+	/**
+	 * @param props the properties read from SystaREST.properties
+	 * @param name  the name of the property
+	 * @return the value of the property, or {@code 0} if it is not set
+	 */
+	protected static int intProperty(Properties props, String name) {
+		String value = props.getProperty(name);
+		if (value == null || value.isBlank()) {
+			return 0;
+		}
+		try {
+			return Integer.parseInt(value.trim());
+		} catch (NumberFormatException e) {
+			System.out.println("[HttpEngine] ignoring invalid " + name + "=" + value);
+			return 0;
+		}
+	}
+
+	/**
+	 * start accepting requests
+	 *
+	 * @throws IOException if the server socket could not be opened
+	 */
+	public abstract void start() throws IOException;
+
+	/**
+	 * stop accepting requests and close all connections
+	 */
+	public abstract void stop();
+
+	/**
+	 * @return the name of the engine, as configured with {@value #PROP_ENGINE}
+	 */
+	public abstract String getName();
+
+	/**
+	 * @return {@code true} if the requests are handled in virtual threads
+	 */
+	public boolean usesVirtualThreads() {
+		return false;
+	}
+
+	/**
+	 * @return the URI the server is listening on
+	 */
+	public URI getBaseUri() {
+		return baseUri;
+	}
+
+	/**
+	 * @param threads the number of threads
+	 * @param prefix  the prefix for the names of the threads
+	 * @return a pool of {@code threads} daemon threads
+	 */
+	protected static ExecutorService newFixedThreadPool(int threads, String prefix) {
+		AtomicInteger count = new AtomicInteger();
+		return Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, prefix + "-" + count.incrementAndGet());
+			t.setDaemon(true);
+			return t;
+		});
+	}
+
+	/**
+	 * @return an {@link ExecutorService} starting a new virtual thread for each
+	 *         task, or {@code null} if the Java runtime does not support virtual
+	 *         threads
+	 */
+	static ExecutorService newVirtualThreadPerTaskExecutor() {
+		// virtual threads are available since Java 21, but SystaPi has to run on
+		// older versions too
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * {@code HttpEngine} using the {@link HttpServer} of the JDK. Without
+	 * configured worker threads, all requests are handled by the dispatcher
+	 * thread of the server.
+	 */
+	static class JdkEngine extends HttpEngine {
+		private final HttpServer server;
+		private final ExecutorService executor;
+		private final boolean virtual;
+
+		JdkEngine(URI baseUri, ResourceConfig config, int workers, int keepAliveSeconds, boolean virtualThreads) {
+			super(baseUri);
+			if (keepAliveSeconds > 0) {
+				// read once by the JDK, when the first server is created
+				System.setProperty("sun.net.httpserver.idleInterval", Integer.toString(keepAliveSeconds));
+			}
+			// the Jersey container of the JDK server throws on suspending a request
+			config.property(LongPollFilter.PROP_ASYNC_SUPPORTED, false);
+			server = JdkHttpServerFactory.createHttpServer(baseUri, config, false);
+			ExecutorService virtualExecutor = virtualThreads ? newVirtualThreadPerTaskExecutor() : null;
+			if (virtualThreads && virtualExecutor == null) {
+				System.out.println("[HttpEngine] virtual threads are not supported by Java "
+						+ System.getProperty("java.version") + ", using " + PROP_WORKER_THREADS + "=" + workers);
+			}
+			virtual = virtualExecutor != null;
+			if (virtual) {
+				System.out.println("[HttpEngine] handling each request in a virtual thread");
+				executor = virtualExecutor;
+			} else {
+				executor = (workers > 0) ? newFixedThreadPool(workers, "SystaREST-worker") : null;
+			}
+			server.setExecutor(executor);
+		}
+
+		@Override
+		public boolean usesVirtualThreads() {
+			return virtual;
+		}
+
+		@Override
+		public void start() {
+			server.start();
+		}
+
+		@Override
+		public void stop() {
+			server.stop(0);
+			if (executor != null) {
+				executor.shutdownNow();
+			}
+		}
+
+		@Override
+		public String getName() {
+			return "jdk";
+		}
+	}
+
+	/**
+	 * {@code HttpEngine} using the Grizzly NIO server. Connections are handled by
+	 * the selector threads and only occupy a worker thread while a request is
+	 * processed, suspended requests like Server-Sent Events or long polls do not
+	 * occupy a worker thread at all.
+	 */
+	static class GrizzlyEngine extends HttpEngine {
+		private final org.glassfish.grizzly.http.server.HttpServer server;
+
+		GrizzlyEngine(URI baseUri, ResourceConfig config, int selectors, int workers, int keepAliveSeconds,
+				int keepAliveMaxRequests) {
+			super(baseUri);
+			server = GrizzlyHttpServerFactory.createHttpServer(baseUri, config, false);
+			for (NetworkListener listener : server.getListeners()) {
+				TCPNIOTransport transport = listener.getTransport();
+				if (selectors > 0) {
+					transport.setSelectorRunnersCount(selectors);
+				}
+				if (workers > 0) {
+					transport.setWorkerThreadPoolConfig(ThreadPoolConfig.defaultConfig().copy()
+							.setPoolName("SystaREST-worker").setCorePoolSize(workers).setMaxPoolSize(workers));
+				}
+				if (keepAliveSeconds > 0) {
+					listener.getKeepAlive().setIdleTimeoutInSeconds(keepAliveSeconds);
+				}
+				if (keepAliveMaxRequests > 0) {
+					listener.getKeepAlive().setMaxRequestsCount(keepAliveMaxRequests);
+				}
+			}
+		}
+
+		@Override
+		public void start() throws IOException {
+			server.start();
+		}
+
+		@Override
+		public void stop() {
+			server.shutdownNow();
+		}
+
+		@Override
+		public String getName() {
+			return "grizzly";
+		}
+	}
+}
@@ -0,0 +1,103 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.math.BigDecimal;
+
+import jakarta.json.stream.JsonGenerator;
+
+/**
+ * Writes the fields of a JSON object straight to a {@link JsonGenerator},
+ * instead of building a {@link jakarta.json.JsonObject} first. The methods are
+ * named like the ones of {@link jakarta.json.JsonObjectBuilder}, so it can be
+ * used in the same way. If a {@link FieldProjection} is given, only the fields
+ * selected by it are written.
+ */
+public class JsonFieldWriter {
+	private final JsonGenerator generator;
+	private final FieldProjection projection;
+
+	/**
+	 * @param generator  the {@link JsonGenerator} to write to, positioned inside
+	 *                   an object
+	 * @param projection the fields to write, or {@code null} for all fields
+	 */
+	public JsonFieldWriter(JsonGenerator generator, FieldProjection projection) {
+		this.generator = generator;
+		this.projection = projection;
+	}
+
+	public JsonFieldWriter add(String name, int value) {
+		if (includes(name)) {
+			generator.write(name, value);
+		}
+		return this;
+	}
+
+	public JsonFieldWriter add(String name, long value) {
+		if (includes(name)) {
+			generator.write(name, value);
+		}
+		return this;
+	}
+
+	public JsonFieldWriter add(String name, double value) {
+		if (includes(name)) {
+			// same formatting as JsonObjectBuilder.add(String, double)
+			generator.write(name, BigDecimal.valueOf(value));
+		}
+		return this;
+	}
+
+	public JsonFieldWriter add(String name, boolean value) {
+		if (includes(name)) {
+			generator.write(name, value);
+		}
+		return this;
+	}
+
+	public JsonFieldWriter add(String name, String value) {
+		if (includes(name)) {
+			generator.write(name, value);
+		}
+		return this;
+	}
+
+	/**
+	 * add an array of strings
+	 *
+	 * @param name   the name of the field
+	 * @param values the values of the array
+	 * @return this {@code JsonFieldWriter}
+	 */
+	public JsonFieldWriter add(String name, String[] values) {
+		if (includes(name)) {
+			generator.writeStartArray(name);
+			for (String value : values) {
+				generator.write(value);
+			}
+			generator.writeEnd();
+		}
+		return this;
+	}
+
+	private boolean includes(String name) {
+		return projection == null || projection.includes(name);
+	}
+}
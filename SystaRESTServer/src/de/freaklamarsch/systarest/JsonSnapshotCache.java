@@ -0,0 +1,162 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+import jakarta.json.Json;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
+
+/**
+ * Cache for the serialized JSON representations of the data received from the
+ * SystaComfort. The SystaComfort sends new data about once a minute, but the
+ * representations are requested much more often, e.g. by dashboards and Home
+ * Assistant. Each representation is written to UTF-8 only once per snapshot
+ * version, all further requests for the same version are answered with the
+ * cached bytes. The representations are written with a {@link JsonGenerator},
+ * so no intermediate {@link jakarta.json.JsonObject} tree is built.
+ * <p>
+ * The snapshot version is the sequence of the last data set published by
+ * {@link FakeSystaWeb}, so processing a new packet invalidates all cached
+ * representations. At most {@link #MAX_ENTRIES} representations are cached,
+ * as the representations include projections requested by the clients.
+ * <p>
+ * For clients accepting {@code gzip}, the compressed variant of a
+ * representation is cached as well, so it is also computed only once per
+ * snapshot version.
+ */
+public class JsonSnapshotCache {
+
+	/**
+	 * Inner class for representing the status of this @see JsonSnapshotCache
+	 */
+	public static class JsonSnapshotCacheStatus {
+		public final int entries;
+		public final long hits;
+		public final long misses;
+		public final long compressions;
+
+		public JsonSnapshotCacheStatus(int entries, long hits, long misses, long compressions) {
+			this.entries = entries;
+			this.hits = hits;
+			this.misses = misses;
+			this.compressions = compressions;
+		}
+	}
+
+	private static class Entry {
+		private final long version;
+		private final byte[] json;
+		// created with the first request accepting gzip
+		private volatile byte[] gzip;
+
+		private Entry(long version, byte[] json) {
+			this.version = version;
+			this.json = json;
+		}
+	}
+
+	/** maximum number of cached representations */
+	public static final int MAX_ENTRIES = 64;
+	private static final JsonGeneratorFactory generatorFactory = Json.createGeneratorFactory(null);
+	private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong compressions = new AtomicLong();
+
+	/**
+	 * @param representation name of the representation, e.g. {@code status}
+	 * @param version        the snapshot version the representation is requested
+	 *                       for
+	 * @param writer         writes the representation, if it is not cached for
+	 *                       {@code version}
+	 * @return the UTF-8 encoded JSON of the representation
+	 */
+	public byte[] get(String representation, long version, Consumer<JsonGenerator> writer) {
+		return getEntry(representation, version, writer).json;
+	}
+
+	/**
+	 * @param representation name of the representation, e.g. {@code status}
+	 * @param version        the snapshot version the representation is requested
+	 *                       for
+	 * @param writer         writes the representation, if it is not cached for
+	 *                       {@code version}
+	 * @return the UTF-8 encoded JSON of the representation, compressed with
+	 *         {@code gzip}
+	 */
+	public byte[] getGzip(String representation, long version, Consumer<JsonGenerator> writer) {
+		Entry entry = getEntry(representation, version, writer);
+		byte[] gzip = entry.gzip;
+		if (gzip == null) {
+			// like for the JSON, concurrent requests might compress the same bytes
+			gzip = CompressionFilter.gzip(entry.json);
+			entry.gzip = gzip;
+			compressions.incrementAndGet();
+		}
+		return gzip;
+	}
+
+	private Entry getEntry(String representation, long version, Consumer<JsonGenerator> writer) {
+		Entry entry = entries.get(representation);
+		if (entry != null && entry.version == version) {
+			hits.incrementAndGet();
+			return entry;
+		}
+		misses.incrementAndGet();
+		// concurrent misses for the same version build the same bytes, so there is no
+		// need to lock here
+		Entry created = new Entry(version, serialize(writer));
+		if (entry != null || entries.size() < MAX_ENTRIES) {
+			entries.put(representation, created);
+		}
+		return created;
+	}
+
+	/**
+	 * remove all cached representations
+	 */
+	public void clear() {
+		entries.clear();
+	}
+
+	/**
+	 * @return the status of this {@code JsonSnapshotCache}
+	 */
+	public JsonSnapshotCacheStatus getStatus() {
+		return new JsonSnapshotCacheStatus(entries.size(), hits.get(), misses.get(), compressions.get());
+	}
+
+	/**
+	 * @param writer writes the JSON to the given {@link JsonGenerator}
+	 * @return the UTF-8 encoded JSON written by {@code writer}
+	 */
+	static byte[] serialize(Consumer<JsonGenerator> writer) {
+		ByteArrayOutputStream out = new ByteArrayOutputStream(4096);
+		try (JsonGenerator generator = generatorFactory.createGenerator(out, StandardCharsets.UTF_8)) {
+			writer.accept(generator);
+		}
+		return out.toByteArray();
+	}
+}
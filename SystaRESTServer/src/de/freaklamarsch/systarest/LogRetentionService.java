@@ -0,0 +1,451 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Background service that keeps the log directory of the {@link DataLogger}s
+ * within configured bounds. Each run of the service
+ * <ol>
+ * <li>compacts the log files of past days into one zip archive per day,</li>
+ * <li>deletes log files and archives older than {@link #maxAgeDays},</li>
+ * <li>deletes the oldest log files and archives until the log directory uses
+ * less than {@link #maxBytes}.</li>
+ * </ol>
+ * Files are processed in chronological order, one archive at a time, and at
+ * most {@link #BATCH_SIZE} files are compacted per run. This keeps the I/O of
+ * the service sequential and spreads large backlogs over several runs, so the
+ * SD card of a Raspberry Pi is not kept busy for a long time.
+ */
+public class LogRetentionService {
+
+	/**
+	 * Inner class for representing the status of this @see LogRetentionService
+	 */
+	public static class LogRetentionStatus {
+		public final boolean running;
+		public final long maxBytes;
+		public final int maxAgeDays;
+		public final long runs;
+		public final String lastRun;
+		public final long directoryBytes;
+		public final int pendingFiles;
+		public final long filesCompacted;
+		public final long archivesWritten;
+		public final long filesDeleted;
+		public final long bytesFreed;
+
+		public LogRetentionStatus(boolean running, long maxBytes, int maxAgeDays, long runs, String lastRun,
+				long directoryBytes, int pendingFiles, long filesCompacted, long archivesWritten, long filesDeleted,
+				long bytesFreed) {
+			this.running = running;
+			this.maxBytes = maxBytes;
+			this.maxAgeDays = maxAgeDays;
+			this.runs = runs;
+			this.lastRun = lastRun;
+			this.directoryBytes = directoryBytes;
+			this.pendingFiles = pendingFiles;
+			this.filesCompacted = filesCompacted;
+			this.archivesWritten = archivesWritten;
+			this.filesDeleted = filesDeleted;
+			this.bytesFreed = bytesFreed;
+		}
+	}
+
+	public static final long DEFAULT_MAX_BYTES = 256L * 1024 * 1024;
+	public static final int DEFAULT_MAX_AGE_DAYS = 365;
+	private static final long DEFAULT_INTERVAL_MINUTES = 60;
+	private static final long INITIAL_DELAY_MINUTES = 1;
+	private static final int BATCH_SIZE = 256;
+	private static final int IO_BUFFER_SIZE = 64 * 1024;
+	private static final String ARCHIVE_PREFIX = "SystaPiArchive-";
+	private static final String ARCHIVE_SUFFIX = ".zip";
+	private static final String archiveFilterString = ARCHIVE_PREFIX + "[0-9]{8}\\" + ARCHIVE_SUFFIX;
+	private static final Pattern rangedFileNamePattern = Pattern
+			.compile(".*-([0-9]{8})T[0-9]{6}_[0-9]{8}T[0-9]{6}\\.txt");
+	private static final DateTimeFormatter ARCHIVE_DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyyMMdd");
+	private static final DateTimeFormatter timestampFormatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME
+			.withZone(ZoneId.systemDefault());
+
+	private final FilenameFilter logFileFilter;
+	// runs are serialized on this lock, so getStatus() is never blocked by a run
+	private final Object runLock = new Object();
+	private volatile String logFileRootPath;
+	private volatile long maxBytes = DEFAULT_MAX_BYTES;
+	private volatile int maxAgeDays = DEFAULT_MAX_AGE_DAYS;
+	private volatile ScheduledExecutorService retentionService = null;
+
+	private volatile long runs = 0;
+	private volatile long lastRun = -1;
+	private volatile long directoryBytes = 0;
+	private volatile int pendingFiles = 0;
+	private volatile long filesCompacted = 0;
+	private volatile long archivesWritten = 0;
+	private volatile long filesDeleted = 0;
+	private volatile long bytesFreed = 0;
+
+	/**
+	 * Create a {@code LogRetentionService} for the log files in
+	 * {@code logFileRootPath}
+	 *
+	 * @param logFileRootPath the directory the log files are written to
+	 * @param logFileFilter   filter matching the names of the log files that are
+	 *                        managed by this service. Other files in the directory
+	 *                        are never touched
+	 */
+	public LogRetentionService(String logFileRootPath, FilenameFilter logFileFilter) {
+		this.logFileRootPath = logFileRootPath;
+		this.logFileFilter = logFileFilter;
+	}
+
+	/**
+	 * @param logFileRootPath the directory the log files are written to
+	 */
+	public void setLogFileRootPath(String logFileRootPath) {
+		this.logFileRootPath = logFileRootPath;
+	}
+
+	/**
+	 * Configure the limits enforced by this service. Values smaller than 1 disable
+	 * the corresponding limit.
+	 *
+	 * @param maxBytes   maximum number of bytes used by log files and archives
+	 * @param maxAgeDays maximum age in days of log files and archives
+	 */
+	public void setLimits(long maxBytes, int maxAgeDays) {
+		this.maxBytes = maxBytes;
+		this.maxAgeDays = maxAgeDays;
+	}
+
+	/**
+	 * start the periodic execution of the retention runs, if not already started
+	 */
+	public synchronized void start() {
+		if (retentionService != null) {
+			return;
+		}
+		retentionService = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "LogRetentionService");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		retentionService.scheduleWithFixedDelay(() -> {
+			try {
+				runOnce();
+			} catch (Exception e) {
+				System.out.println("[LogRetentionService] run failed: " + e.getMessage());
+				e.printStackTrace();
+			}
+		}, INITIAL_DELAY_MINUTES, DEFAULT_INTERVAL_MINUTES, TimeUnit.MINUTES);
+		System.out.println("[LogRetentionService] start: maxBytes=" + maxBytes + ", maxAgeDays=" + maxAgeDays);
+	}
+
+	/**
+	 * stop the periodic execution of the retention runs. A run that is currently
+	 * executed is completed, so no archive is left half written.
+	 */
+	public synchronized void stop() {
+		if (retentionService != null) {
+			retentionService.shutdown();
+			retentionService = null;
+		}
+	}
+
+	/**
+	 * @return the status of this {@code LogRetentionService}
+	 */
+	public LogRetentionStatus getStatus() {
+		return new LogRetentionStatus(retentionService != null, maxBytes, maxAgeDays, runs,
+				(lastRun < 0) ? "never" : timestampFormatter.format(Instant.ofEpochMilli(lastRun)), directoryBytes,
+				pendingFiles, filesCompacted, archivesWritten, filesDeleted, bytesFreed);
+	}
+
+	/**
+	 * Execute a single retention run: compact, enforce the maximum age, enforce
+	 * the maximum size.
+	 */
+	public void runOnce() {
+		synchronized (runLock) {
+			Path root = Paths.get(logFileRootPath);
+			if (!Files.isDirectory(root)) {
+				return;
+			}
+			try {
+				compactPastDays(root);
+				deleteExpired(root);
+				enforceMaxBytes(root);
+				directoryBytes = listManagedFiles(root).stream().mapToLong(this::sizeOf).sum();
+			} catch (IOException e) {
+				System.out.println("[LogRetentionService] runOnce: error while processing " + root);
+				e.printStackTrace();
+			}
+			runs++;
+			lastRun = System.currentTimeMillis();
+		}
+	}
+
+	/**
+	 * merge the log files of all days before today into one archive per day
+	 */
+	private void compactPastDays(Path root) throws IOException {
+		LocalDate today = LocalDate.now();
+		// group the closed log files by day, oldest day first
+		Map<LocalDate, List<Path>> filesPerDay = new TreeMap<>();
+		for (Path file : listLogFiles(root)) {
+			LocalDate day = dayOf(file);
+			if (day.isBefore(today)) {
+				filesPerDay.computeIfAbsent(day, d -> new ArrayList<>()).add(file);
+			}
+		}
+		int pending = filesPerDay.values().stream().mapToInt(List::size).sum();
+		int budget = BATCH_SIZE;
+		for (Map.Entry<LocalDate, List<Path>> entry : filesPerDay.entrySet()) {
+			if (budget <= 0) {
+				break;
+			}
+			List<Path> batch = entry.getValue();
+			if (batch.size() > budget) {
+				batch = batch.subList(0, budget);
+			}
+			appendToArchive(root, entry.getKey(), batch);
+			budget -= batch.size();
+			pending -= batch.size();
+		}
+		pendingFiles = pending;
+	}
+
+	/**
+	 * Write {@code files} into the archive of {@code day}. An existing archive is
+	 * copied into a new one first, because zip files cannot be appended in place.
+	 * The originals are only deleted after the new archive was written
+	 * completely.
+	 */
+	private void appendToArchive(Path root, LocalDate day, List<Path> files) throws IOException {
+		Path archive = root.resolve(ARCHIVE_PREFIX + ARCHIVE_DATE_FORMATTER.format(day) + ARCHIVE_SUFFIX);
+		Path tmpArchive = root.resolve(archive.getFileName() + ".tmp");
+		byte[] buffer = new byte[IO_BUFFER_SIZE];
+		long sizeBefore = Files.exists(archive) ? Files.size(archive) : 0;
+		long compactedBytes = 0;
+		try (ZipOutputStream zos = new ZipOutputStream(
+				new BufferedOutputStream(Files.newOutputStream(tmpArchive), IO_BUFFER_SIZE))) {
+			if (Files.exists(archive)) {
+				try (ZipInputStream zis = new ZipInputStream(
+						new BufferedInputStream(Files.newInputStream(archive), IO_BUFFER_SIZE))) {
+					ZipEntry entry;
+					while ((entry = zis.getNextEntry()) != null) {
+						zos.putNextEntry(new ZipEntry(entry.getName()));
+						copy(zis, zos, buffer);
+						zos.closeEntry();
+					}
+				}
+			}
+			for (Path file : files) {
+				ZipEntry entry = new ZipEntry(root.relativize(file).toString().replace('\\', '/'));
+				entry.setTime(Files.getLastModifiedTime(file).toMillis());
+				zos.putNextEntry(entry);
+				try (InputStream is = new BufferedInputStream(Files.newInputStream(file), IO_BUFFER_SIZE)) {
+					copy(is, zos, buffer);
+				}
+				zos.closeEntry();
+				compactedBytes += sizeOf(file);
+			}
+		}
+		Files.move(tmpArchive, archive, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		for (Path file : files) {
+			Files.deleteIfExists(file);
+			deleteEmptyDateDirectories(file.getParent(), root);
+		}
+		filesCompacted += files.size();
+		archivesWritten++;
+		bytesFreed += Math.max(0, compactedBytes - (Files.size(archive) - sizeBefore));
+		System.out.println("[LogRetentionService] compacted " + files.size() + " files into " + archive);
+	}
+
+	/**
+	 * delete all log files and archives older than {@link #maxAgeDays}
+	 */
+	private void deleteExpired(Path root) throws IOException {
+		if (maxAgeDays < 1) {
+			return;
+		}
+		LocalDate oldestDayToKeep = LocalDate.now().minusDays(maxAgeDays);
+		for (Path file : listManagedFiles(root)) {
+			if (dayOf(file).isBefore(oldestDayToKeep)) {
+				delete(file);
+			}
+		}
+	}
+
+	/**
+	 * delete the oldest log files and archives until the used space is below
+	 * {@link #maxBytes}
+	 */
+	private void enforceMaxBytes(Path root) throws IOException {
+		if (maxBytes < 1) {
+			return;
+		}
+		List<Path> files = listManagedFiles(root);
+		long usedBytes = files.stream().mapToLong(this::sizeOf).sum();
+		files.sort(Comparator.comparing(this::dayOf).thenComparingLong(this::lastModified));
+		for (Path file : files) {
+			if (usedBytes <= maxBytes) {
+				break;
+			}
+			usedBytes -= delete(file);
+		}
+	}
+
+	/**
+	 * @return the number of bytes freed by deleting {@code file}
+	 */
+	private long delete(Path file) throws IOException {
+		long size = sizeOf(file);
+		if (Files.deleteIfExists(file)) {
+			deleteEmptyDateDirectories(file.getParent(), Paths.get(logFileRootPath));
+			filesDeleted++;
+			bytesFreed += size;
+			System.out.println("[LogRetentionService] deleted " + file);
+			return size;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return all log files and archives managed by this service
+	 */
+	private List<Path> listManagedFiles(Path root) throws IOException {
+		List<Path> files = listLogFiles(root);
+		try (Stream<Path> stream = Files.list(root)) {
+			files.addAll(stream.filter(LogRetentionService::isArchive).collect(Collectors.toList()));
+		}
+		return files;
+	}
+
+	/**
+	 * @return {@code true} if {@code file} is one of the daily
+	 *         {@code SystaPiArchive-yyyyMMdd.zip} archives created by the
+	 *         compaction
+	 */
+	static boolean isArchive(Path file) {
+		return file.getFileName().toString().matches(archiveFilterString);
+	}
+
+	/**
+	 * @return all log files below {@code root} matching {@link #logFileFilter},
+	 *         sorted by their modification time
+	 */
+	private List<Path> listLogFiles(Path root) throws IOException {
+		try (Stream<Path> stream = Files.walk(root)) {
+			return stream.filter(Files::isRegularFile)
+					.filter(p -> logFileFilter.accept(p.getParent().toFile(), p.getFileName().toString()))
+					.sorted(Comparator.comparingLong(this::lastModified)).collect(Collectors.toList());
+		}
+	}
+
+	/**
+	 * @return the day an archive was created for, the first day covered by a log
+	 *         file of the time based rotation, or the day a log file was last
+	 *         written
+	 */
+	private LocalDate dayOf(Path file) {
+		String name = file.getFileName().toString();
+		try {
+			if (isArchive(file)) {
+				return LocalDate.parse(name.substring(ARCHIVE_PREFIX.length(), ARCHIVE_PREFIX.length() + 8),
+						ARCHIVE_DATE_FORMATTER);
+			}
+			Matcher m = rangedFileNamePattern.matcher(name);
+			if (m.matches()) {
+				return LocalDate.parse(m.group(1), ARCHIVE_DATE_FORMATTER);
+			}
+		} catch (DateTimeParseException e) {
+			// fall back to the modification time
+		}
+		return Instant.ofEpochMilli(lastModified(file)).atZone(ZoneId.systemDefault()).toLocalDate();
+	}
+
+	private long lastModified(Path file) {
+		try {
+			return Files.getLastModifiedTime(file).toMillis();
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	private long sizeOf(Path file) {
+		try {
+			return Files.size(file);
+		} catch (IOException e) {
+			return 0;
+		}
+	}
+
+	/**
+	 * delete {@code dir} and its parents up to {@code root}, as long as they are
+	 * empty date directories of the time based rotation
+	 */
+	static void deleteEmptyDateDirectories(Path dir, Path root) {
+		while (dir != null && !dir.equals(root) && dir.startsWith(root)
+				&& dir.getFileName().toString().matches("[0-9]{2,4}")) {
+			String[] content = dir.toFile().list();
+			if (content == null || content.length > 0 || !dir.toFile().delete()) {
+				return;
+			}
+			dir = dir.getParent();
+		}
+	}
+
+	private static void copy(InputStream in, OutputStream out, byte[] buffer) throws IOException {
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, read);
+		}
+	}
+}
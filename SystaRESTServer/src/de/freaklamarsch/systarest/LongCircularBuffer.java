@@ -0,0 +1,276 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A {@link CircularBuffer} for {@code long} values, e.g. timestamps. The values
+ * are stored in a {@code long[]}, so adding a value does not box it and reading
+ * the values does not follow a reference per element.
+ * <p>
+ * The overwrite semantics are the same as for {@link CircularBuffer}. As
+ * {@code null} can not be returned for primitive values, {@link #remove()},
+ * {@link #peek()} and {@link #end()} throw a {@link NoSuchElementException} if
+ * the buffer is empty.
+ * <p>
+ * This class is not thread-safe. External synchronization is required for
+ * concurrent access.
+ */
+public class LongCircularBuffer {
+	/** The default capacity of the buffer if no capacity is specified. */
+	private static final int DEFAULT_CAPACITY = 8;
+	/** The maximum number of elements the buffer can hold. */
+	private final int capacity;
+	/** The underlying array used to store elements in the buffer. */
+	private final long[] data;
+	/** The index where the next element will be written. */
+	private int writeIndex;
+	/** The index of the oldest element in the buffer. */
+	private int readIndex;
+	/** Determines whether the buffer overwrites the oldest element when full. */
+	private boolean overwrite;
+
+	/**
+	 * Creates a {@code LongCircularBuffer} with a capacity of {@code capacity}
+	 * elements.
+	 *
+	 * @param capacity number of elements that can be stored in the
+	 *                 {@code LongCircularBuffer}
+	 */
+	public LongCircularBuffer(int capacity) {
+		this.capacity = (capacity < 1) ? DEFAULT_CAPACITY : capacity;
+		this.data = new long[this.capacity];
+		this.readIndex = 0;
+		this.writeIndex = -1;
+		this.overwrite = false;
+	}
+
+	/**
+	 * Clears the buffer by resetting the read and write indices.
+	 */
+	public void clear() {
+		this.readIndex = 0;
+		this.writeIndex = -1;
+	}
+
+	/**
+	 * Adds an element to the buffer. If the buffer is full and {@link #overwrite}
+	 * is {@code true}, the oldest element is overwritten. If {@link #overwrite} is
+	 * {@code false}, the element is not added.
+	 *
+	 * @param element the element to add to the buffer
+	 * @return {@code true} if the element was added successfully; {@code false} if
+	 *         the buffer is full and overwriting is disabled
+	 */
+	public boolean add(long element) {
+		if (!isFull() || overwrite) {
+			data[slot(writeIndex + 1)] = element;
+			if (isFull()) {
+				readIndex++;
+			}
+			writeIndex++;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Adds all {@code elements} to the buffer, with the same semantics as
+	 * {@link CircularBuffer#addAll(Object[])}.
+	 *
+	 * @param elements the elements to add
+	 * @return the number of elements stored in the buffer
+	 */
+	public int addAll(long[] elements) {
+		int n = elements.length;
+		int offset = 0;
+		if (!overwrite) {
+			n = Math.min(n, capacity - size());
+		} else if (n > capacity) {
+			offset = n - capacity;
+			n = capacity;
+		}
+		if (n <= 0) {
+			return 0;
+		}
+		int start = slot(writeIndex + 1);
+		int firstPart = Math.min(n, capacity - start);
+		System.arraycopy(elements, offset, data, start, firstPart);
+		if (n > firstPart) {
+			System.arraycopy(elements, offset + firstPart, data, 0, n - firstPart);
+		}
+		int overwritten = size() + n - capacity;
+		if (overwritten > 0) {
+			readIndex += overwritten;
+		}
+		writeIndex += n;
+		return n;
+	}
+
+	/**
+	 * Removes and returns the oldest element from the buffer.
+	 *
+	 * @return the oldest element
+	 * @throws NoSuchElementException if the buffer is empty
+	 */
+	public long remove() {
+		long value = peek();
+		readIndex++;
+		return value;
+	}
+
+	/**
+	 * Returns the oldest element in the buffer without removing it.
+	 *
+	 * @return the oldest element
+	 * @throws NoSuchElementException if the buffer is empty
+	 */
+	public long peek() {
+		if (isEmpty()) {
+			throw new NoSuchElementException("buffer is empty");
+		}
+		return data[slot(readIndex)];
+	}
+
+	/**
+	 * Returns the newest element in the buffer without removing it.
+	 *
+	 * @return the newest element
+	 * @throws NoSuchElementException if the buffer is empty
+	 */
+	public long end() {
+		if (isEmpty()) {
+			throw new NoSuchElementException("buffer is empty");
+		}
+		return data[slot(writeIndex)];
+	}
+
+	/**
+	 * Returns the element at position {@code index} without removing it. Index
+	 * {@code 0} is the oldest element.
+	 *
+	 * @param index the position of the element
+	 * @return the element at {@code index}
+	 * @throws IndexOutOfBoundsException if {@code index} is not between {@code 0}
+	 *                                   and {@code size() - 1}
+	 */
+	public long get(int index) {
+		if (index < 0 || index >= size()) {
+			throw new IndexOutOfBoundsException("index " + index + " out of bounds for size " + size());
+		}
+		return data[slot(readIndex + index)];
+	}
+
+	/**
+	 * Copies the elements from position {@code from} (inclusive) to {@code to}
+	 * (exclusive) into a new array, without removing them.
+	 *
+	 * @param from the position of the first element to copy
+	 * @param to   the position after the last element to copy
+	 * @return a new array holding the elements
+	 * @throws IndexOutOfBoundsException if the range is not within the buffer
+	 */
+	public long[] toArray(int from, int to) {
+		if (from < 0 || to > size() || from > to) {
+			throw new IndexOutOfBoundsException("range " + from + ".." + to + " out of bounds for size " + size());
+		}
+		long[] result = new long[to - from];
+		copyTo(result, 0, from, to - from);
+		return result;
+	}
+
+	/**
+	 * Removes up to {@code target.length - offset} of the oldest elements and
+	 * copies them to {@code target}, starting at {@code offset}.
+	 *
+	 * @param target the array the elements are copied to
+	 * @param offset the position in {@code target} of the first element
+	 * @return the number of removed elements
+	 */
+	public int drainTo(long[] target, int offset) {
+		int n = Math.max(0, Math.min(target.length - offset, size()));
+		copyTo(target, offset, 0, n);
+		readIndex += n;
+		return n;
+	}
+
+	/**
+	 * @return the maximum number of elements the buffer can hold
+	 */
+	public int capacity() {
+		return capacity;
+	}
+
+	/**
+	 * @return the number of elements currently stored in the buffer
+	 */
+	public int size() {
+		return (writeIndex - readIndex) + 1;
+	}
+
+	/**
+	 * @param overwrite Set the overwrite behavior if an element is added to a full
+	 *                  buffer, see {@link CircularBuffer#setOverwrite(boolean)}
+	 */
+	public void setOverwrite(boolean overwrite) {
+		this.overwrite = overwrite;
+	}
+
+	/**
+	 * @return {@code true} if overwriting is enabled; {@code false} otherwise
+	 */
+	public boolean getOverwrite() {
+		return overwrite;
+	}
+
+	/**
+	 * @return {@code true} if the buffer is empty; {@code false} otherwise
+	 */
+	public boolean isEmpty() {
+		return writeIndex < readIndex;
+	}
+
+	/**
+	 * @return {@code true} if the buffer is full; {@code false} otherwise
+	 */
+	public boolean isFull() {
+		return size() >= capacity;
+	}
+
+	/**
+	 * copy {@code length} elements starting at position {@code from} with at most
+	 * two calls of {@link System#arraycopy}
+	 */
+	private void copyTo(long[] target, int offset, int from, int length) {
+		if (length <= 0) {
+			return;
+		}
+		int start = slot(readIndex + from);
+		int firstPart = Math.min(length, capacity - start);
+		System.arraycopy(data, start, target, offset, firstPart);
+		if (length > firstPart) {
+			System.arraycopy(data, 0, target, offset + firstPart, length - firstPart);
+		}
+	}
+
+	private int slot(int sequence) {
+		return sequence % capacity;
+	}
+}
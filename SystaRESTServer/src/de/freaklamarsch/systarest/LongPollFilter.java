@@ -0,0 +1,89 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.IOException;
+import java.util.regex.Pattern;
+
+import jakarta.ws.rs.container.ContainerRequestContext;
+import jakarta.ws.rs.container.ContainerRequestFilter;
+import jakarta.ws.rs.container.PreMatching;
+import jakarta.ws.rs.core.Configuration;
+import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.ext.Provider;
+
+/**
+ * A filter that routes the requests of {@code /rawdata}, {@code /waterheater}
+ * and {@code /status} with {@code waitForNewerThan} to the suspended resource
+ * methods of {@link SystaRESTAPI}, see {@link SnapshotLongPoll}. All other
+ * requests of these endpoints are answered synchronously.
+ *
+ * <p>Requests can only be suspended if the HTTP engine supports it, which is
+ * not the case for the {@code jdk} engine. If {@link #PROP_ASYNC_SUPPORTED} is
+ * set to {@code false}, long polls and Server-Sent Events are answered with
+ * {@code 501 Not Implemented}.</p>
+ */
+@Provider
+@PreMatching
+public class LongPollFilter implements ContainerRequestFilter {
+
+	/** set to {@code false} by the {@link HttpEngine} if requests can not be suspended */
+	public static final String PROP_ASYNC_SUPPORTED = "de.freaklamarsch.systarest.AsyncSupported";
+	/** path segment appended to the endpoints for waiting for newer data */
+	public static final String LONG_POLL_PATH = "longpoll";
+	private static final String WAIT_PARAMETER = "waitForNewerThan";
+	private static final Pattern LONG_POLL_ENDPOINT = Pattern
+			.compile("(?i)/?systarest/(rawdata|waterheater|status)/?");
+	private static final Pattern STREAM_ENDPOINT = Pattern.compile("(?i)/?systarest/stream(/.*)?");
+
+	@Context
+	private Configuration configuration;
+
+	/**
+	 * Routes long polls to the suspended resource methods.
+	 *
+	 * @param requestContext the context of the incoming HTTP request
+	 * @throws IOException if an I/O error occurs
+	 */
+	@Override
+	public void filter(ContainerRequestContext requestContext) throws IOException {
+		String path = requestContext.getUriInfo().getPath();
+		boolean longPoll = requestContext.getUriInfo().getQueryParameters().containsKey(WAIT_PARAMETER)
+				&& LONG_POLL_ENDPOINT.matcher(path).matches();
+		if (!longPoll && !STREAM_ENDPOINT.matcher(path).matches()) {
+			return;
+		}
+		if (!isAsyncSupported()) {
+			requestContext.abortWith(Response.status(Response.Status.NOT_IMPLEMENTED).type(MediaType.TEXT_PLAIN)
+					.entity("long polling and streaming need HTTP_ENGINE=grizzly").build());
+			return;
+		}
+		if (longPoll) {
+			requestContext.setRequestUri(
+					requestContext.getUriInfo().getRequestUriBuilder().path(LONG_POLL_PATH).build());
+		}
+	}
+
+	private boolean isAsyncSupported() {
+		Object supported = (configuration == null) ? null : configuration.getProperty(PROP_ASYNC_SUPPORTED);
+		return supported == null || Boolean.parseBoolean(supported.toString());
+	}
+}
@@ -18,24 +18,33 @@
 */
 package de.freaklamarsch.systarest;
 
+import java.awt.AWTError;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import javax.imageio.ImageIO;
 
+import de.freaklamarsch.systarest.AutomationJobs.AutomationJobStatus;
+import de.freaklamarsch.systarest.AutomationJobs.Job;
 import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
 import de.freaklamarsch.systarest.FakeSTouch.ConnectionStatus;
 import de.freaklamarsch.systarest.FakeSTouchDisplay.DisplayButton;
 import de.freaklamarsch.systarest.FakeSTouchDisplay.DisplayText;
 import jakarta.json.Json;
+import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.core.Context;
@@ -53,28 +62,64 @@ import jakarta.ws.rs.core.UriInfo;
 @Path("{stouchrest : (?i)stouchrest}")
 public class STouchRESTAPI {
 
-	/** The instance of the FakeSTouch device used for emulation. */
+	/**
+	 * The instance of the FakeSTouch device used for emulation. It is created with
+	 * the first request to this API, most installations never use it.
+	 */
 	private static FakeSTouch fst = null;
+	/**
+	 * The jobs executing the automations, one after the other
+	 */
+	private static AutomationJobs jobs = null;
+	/**
+	 * maximum time in milliseconds an automation waits for the screen to be redrawn
+	 * after each command
+	 */
+	static final long DISPLAY_TIMEOUT_MILLIS = 2000;
+	/**
+	 * time in milliseconds without display commands, after which the screen is
+	 * considered redrawn
+	 */
+	static final long DISPLAY_SETTLE_MILLIS = 250;
 
 	public STouchRESTAPI() {
-		if (fst == null) {
-			fst = new FakeSTouch();
+		synchronized (STouchRESTAPI.class) {
+			if (fst == null) {
+				fst = new FakeSTouch();
+				jobs = new AutomationJobs();
+			}
 		}
 	}
 
 	/**
-	 * Establishes a connection to the SystaComfort unit.
+	 * Establishes a connection to the SystaComfort unit. Like all commands that
+	 * change the session of the S-Touch app, it is executed as job, after the
+	 * automations submitted before.
 	 *
 	 * @return a {@link Response} indicating the result of the connection attempt
 	 */
 	@POST
 	@Path("{connect : (?i)connect}")
 	public Response connect() {
-		ConnectionStatus state = null;
+		return runAsJob("connect", this::connectNow);
+	}
+
+	private Response connectNow() {
+		ConnectionStatus state;
 		try {
 			state = fst.connect();
-		} catch (IOException | InterruptedException e) {
+		} catch (InterruptedException e) {
+			// the job has been cancelled
+			Thread.currentThread().interrupt();
+			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Connection attempt interrupted")
+					.build();
+		} catch (IOException e) {
 			e.printStackTrace();
+			return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
+					.entity("Exception occurred when connecting: " + e.getMessage()).build();
+		}
+		if (state == null) {
+			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Unknown error").build();
 		}
 		switch (state) {
 		case SUCCESS:
@@ -126,6 +171,10 @@ public class STouchRESTAPI {
 	@POST
 	@Path("{disconnect : (?i)disconnect}")
 	public Response disconnect() {
+		return runAsJob("disconnect", this::disconnectNow);
+	}
+
+	private Response disconnectNow() {
 		try {
 			fst.disconnect();
 		} catch (IOException e) {
@@ -147,6 +196,10 @@ public class STouchRESTAPI {
 	@POST
 	@Path("{touch : (?i)touch}")
 	public Response touch(@QueryParam("x") int x, @QueryParam("y") int y) {
+		return runAsJob("touch=" + x + "," + y, () -> touchNow(x, y));
+	}
+
+	private Response touchNow(int x, int y) {
 		fst.touch(x, y);
 		return Response.ok().build();
 	}
@@ -161,17 +214,40 @@ public class STouchRESTAPI {
 	@Produces("image/png")
 	public Response getScreen() {
 		try {
-			BufferedImage image = fst.getScreenAsImage();
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			ImageIO.write(image, "png", baos);
-			byte[] imageData = baos.toByteArray();
-
-			return Response.ok(imageData).build();
+			return Response.ok(getScreenAsPNG()).build();
+		} catch (AWTError | LinkageError e) {
+			return screenNotAvailable(e);
 		} catch (IOException e) {
 			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error processing image").build();
 		}
 	}
 
+	/**
+	 * Renders the current screen as PNG image.
+	 *
+	 * @return the PNG image
+	 * @throws IOException   if the image could not be encoded
+	 * @throws AWTError      if the Java runtime can not render images, e.g. a
+	 *                       headless runtime without fonts
+	 * @throws LinkageError  if the native libraries for rendering are missing
+	 */
+	private static byte[] getScreenAsPNG() throws IOException {
+		BufferedImage image = fst.getScreenAsImage();
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		ImageIO.write(image, "png", baos);
+		return baos.toByteArray();
+	}
+
+	/**
+	 * @param e the reason why the screen could not be rendered
+	 * @return a {@link Response} with status {@code 503 Service Unavailable}
+	 */
+	private static Response screenNotAvailable(Error e) {
+		System.out.println("[STouchRESTAPI] screen can not be rendered: " + e);
+		return Response.status(Response.Status.SERVICE_UNAVAILABLE)
+				.entity("The screen can not be rendered by this Java runtime: " + e).build();
+	}
+
 	/**
 	 * Returns an interactive HTML page for debugging touch events on the screen.
 	 *
@@ -204,10 +280,7 @@ public class STouchRESTAPI {
 			}
 
 			// Convert the image to Base64 format to embed in the HTML
-			BufferedImage image = fst.getScreenAsImage();
-			ByteArrayOutputStream baos = new ByteArrayOutputStream();
-			ImageIO.write(image, "png", baos);
-			byte[] imageData = baos.toByteArray();
+			byte[] imageData = getScreenAsPNG();
 			String base64Image = java.util.Base64.getEncoder().encodeToString(imageData);
 
 			// Build the HTML content as a plain String
@@ -241,6 +314,8 @@ public class STouchRESTAPI {
 			// Return the HTML response
 			return Response.ok(html).build();
 
+		} catch (AWTError | LinkageError e) {
+			return screenNotAvailable(e);
 		} catch (IOException e) {
 			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Error processing image").build();
 		}
@@ -256,6 +331,10 @@ public class STouchRESTAPI {
 	@POST
 	@Path("{touchbutton : (?i)touchbutton}")
 	public Response touchButton(@QueryParam("id") byte buttonId) {
+		return runAsJob("touchButton=" + buttonId, () -> touchButtonNow(buttonId));
+	}
+
+	private Response touchButtonNow(byte buttonId) {
 		try {
 			boolean success = fst.getDisplay().pushButton(buttonId);
 			if (success) {
@@ -274,6 +353,10 @@ public class STouchRESTAPI {
 	@POST
 	@Path("{touchtext : (?i)touchtext}")
 	public Response touchText(@QueryParam("text") String text) {
+		return runAsJob("touchText=" + text, () -> touchTextNow(text));
+	}
+
+	private Response touchTextNow(String text) {
 		try {
 			boolean success = fst.getDisplay().touchText(text);
 			if (success) {
@@ -290,7 +373,9 @@ public class STouchRESTAPI {
 	}
 
 	/**
-	 * Executes a sequence of commands provided as query parameters.
+	 * Executes a sequence of commands provided as query parameters. The request
+	 * returns when the automation has finished, which can take minutes. Use
+	 * {@link #submitJob(UriInfo)} for executing it in the background.
 	 *
 	 * @param uriInfo uriInfo is parsed to retrieve the query parameters, which are
 	 *                the commands that assemble the automation. Supported commands
@@ -315,8 +400,170 @@ public class STouchRESTAPI {
 	@GET
 	@Path("{automation : (?i)automation}")
 	public Response automation(@Context UriInfo uriInfo) {
+		Job job = submit(uriInfo);
+		AutomationJobStatus status;
+		try {
+			status = jobs.await(job);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Execution interrupted.").build();
+		}
+		switch (status.state) {
+		case SUCCEEDED:
+			return Response.ok("Automation executed successfully").build();
+		case CANCELLED:
+			return Response.status(Response.Status.CONFLICT).entity(status.message).build();
+		default:
+			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(status.message).build();
+		}
+	}
+
+	/**
+	 * Submits a sequence of commands provided as query parameters as job, see
+	 * {@link #automation(UriInfo)} for the supported commands. The jobs are
+	 * executed one after the other.
+	 *
+	 * @param uriInfo uriInfo is parsed to retrieve the query parameters, which are
+	 *                the commands that assemble the automation
+	 * @return a {@link Response} with status {@code 202 Accepted}, holding the
+	 *         status of the job as JSON and its location
+	 */
+	@POST
+	@Path("{jobs : (?i)jobs}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response submitJob(@Context UriInfo uriInfo) {
+		Job job = submit(uriInfo);
+		AutomationJobStatus status = job.getStatus();
+		return Response.accepted(toJson(status)).location(uriInfo.getAbsolutePathBuilder().path(status.id).build())
+				.build();
+	}
+
+	/**
+	 * @return a {@link Response} holding the status of all known jobs as JSON
+	 */
+	@GET
+	@Path("{jobs : (?i)jobs}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getJobs() {
+		JsonArrayBuilder array = Json.createArrayBuilder();
+		for (AutomationJobStatus status : jobs.getStatus()) {
+			array.add(toJson(status));
+		}
+		return Response.ok(array.build()).build();
+	}
+
+	/**
+	 * @param id the id of the job
+	 * @return a {@link Response} holding the status of the job as JSON, including
+	 *         the currently executed command
+	 */
+	@GET
+	@Path("{jobs : (?i)jobs}/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getJob(@PathParam("id") String id) {
+		AutomationJobStatus status = jobs.getStatus(id);
+		if (status == null) {
+			return jobNotFound(id);
+		}
+		return Response.ok(toJson(status)).build();
+	}
+
+	/**
+	 * Cancels a job. A running job is stopped before its next command.
+	 *
+	 * @param id the id of the job
+	 * @return a {@link Response} holding the status of the job as JSON
+	 */
+	@DELETE
+	@Path("{jobs : (?i)jobs}/{id}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response cancelJob(@PathParam("id") String id) {
+		try {
+			AutomationJobStatus status = jobs.cancel(id);
+			if (status == null) {
+				return jobNotFound(id);
+			}
+			return Response.ok(toJson(status)).build();
+		} catch (IllegalStateException e) {
+			return Response.status(Response.Status.CONFLICT).type(MediaType.TEXT_PLAIN).entity(e.getMessage())
+					.build();
+		}
+	}
+
+	private static Response jobNotFound(String id) {
+		return Response.status(Response.Status.NOT_FOUND).type(MediaType.TEXT_PLAIN)
+				.entity("Job with ID " + id + " not found").build();
+	}
+
+	private static JsonObject toJson(AutomationJobStatus status) {
+		JsonObjectBuilder builder = Json.createObjectBuilder().add("id", status.id)
+				.add("state", status.state.toString()).add("step", status.step).add("steps", status.steps);
+		if (status.command == null) {
+			builder.addNull("command");
+		} else {
+			builder.add("command", status.command);
+		}
+		if (status.message == null) {
+			builder.addNull("message");
+		} else {
+			builder.add("message", status.message);
+		}
+		return builder.add("submitted", status.submitted).add("started", status.started)
+				.add("finished", status.finished).build();
+	}
+
+	/**
+	 * execute a single command that changes the session of the S-Touch app as job,
+	 * so it is not interleaved with the commands of a running automation, and wait
+	 * for its result
+	 *
+	 * @param command the command, for reporting the status of the job
+	 * @param action  executes the command on the thread of the
+	 *                {@link AutomationJobs}
+	 * @return the {@link Response} of {@code action}, or an error if the job has
+	 *         been cancelled or failed
+	 */
+	private Response runAsJob(String command, Supplier<Response> action) {
+		AtomicReference<Response> result = new AtomicReference<>();
+		Job job = jobs.submit(new String[] { command }, j -> {
+			j.step(0, command);
+			result.set(action.get());
+			return null;
+		});
+		AutomationJobStatus status;
+		try {
+			status = jobs.await(job);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity("Execution interrupted.").build();
+		}
+		switch (status.state) {
+		case SUCCEEDED:
+			return result.get();
+		case CANCELLED:
+			return Response.status(Response.Status.CONFLICT).entity(status.message).build();
+		default:
+			return Response.status(Response.Status.INTERNAL_SERVER_ERROR).entity(status.message).build();
+		}
+	}
+
+	/**
+	 * submit the commands given as query parameters to the {@link AutomationJobs}
+	 */
+	private Job submit(UriInfo uriInfo) {
 		String query = uriInfo.getRequestUri().getQuery();
-		String[] commandArray = query.split("&");
+		String[] commandArray = (query == null) ? new String[0] : query.split("&");
+		return jobs.submit(commandArray, job -> runAutomation(commandArray, job));
+	}
+
+	/**
+	 * execute the commands of an automation, called by the thread of the
+	 * {@link AutomationJobs}
+	 *
+	 * @return {@code null} if all commands succeeded, or the reason why the
+	 *         automation failed
+	 */
+	private String runAutomation(String[] commandArray, Job job) {
 		boolean skipNext = false;
 
 		for (int i = 0; i < commandArray.length; i++) {
@@ -325,10 +572,11 @@ public class STouchRESTAPI {
 				skipNext = false;
 				continue;
 			}
+			job.step(i, command);
 			if (command.toLowerCase().startsWith("whiletext")) {
-				Response response = automationWhileTextCommand(commandArray, i);
-				if (response != null)
-					return response;
+				String failure = automationWhileTextCommand(commandArray, i, job);
+				if (failure != null)
+					return failure;
 				skipNext = true;
 				continue;
 			}
@@ -337,9 +585,9 @@ public class STouchRESTAPI {
 				continue;
 			}
 			if (command.toLowerCase().startsWith("whilebutton")) {
-				Response response = automationWhileButtonCommand(commandArray, i);
-				if (response != null)
-					return response;
+				String failure = automationWhileButtonCommand(commandArray, i, job);
+				if (failure != null)
+					return failure;
 				skipNext = true;
 				continue;
 			}
@@ -347,28 +595,29 @@ public class STouchRESTAPI {
 				skipNext = automationCheckButtonCommand(command);
 				continue;
 			}
+			long version = fst.getDisplay().getVersion();
 			Response response = automationExecuteCommand(command);
 			if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-				return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-						.entity("Command failed: " + command + ", Error: " + response.getEntity()).build();
+				return "Command failed: " + command + ", Error: " + response.getEntity();
 			}
-			sleepForTwoSeconds();
+			waitForDisplay(command, version);
 		}
-		return Response.ok("Automation executed successfully").build();
+		return null;
 	}
 
-	private Response automationWhileTextCommand(String[] commandArray, int i) {
+	private String automationWhileTextCommand(String[] commandArray, int i, Job job) {
 		String command = commandArray[i];
 		String searchText = extractComparisonValue(command, "whiletext");
 		boolean isEqualComparison = command.toLowerCase().startsWith("whiletext==");
 		DisplayText foundText = STouchRESTAPI.fst.getDisplay().findTextInObjectTree(searchText);
 		while ((isEqualComparison && foundText != null) || (!isEqualComparison && foundText == null)) {
+			job.step(i + 1, commandArray[i + 1]);
+			long version = fst.getDisplay().getVersion();
 			Response response = automationExecuteCommand(commandArray[i + 1]);
 			if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-				return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-						.entity("Command failed: " + command + ", Error: " + response.getEntity()).build();
+				return "Command failed: " + command + ", Error: " + response.getEntity();
 			}
-			sleepForTwoSeconds();
+			waitForDisplay(commandArray[i + 1], version);
 			foundText = STouchRESTAPI.fst.getDisplay().findTextInObjectTree(searchText);
 		}
 		return null;
@@ -381,18 +630,19 @@ public class STouchRESTAPI {
 		return isEqualComparison ? foundText == null : foundText != null;
 	}
 
-	private Response automationWhileButtonCommand(String[] commandArray, int i) {
+	private String automationWhileButtonCommand(String[] commandArray, int i, Job job) {
 		String command = commandArray[i];
 		Byte searchId = extractByteValue(command, "whilebutton");
 		boolean isEqualComparison = command.toLowerCase().startsWith("whilebutton==");
 		DisplayButton foundButton = STouchRESTAPI.fst.getDisplay().findButtonInObjectTree(searchId);
 		while ((isEqualComparison && foundButton != null) || (!isEqualComparison && foundButton == null)) {
+			job.step(i + 1, commandArray[i + 1]);
+			long version = fst.getDisplay().getVersion();
 			Response response = automationExecuteCommand(commandArray[i + 1]);
 			if (response.getStatus() != Response.Status.OK.getStatusCode()) {
-				return Response.status(Response.Status.INTERNAL_SERVER_ERROR)
-						.entity("Command failed: " + command + ", Error: " + response.getEntity()).build();
+				return "Command failed: " + command + ", Error: " + response.getEntity();
 			}
-			sleepForTwoSeconds();
+			waitForDisplay(commandArray[i + 1], version);
 			foundButton = STouchRESTAPI.fst.getDisplay().findButtonInObjectTree(searchId);
 		}
 		return null;
@@ -413,9 +663,20 @@ public class STouchRESTAPI {
 		return Byte.parseByte(command.substring((prefix + "??").length()));
 	}
 
-	private void sleepForTwoSeconds() {
+	/**
+	 * wait until the SystaComfort has redrawn the screen after {@code command},
+	 * but at most {@link #DISPLAY_TIMEOUT_MILLIS}
+	 *
+	 * @param command the executed command
+	 * @param version the version of the screen before the command was executed
+	 */
+	private void waitForDisplay(String command, long version) {
+		if (command.equalsIgnoreCase("disconnect")) {
+			// nothing is drawn after a disconnect
+			return;
+		}
 		try {
-			Thread.sleep(2000);
+			fst.getDisplay().awaitSettled(version, DISPLAY_SETTLE_MILLIS, DISPLAY_TIMEOUT_MILLIS);
 		} catch (InterruptedException e) {
 			Thread.currentThread().interrupt();
 			throw new RuntimeException("Execution interrupted.");
@@ -426,21 +687,21 @@ public class STouchRESTAPI {
 		if (command.equalsIgnoreCase("none")) {
 			return Response.ok().build();
 		} else if (command.equalsIgnoreCase("connect")) {
-			return connect();
+			return connectNow();
 		} else if (command.toLowerCase().startsWith("touchbutton")) {
 			String[] parts = command.split("=");
-			return touchButton(Byte.parseByte(parts[1]));
+			return touchButtonNow(Byte.parseByte(parts[1]));
 		} else if (command.toLowerCase().startsWith("touchtext")) {
 			String[] parts = command.split("=");
-			return touchText(parts[1]);
+			return touchTextNow(parts[1]);
 		} else if (command.toLowerCase().startsWith("touch")) {
 			String[] parts = command.split("=");
 			String[] coordinates = parts[1].split(",");
 			int x = Integer.parseInt(coordinates[0]);
 			int y = Integer.parseInt(coordinates[1]);
-			return touch(x, y);
+			return touchNow(x, y);
 		} else if (command.equalsIgnoreCase("disconnect")) {
-			return disconnect();
+			return disconnectNow();
 		} else {
 			return Response.status(Response.Status.BAD_REQUEST).entity("Unknown command: " + command).build();
 		}
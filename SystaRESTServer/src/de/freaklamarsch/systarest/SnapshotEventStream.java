@@ -0,0 +1,199 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+import de.freaklamarsch.systarest.SnapshotStore.Snapshot;
+import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.sse.OutboundSseEvent;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseBroadcaster;
+import jakarta.ws.rs.sse.SseEventSink;
+
+/**
+ * Pushes the data sets received by {@link FakeSystaWeb} as Server-Sent Events
+ * to all subscribed clients, instead of having every client poll for them.
+ * <p>
+ * There is one {@link SseBroadcaster} per representation, e.g. {@code status}.
+ * A dispatcher thread reads the {@link BroadcastRing} of {@link FakeSystaWeb}
+ * and, for each new data set, renders each representation with subscribers
+ * once and broadcasts the same event to all of them. Each client is written to
+ * through its own {@link SseEventSink}, clients that fail or disconnect are
+ * removed. If no data is received for {@link #HEARTBEAT_INTERVAL}, a comment is
+ * sent to keep the connections open through proxies.
+ */
+public class SnapshotEventStream {
+
+	/**
+	 * Inner class for representing the status of this @see SnapshotEventStream
+	 */
+	public static class SnapshotEventStreamStatus {
+		public final int clients;
+		public final long eventsSent;
+		public final long heartbeatsSent;
+
+		public SnapshotEventStreamStatus(int clients, long eventsSent, long heartbeatsSent) {
+			this.clients = clients;
+			this.eventsSent = eventsSent;
+			this.heartbeatsSent = heartbeatsSent;
+		}
+	}
+
+	/** time in milliseconds without data, after which a heartbeat is sent */
+	public static final long HEARTBEAT_INTERVAL = 30 * 1000L;
+	/** time in milliseconds a disconnected client should wait before reconnecting */
+	private static final long RECONNECT_DELAY = 5 * 1000L;
+
+	private final Sse sse;
+	private final BroadcastRing<Snapshot>.Cursor cursor;
+	private final Function<String, byte[]> renderer;
+	private final Map<String, SseBroadcaster> broadcasters = new ConcurrentHashMap<>();
+	private final Map<String, Set<SseEventSink>> sinks = new ConcurrentHashMap<>();
+	private final AtomicLong eventsSent = new AtomicLong();
+	private final AtomicLong heartbeatsSent = new AtomicLong();
+	private final Thread dispatcher;
+	private volatile long lastTimestamp = -1;
+
+	/**
+	 * Creates a {@code SnapshotEventStream} and starts its dispatcher thread
+	 *
+	 * @param sse       the {@link Sse} used for creating events and broadcasters
+	 * @param snapshots the {@link BroadcastRing} the received data sets are
+	 *                  published to
+	 * @param renderer  renders the UTF-8 encoded JSON of the given representation
+	 *                  for the last received data set
+	 */
+	public SnapshotEventStream(Sse sse, BroadcastRing<Snapshot> snapshots, Function<String, byte[]> renderer) {
+		this.sse = sse;
+		this.renderer = renderer;
+		Snapshot latest = snapshots.getLatest();
+		if (latest != null) {
+			lastTimestamp = latest.timestamp;
+		}
+		this.cursor = snapshots.subscribe("SnapshotEventStream");
+		this.dispatcher = new Thread(this::dispatch, "SnapshotEventStream");
+		this.dispatcher.setDaemon(true);
+		this.dispatcher.start();
+	}
+
+	/**
+	 * Subscribe a client to {@code representation}. If data has already been
+	 * received, the current representation is sent to the client right away. The
+	 * id of each event is the timestamp of its data set.
+	 *
+	 * @param representation name of the representation, e.g. {@code status}
+	 * @param sink           the {@link SseEventSink} of the client
+	 */
+	public void subscribe(String representation, SseEventSink sink) {
+		SseBroadcaster broadcaster = broadcasters.computeIfAbsent(representation, this::newBroadcaster);
+		Set<SseEventSink> clients = sinks.computeIfAbsent(representation, r -> ConcurrentHashMap.newKeySet());
+		// register before sending the current data, so no broadcast in between is
+		// missed. A client can get the same data twice, which it can detect by the
+		// event id
+		clients.add(sink);
+		broadcaster.register(sink);
+		long timestamp = lastTimestamp;
+		if (timestamp > 0) {
+			sink.send(newEvent(representation, timestamp));
+		}
+	}
+
+	/**
+	 * @return the status of this {@code SnapshotEventStream}
+	 */
+	public SnapshotEventStreamStatus getStatus() {
+		int clients = 0;
+		for (Set<SseEventSink> s : sinks.values()) {
+			clients += s.size();
+		}
+		return new SnapshotEventStreamStatus(clients, eventsSent.get(), heartbeatsSent.get());
+	}
+
+	private SseBroadcaster newBroadcaster(String representation) {
+		SseBroadcaster broadcaster = sse.newBroadcaster();
+		broadcaster.onClose(sink -> remove(representation, sink));
+		broadcaster.onError((sink, t) -> {
+			System.out.println("[SnapshotEventStream] " + representation + ": dropping client, " + t.getMessage());
+			sink.close();
+			remove(representation, sink);
+		});
+		return broadcaster;
+	}
+
+	private void remove(String representation, SseEventSink sink) {
+		Set<SseEventSink> clients = sinks.get(representation);
+		if (clients != null) {
+			clients.remove(sink);
+		}
+	}
+
+	private void dispatch() {
+		while (!Thread.currentThread().isInterrupted()) {
+			Snapshot snapshot = cursor.poll(HEARTBEAT_INTERVAL);
+			if (snapshot == null) {
+				heartbeat();
+				continue;
+			}
+			// only the newest data set is sent, if more have been received in the meantime
+			Snapshot newer;
+			while ((newer = cursor.poll()) != null) {
+				snapshot = newer;
+			}
+			lastTimestamp = snapshot.timestamp;
+			for (Map.Entry<String, SseBroadcaster> entry : broadcasters.entrySet()) {
+				Set<SseEventSink> clients = sinks.get(entry.getKey());
+				if (clients == null || clients.isEmpty()) {
+					// nobody is listening, so do not render this representation
+					continue;
+				}
+				try {
+					entry.getValue().broadcast(newEvent(entry.getKey(), snapshot.timestamp));
+					eventsSent.incrementAndGet();
+				} catch (Exception e) {
+					System.out.println("[SnapshotEventStream] dispatch: could not send " + entry.getKey());
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private void heartbeat() {
+		OutboundSseEvent event = sse.newEventBuilder().comment("heartbeat").build();
+		for (Map.Entry<String, SseBroadcaster> entry : broadcasters.entrySet()) {
+			Set<SseEventSink> clients = sinks.get(entry.getKey());
+			if (clients != null && !clients.isEmpty()) {
+				entry.getValue().broadcast(event);
+				heartbeatsSent.incrementAndGet();
+			}
+		}
+	}
+
+	private OutboundSseEvent newEvent(String representation, long timestamp) {
+		String json = new String(renderer.apply(representation), StandardCharsets.UTF_8);
+		return sse.newEventBuilder().name(representation).id(Long.toString(timestamp))
+				.reconnectDelay(RECONNECT_DELAY).mediaType(MediaType.APPLICATION_JSON_TYPE).data(String.class, json)
+				.build();
+	}
+}
@@ -0,0 +1,186 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import de.freaklamarsch.systarest.SnapshotStore.Snapshot;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.core.Response;
+
+/**
+ * Parks requests that wait for data newer than a given timestamp, for clients
+ * that can not use the Server-Sent Events of {@link SnapshotEventStream}.
+ * <p>
+ * A parked request is a suspended {@link AsyncResponse}, so it does not hold a
+ * server thread while waiting. A dispatcher thread reads the
+ * {@link BroadcastRing} of {@link FakeSystaWeb} and resumes all parked requests
+ * waiting for data older than the newly received data set. Requests for which no
+ * new data is received within their timeout are answered with
+ * {@code 304 Not Modified}. The timeouts are handled here and not by the HTTP
+ * container, as the {@link com.sun.net.httpserver.HttpServer} used by
+ * {@link SystaRESTServer} does not support them.
+ */
+public class SnapshotLongPoll {
+
+	/**
+	 * Inner class for representing the status of this @see SnapshotLongPoll
+	 */
+	public static class SnapshotLongPollStatus {
+		public final int parked;
+		public final long completed;
+		public final long timedOut;
+
+		public SnapshotLongPollStatus(int parked, long completed, long timedOut) {
+			this.parked = parked;
+			this.completed = completed;
+			this.timedOut = timedOut;
+		}
+	}
+
+	/** maximum time in seconds a request can be parked */
+	public static final long MAX_TIMEOUT = 300;
+
+	/** a parked request */
+	private static class Waiter {
+		private final long newerThan;
+		private final AsyncResponse response;
+		private final Supplier<Response> reply;
+		private final AtomicBoolean done = new AtomicBoolean(false);
+		private volatile ScheduledFuture<?> timeout;
+
+		private Waiter(long newerThan, AsyncResponse response, Supplier<Response> reply) {
+			this.newerThan = newerThan;
+			this.response = response;
+			this.reply = reply;
+		}
+	}
+
+	private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+	private final BroadcastRing<Snapshot>.Cursor cursor;
+	private final ScheduledExecutorService timer;
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+	private volatile long lastTimestamp = -1;
+
+	/**
+	 * Creates a {@code SnapshotLongPoll} and starts its dispatcher thread
+	 *
+	 * @param snapshots the {@link BroadcastRing} the received data sets are
+	 *                  published to
+	 */
+	public SnapshotLongPoll(BroadcastRing<Snapshot> snapshots) {
+		Snapshot latest = snapshots.getLatest();
+		if (latest != null) {
+			lastTimestamp = latest.timestamp;
+		}
+		this.cursor = snapshots.subscribe("SnapshotLongPoll");
+		this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread t = new Thread(r, "SnapshotLongPoll-timeout");
+			t.setDaemon(true);
+			return t;
+		});
+		Thread dispatcher = new Thread(this::dispatch, "SnapshotLongPoll");
+		dispatcher.setDaemon(true);
+		dispatcher.start();
+	}
+
+	/**
+	 * Answer {@code response} with {@code reply}, as soon as data newer than
+	 * {@code newerThan} has been received. If such data is already available, the
+	 * {@code response} is resumed right away.
+	 *
+	 * @param newerThan      timestamp in epoch milliseconds the data has to be
+	 *                       newer than
+	 * @param timeoutSeconds time in seconds after which the {@code response} is
+	 *                       answered with {@code 304 Not Modified}. Limited to
+	 *                       {@link #MAX_TIMEOUT}
+	 * @param response       the suspended response of the request
+	 * @param reply          creates the reply, once new data is available
+	 */
+	public void park(long newerThan, long timeoutSeconds, AsyncResponse response, Supplier<Response> reply) {
+		if (lastTimestamp > newerThan) {
+			response.resume(reply.get());
+			return;
+		}
+		Waiter w = new Waiter(newerThan, response, reply);
+		w.timeout = timer.schedule(() -> expire(w), Math.max(0, Math.min(timeoutSeconds, MAX_TIMEOUT)),
+				TimeUnit.SECONDS);
+		waiters.add(w);
+		// new data might have been received while parking
+		if (lastTimestamp > newerThan) {
+			complete(w);
+		}
+	}
+
+	/**
+	 * @return the status of this {@code SnapshotLongPoll}
+	 */
+	public SnapshotLongPollStatus getStatus() {
+		return new SnapshotLongPollStatus(waiters.size(), completed.get(), timedOut.get());
+	}
+
+	private void dispatch() {
+		while (!Thread.currentThread().isInterrupted()) {
+			Snapshot snapshot = cursor.poll(MAX_TIMEOUT * 1000);
+			if (snapshot == null) {
+				continue;
+			}
+			lastTimestamp = snapshot.timestamp;
+			for (Waiter w : waiters) {
+				if (w.newerThan < snapshot.timestamp) {
+					complete(w);
+				}
+			}
+		}
+	}
+
+	private void complete(Waiter w) {
+		if (!w.done.compareAndSet(false, true)) {
+			return;
+		}
+		waiters.remove(w);
+		w.timeout.cancel(false);
+		try {
+			w.response.resume(w.reply.get());
+			completed.incrementAndGet();
+		} catch (Exception e) {
+			System.out.println("[SnapshotLongPoll] complete: could not resume request");
+			e.printStackTrace();
+			w.response.resume(e);
+		}
+	}
+
+	private void expire(Waiter w) {
+		if (!w.done.compareAndSet(false, true)) {
+			return;
+		}
+		waiters.remove(w);
+		w.response.resume(Response.notModified().build());
+		timedOut.incrementAndGet();
+	}
+}
@@ -0,0 +1,122 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Reads and writes the last values received from the SystaComfort to a small
+ * binary file, so they can be served directly after a restart of the server.
+ * <p>
+ * The file holds a magic number, the format version, the timestamp of the
+ * values in epoch milliseconds, the number of values and the values as
+ * {@code int}. The file is written to a temporary file first and then moved in
+ * place, so a crash during the write never leaves a broken file behind.
+ */
+public class SnapshotStore {
+
+	/**
+	 * Inner class for representing a snapshot read from the file
+	 */
+	public static class Snapshot {
+		public final long timestamp;
+		public final Integer[] data;
+
+		public Snapshot(long timestamp, Integer[] data) {
+			this.timestamp = timestamp;
+			this.data = data;
+		}
+	}
+
+	// "SYST"
+	private static final int MAGIC = 0x53595354;
+	private static final int VERSION = 1;
+	// upper bound for the number of values, protects against reading garbage
+	private static final int MAX_VALUES = 1 << 16;
+
+	private SnapshotStore() {
+	}
+
+	/**
+	 * write a snapshot to {@code file}
+	 *
+	 * @param file      the file to write
+	 * @param timestamp epoch milliseconds of the values
+	 * @param data      the values, {@code null} entries are written as {@code 0}
+	 * @throws IOException if the file could not be written
+	 */
+	public static void write(Path file, long timestamp, Integer[] data) throws IOException {
+		Path dir = file.toAbsolutePath().getParent();
+		if (dir != null) {
+			Files.createDirectories(dir);
+		}
+		Path tmp = file.resolveSibling(file.getFileName() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeLong(timestamp);
+			out.writeInt(data.length);
+			for (Integer value : data) {
+				out.writeInt((value == null) ? 0 : value);
+			}
+		}
+		Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	/**
+	 * read a snapshot from {@code file}
+	 *
+	 * @param file the file to read
+	 * @return the snapshot, or {@code null} if the file does not exist or is not a
+	 *         valid snapshot file
+	 */
+	public static Snapshot read(Path file) {
+		if (!Files.isRegularFile(file)) {
+			return null;
+		}
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+			if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+				System.out.println("[SnapshotStore] read: " + file + " is not a valid snapshot file");
+				return null;
+			}
+			long timestamp = in.readLong();
+			int length = in.readInt();
+			if (length < 0 || length > MAX_VALUES) {
+				System.out.println("[SnapshotStore] read: invalid number of values in " + file + ": " + length);
+				return null;
+			}
+			Integer[] data = new Integer[length];
+			for (int i = 0; i < length; i++) {
+				data[i] = in.readInt();
+			}
+			return new Snapshot(timestamp, data);
+		} catch (IOException e) {
+			System.out.println("[SnapshotStore] read: could not read " + file);
+			e.printStackTrace();
+			return null;
+		}
+	}
+}
@@ -0,0 +1,257 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Collection;
+
+/*
+ * The fields of the SpscRingBuffer are spread over a small class hierarchy.
+ * The JVM lays out the fields of a super class before the fields of its sub
+ * classes, so the padding classes keep the producer owned tail and the consumer
+ * owned head on different cache lines. Without the padding, each write of one
+ * thread would invalidate the cache line the other thread is working on.
+ */
+abstract class SpscRingBufferPad0 {
+	long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class SpscRingBufferTail extends SpscRingBufferPad0 {
+	/** sequence of the next element written, only written by the producer */
+	long tail;
+	/** last seen value of head, only used by the producer */
+	long headCache;
+}
+
+abstract class SpscRingBufferPad1 extends SpscRingBufferTail {
+	long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class SpscRingBufferHead extends SpscRingBufferPad1 {
+	/** sequence of the next element read, only written by the consumer */
+	long head;
+	/** last seen value of tail, only used by the consumer */
+	long tailCache;
+}
+
+abstract class SpscRingBufferPad2 extends SpscRingBufferHead {
+	long p20, p21, p22, p23, p24, p25, p26, p27;
+}
+
+/**
+ * A lock-free ring buffer for exactly one producer thread and one consumer
+ * thread, e.g. for handing the received data from the UDP thread of
+ * {@link FakeSystaWeb} to a thread writing or publishing it.
+ * <p>
+ * The capacity is rounded up to a power of two, so the position of an element
+ * is calculated by masking its sequence number. Producer and consumer only
+ * share the head and tail sequences, which are published with release
+ * semantics and read with acquire semantics. Each side caches the last seen
+ * sequence of the other side and only reads it again if the cached value
+ * indicates that the buffer is full, respectively empty.
+ * <p>
+ * In contrast to {@link CircularBuffer}, this class never overwrites elements.
+ * {@link #offer(Object)} returns {@code false} if the buffer is full.
+ * <p>
+ * {@link #offer(Object)} must only be called by the producer thread. All other
+ * methods except {@link #size()}, {@link #isEmpty()} and {@link #capacity()}
+ * must only be called by the consumer thread.
+ *
+ * @param <E> the type of elements stored in the buffer
+ */
+public class SpscRingBuffer<E> extends SpscRingBufferPad2 {
+	/** The maximum capacity of a {@code SpscRingBuffer} */
+	public static final int MAX_CAPACITY = 1 << 30;
+	private static final VarHandle HEAD;
+	private static final VarHandle TAIL;
+	static {
+		try {
+			MethodHandles.Lookup lookup = MethodHandles.lookup();
+			HEAD = lookup.findVarHandle(SpscRingBufferHead.class, "head", long.class);
+			TAIL = lookup.findVarHandle(SpscRingBufferTail.class, "tail", long.class);
+		} catch (ReflectiveOperationException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+
+	private final E[] buffer;
+	private final int mask;
+
+	/**
+	 * Creates a {@code SpscRingBuffer} that can hold at least {@code capacity}
+	 * elements. The capacity is rounded up to the next power of two.
+	 *
+	 * @param capacity the minimum number of elements that can be stored
+	 * @throws IllegalArgumentException if {@code capacity} is smaller than 1 or
+	 *                                  larger than {@link #MAX_CAPACITY}
+	 */
+	@SuppressWarnings("unchecked")
+	public SpscRingBuffer(int capacity) {
+		if (capacity < 1 || capacity > MAX_CAPACITY) {
+			throw new IllegalArgumentException("capacity has to be between 1 and " + MAX_CAPACITY + ": " + capacity);
+		}
+		int size = (capacity == 1) ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+		this.buffer = (E[]) new Object[size];
+		this.mask = size - 1;
+	}
+
+	/**
+	 * Adds an element to the buffer. Must only be called by the producer thread.
+	 *
+	 * @param element the element to add
+	 * @return {@code true} if the element was added, {@code false} if the buffer is
+	 *         full
+	 * @throws NullPointerException if {@code element} is {@code null}
+	 */
+	public boolean offer(E element) {
+		if (element == null) {
+			throw new NullPointerException("null elements are not supported");
+		}
+		long t = tail;
+		if (t - headCache >= buffer.length) {
+			headCache = (long) HEAD.getAcquire(this);
+			if (t - headCache >= buffer.length) {
+				return false;
+			}
+		}
+		buffer[(int) t & mask] = element;
+		TAIL.setRelease(this, t + 1);
+		return true;
+	}
+
+	/**
+	 * Removes and returns the oldest element. Must only be called by the consumer
+	 * thread.
+	 *
+	 * @return the oldest element, or {@code null} if the buffer is empty
+	 */
+	public E poll() {
+		long h = head;
+		if (h >= tailCache) {
+			tailCache = (long) TAIL.getAcquire(this);
+			if (h >= tailCache) {
+				return null;
+			}
+		}
+		int index = (int) h & mask;
+		E element = buffer[index];
+		// release the reference, so the element can be garbage collected
+		buffer[index] = null;
+		HEAD.setRelease(this, h + 1);
+		return element;
+	}
+
+	/**
+	 * Returns the oldest element without removing it. Must only be called by the
+	 * consumer thread.
+	 *
+	 * @return the oldest element, or {@code null} if the buffer is empty
+	 */
+	public E peek() {
+		long h = head;
+		if (h >= tailCache) {
+			tailCache = (long) TAIL.getAcquire(this);
+			if (h >= tailCache) {
+				return null;
+			}
+		}
+		return buffer[(int) h & mask];
+	}
+
+	/**
+	 * Copies up to {@code maxElements} of the oldest elements to {@code target},
+	 * without removing them. Must only be called by the consumer thread.
+	 *
+	 * @param target      the collection the elements are added to
+	 * @param maxElements the maximum number of elements to copy
+	 * @return the number of copied elements
+	 */
+	public int peek(Collection<? super E> target, int maxElements) {
+		long h = head;
+		int n = available(h, maxElements);
+		for (int i = 0; i < n; i++) {
+			target.add(buffer[(int) (h + i) & mask]);
+		}
+		return n;
+	}
+
+	/**
+	 * Removes up to {@code maxElements} of the oldest elements and adds them to
+	 * {@code target}. The head is published only once for all elements. Must only
+	 * be called by the consumer thread.
+	 *
+	 * @param target      the collection the elements are added to
+	 * @param maxElements the maximum number of elements to remove
+	 * @return the number of removed elements
+	 */
+	public int drainTo(Collection<? super E> target, int maxElements) {
+		long h = head;
+		int n = available(h, maxElements);
+		for (int i = 0; i < n; i++) {
+			int index = (int) (h + i) & mask;
+			target.add(buffer[index]);
+			buffer[index] = null;
+		}
+		if (n > 0) {
+			HEAD.setRelease(this, h + n);
+		}
+		return n;
+	}
+
+	/**
+	 * Returns the number of elements in the buffer. If called concurrently to the
+	 * producer or consumer, this is only an estimate.
+	 *
+	 * @return the number of elements in the buffer
+	 */
+	public int size() {
+		long h = (long) HEAD.getAcquire(this);
+		long t = (long) TAIL.getAcquire(this);
+		return (int) Math.max(0, Math.min(t - h, buffer.length));
+	}
+
+	/**
+	 * @return {@code true} if the buffer holds no elements
+	 */
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+
+	/**
+	 * @return the maximum number of elements the buffer can hold
+	 */
+	public int capacity() {
+		return buffer.length;
+	}
+
+	/**
+	 * @return the number of elements that can be read from {@code h}, but not
+	 *         more than {@code maxElements}
+	 */
+	private int available(long h, int maxElements) {
+		if (maxElements <= 0) {
+			return 0;
+		}
+		if (h + maxElements > tailCache) {
+			tailCache = (long) TAIL.getAcquire(this);
+		}
+		return (int) Math.min(tailCache - h, maxElements);
+	}
+}
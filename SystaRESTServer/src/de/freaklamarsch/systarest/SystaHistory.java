@@ -0,0 +1,244 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * In-memory history of the values received from the SystaComfort. The history
+ * keeps the averages of the first {@link #HISTORY_FIELDS} values of each
+ * snapshot in three resolutions:
+ * <ul>
+ * <li>{@link Resolution#MINUTE} for the last 24 hours,</li>
+ * <li>{@link Resolution#HOUR} for the last 90 days,</li>
+ * <li>{@link Resolution#DAY} for the last 10 years.</li>
+ * </ul>
+ * Each resolution is a fixed size ring of buckets, indexed by the start time of
+ * the bucket. Entries can therefore be added in any order, e.g. by the
+ * {@link HistoryImporter} while live data is received. The values of a bucket
+ * are allocated when it receives its first entry and are reused afterwards,
+ * so an unused history only costs the bucket index.
+ */
+public class SystaHistory {
+
+	/**
+	 * The resolutions provided by the {@code SystaHistory}
+	 */
+	public enum Resolution {
+		MINUTE(60_000L, 24 * 60), HOUR(3_600_000L, 90 * 24), DAY(86_400_000L, 3660);
+
+		/** length of a bucket in milliseconds */
+		public final long bucketLength;
+		/** number of buckets kept for this resolution */
+		public final int capacity;
+
+		Resolution(long bucketLength, int capacity) {
+			this.bucketLength = bucketLength;
+			this.capacity = capacity;
+		}
+	}
+
+	/**
+	 * Inner class for representing the result of a query to the
+	 * {@code SystaHistory}
+	 */
+	public static class HistorySeries {
+		public final Resolution resolution;
+		public final int[] indices;
+		/** start of each returned bucket in epoch milliseconds */
+		public final long[] timestamps;
+		/** the averages of the values, {@code values[bucket][index]} */
+		public final double[][] values;
+
+		public HistorySeries(Resolution resolution, int[] indices, long[] timestamps, double[][] values) {
+			this.resolution = resolution;
+			this.indices = indices;
+			this.timestamps = timestamps;
+			this.values = values;
+		}
+	}
+
+	/**
+	 * number of values stored per snapshot. All fields defined in
+	 * {@link SystaIndex} are below this index.
+	 */
+	public static final int HISTORY_FIELDS = 256;
+
+	private final Tier[] tiers;
+
+	public SystaHistory() {
+		tiers = new Tier[Resolution.values().length];
+		for (Resolution r : Resolution.values()) {
+			tiers[r.ordinal()] = new Tier(r);
+		}
+	}
+
+	/**
+	 * add a snapshot to all resolutions of the history
+	 *
+	 * @param timestamp epoch milliseconds of the snapshot
+	 * @param values    the values of the snapshot. Only the first
+	 *                  {@link #HISTORY_FIELDS} values are stored
+	 */
+	public void add(long timestamp, Integer[] values) {
+		int[] row = new int[Math.min(HISTORY_FIELDS, values.length)];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = (values[i] == null) ? 0 : values[i];
+		}
+		add(timestamp, row);
+	}
+
+	/**
+	 * add a snapshot to all resolutions of the history
+	 *
+	 * @param timestamp epoch milliseconds of the snapshot
+	 * @param values    the values of the snapshot. Only the first
+	 *                  {@link #HISTORY_FIELDS} values are stored
+	 */
+	public void add(long timestamp, int[] values) {
+		for (Tier tier : tiers) {
+			synchronized (tier) {
+				tier.add(timestamp, values);
+			}
+		}
+	}
+
+	/**
+	 * add several snapshots at once, each resolution is locked only once for all
+	 * snapshots
+	 *
+	 * @param timestamps epoch milliseconds of the snapshots
+	 * @param values     the values of the snapshots, {@code values[i]} belongs to
+	 *                   {@code timestamps[i]}
+	 */
+	public void addAll(long[] timestamps, int[][] values) {
+		for (Tier tier : tiers) {
+			synchronized (tier) {
+				for (int i = 0; i < timestamps.length; i++) {
+					tier.add(timestamps[i], values[i]);
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param resolution the resolution to query
+	 * @param from       epoch milliseconds, buckets starting before are skipped
+	 * @param to         epoch milliseconds, buckets starting after are skipped
+	 * @param indices    the indices to return, all {@link #HISTORY_FIELDS} if
+	 *                   {@code null} or empty
+	 * @return the buckets of {@code resolution} in the given time range, ordered
+	 *         by time
+	 */
+	public HistorySeries query(Resolution resolution, long from, long to, int[] indices) {
+		if (indices == null || indices.length == 0) {
+			indices = new int[HISTORY_FIELDS];
+			Arrays.setAll(indices, i -> i);
+		}
+		for (int index : indices) {
+			if (index < 0 || index >= HISTORY_FIELDS) {
+				throw new IllegalArgumentException("index " + index + " is not kept in the history");
+			}
+		}
+		Tier tier = tiers[resolution.ordinal()];
+		List<Integer> slots = new ArrayList<>();
+		synchronized (tier) {
+			for (int slot = 0; slot < tier.bucketStart.length; slot++) {
+				if (tier.count[slot] > 0 && tier.bucketStart[slot] >= from && tier.bucketStart[slot] <= to) {
+					slots.add(slot);
+				}
+			}
+			slots.sort(Comparator.comparingLong(slot -> tier.bucketStart[slot]));
+			long[] timestamps = new long[slots.size()];
+			double[][] values = new double[slots.size()][indices.length];
+			for (int b = 0; b < timestamps.length; b++) {
+				int slot = slots.get(b);
+				timestamps[b] = tier.bucketStart[slot];
+				for (int i = 0; i < indices.length; i++) {
+					values[b][i] = (double) tier.sum[slot][indices[i]] / tier.count[slot];
+				}
+			}
+			return new HistorySeries(resolution, indices, timestamps, values);
+		}
+	}
+
+	/**
+	 * @param resolution the resolution to check
+	 * @return the number of buckets of {@code resolution} holding data
+	 */
+	public int size(Resolution resolution) {
+		Tier tier = tiers[resolution.ordinal()];
+		synchronized (tier) {
+			int size = 0;
+			for (int c : tier.count) {
+				if (c > 0) {
+					size++;
+				}
+			}
+			return size;
+		}
+	}
+
+	/**
+	 * One resolution of the history. Access has to be synchronized on the
+	 * {@code Tier}.
+	 */
+	private static class Tier {
+		private final long bucketLength;
+		private final long[] bucketStart;
+		private final long[][] sum;
+		private final int[] count;
+
+		private Tier(Resolution resolution) {
+			this.bucketLength = resolution.bucketLength;
+			this.bucketStart = new long[resolution.capacity];
+			// rows are allocated by add() the first time a slot is used
+			this.sum = new long[resolution.capacity][];
+			this.count = new int[resolution.capacity];
+			Arrays.fill(bucketStart, Long.MIN_VALUE);
+		}
+
+		private void add(long timestamp, int[] values) {
+			long start = Math.floorDiv(timestamp, bucketLength) * bucketLength;
+			int slot = (int) Math.floorMod(Math.floorDiv(timestamp, bucketLength), (long) bucketStart.length);
+			if (bucketStart[slot] != start) {
+				if (bucketStart[slot] > start) {
+					// the slot already holds a newer bucket, this entry is too old to be kept
+					return;
+				}
+				// the slot holds an older bucket, reuse it for the new one
+				if (sum[slot] == null) {
+					sum[slot] = new long[HISTORY_FIELDS];
+				} else {
+					Arrays.fill(sum[slot], 0);
+				}
+				bucketStart[slot] = start;
+				count[slot] = 0;
+			}
+			int n = Math.min(values.length, HISTORY_FIELDS);
+			for (int i = 0; i < n; i++) {
+				sum[slot][i] += values[i];
+			}
+			count[slot]++;
+		}
+	}
+}
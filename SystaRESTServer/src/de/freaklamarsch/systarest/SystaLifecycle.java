@@ -0,0 +1,215 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Starts and stops the {@link FakeSystaWeb} used by {@link SystaRESTAPI}.
+ * <p>
+ * {@link SystaRESTServer} creates the {@code SystaLifecycle} and starts the
+ * communication with the SystaComfort in-process, while the HTTP server is
+ * still starting, so packets are received as early as possible after boot. The
+ * {@code SystaLifecycle} is handed to {@link SystaRESTAPI} with the property
+ * {@link SystaRESTAPI#PROP_LIFECYCLE}. If it is not set, e.g. in tests,
+ * {@link SystaRESTAPI} creates its own {@code SystaLifecycle} with the first
+ * request.
+ * <p>
+ * The time needed for each phase of the startup is recorded and shown by
+ * {@code /SystaREST/servicestatus}.
+ */
+public class SystaLifecycle {
+
+	/** time in milliseconds to wait for the socket to be opened or closed */
+	public static final long SOCKET_TIMEOUT = 5000;
+	/** name of the startup phase, opening the socket for the SystaComfort */
+	public static final String PHASE_UDP = "udp";
+
+	private final FakeSystaWeb fsw;
+	private final Map<String, Object> properties;
+	private final Map<String, Long> startupMillis = Collections.synchronizedMap(new LinkedHashMap<>());
+	private Thread thread = null;
+	private long startedAt = -1;
+
+	/**
+	 * @param fsw        the {@link FakeSystaWeb} to manage
+	 * @param properties the properties for configuring {@code fsw}, as set in the
+	 *                   {@code ResourceConfig} of {@link SystaRESTAPI}, e.g.
+	 *                   {@link SystaRESTAPI#PROP_PARADIGMA_IP}
+	 */
+	public SystaLifecycle(FakeSystaWeb fsw, Map<String, Object> properties) {
+		this.fsw = fsw;
+		this.properties = properties;
+	}
+
+	/**
+	 * @return the managed {@link FakeSystaWeb}
+	 */
+	public FakeSystaWeb getFakeSystaWeb() {
+		return fsw;
+	}
+
+	/**
+	 * configure the {@link FakeSystaWeb} with the properties and start it in its
+	 * own thread, if it is not running yet
+	 *
+	 * @return {@code true} if the {@link FakeSystaWeb} has been started,
+	 *         {@code false} if it is already running
+	 */
+	public synchronized boolean start() {
+		if (thread != null && thread.isAlive()) {
+			System.out.println("[SystaLifecycle] start: FakeSystaWeb is already running, ignoring request");
+			return false;
+		}
+		configure();
+		startedAt = System.currentTimeMillis();
+		// in Java you can start a thread only once, so we need a new one
+		thread = new Thread(fsw, "FakeSystaWeb");
+		thread.start();
+		System.out.println("[SystaLifecycle] start: FakeSystaWeb started");
+		return true;
+	}
+
+	/**
+	 * stop the {@link FakeSystaWeb} and wait until its socket is closed
+	 */
+	public synchronized void stop() {
+		if (thread == null || !thread.isAlive()) {
+			fsw.stop();
+			return;
+		}
+		// a stop request is lost, if it is sent before the socket is opened
+		awaitListening(SOCKET_TIMEOUT);
+		fsw.stop();
+		try {
+			thread.join(SOCKET_TIMEOUT);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		if (thread.isAlive()) {
+			System.out.println("[SystaLifecycle] stop: FakeSystaWeb did not stop within " + SOCKET_TIMEOUT + " ms");
+		} else {
+			System.out.println("[SystaLifecycle] stop: FakeSystaWeb stopped");
+		}
+	}
+
+	/**
+	 * wait until the {@link FakeSystaWeb} has opened its socket and record the
+	 * time needed as startup phase {@value #PHASE_UDP}
+	 *
+	 * @param timeoutMillis maximum time to wait in milliseconds
+	 * @return {@code true} if the socket is open
+	 */
+	public boolean awaitListening(long timeoutMillis) {
+		long deadline = System.currentTimeMillis() + timeoutMillis;
+		Thread t = thread;
+		while (fsw.getListeningSince() < 0) {
+			if (t == null || !t.isAlive() || System.currentTimeMillis() >= deadline) {
+				return false;
+			}
+			try {
+				Thread.sleep(5);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return false;
+			}
+		}
+		long listeningSince = fsw.getListeningSince();
+		if (listeningSince >= startedAt && !startupMillis.containsKey(PHASE_UDP)) {
+			startupMillis.put(PHASE_UDP, listeningSince - startedAt);
+		}
+		return fsw.getListeningSince() >= 0;
+	}
+
+	/**
+	 * record the time needed for a phase of the startup
+	 *
+	 * @param phase  name of the phase, e.g. {@code http}
+	 * @param millis time needed in milliseconds
+	 */
+	public void recordStartupPhase(String phase, long millis) {
+		startupMillis.put(phase, millis);
+	}
+
+	/**
+	 * @return the time in milliseconds needed for each recorded phase of the
+	 *         startup, in the order they have been recorded
+	 */
+	public Map<String, Long> getStartupMillis() {
+		synchronized (startupMillis) {
+			return new LinkedHashMap<>(startupMillis);
+		}
+	}
+
+	/**
+	 * configure the {@link FakeSystaWeb} from the properties
+	 */
+	private void configure() {
+		Object confInetAddress = properties.get(SystaRESTAPI.PROP_PARADIGMA_IP);
+		System.out.println("[SystaLifecycle] start: Configuring FakeSystaWeb to listen on IP " + confInetAddress);
+		if (confInetAddress instanceof String) {
+			fsw.setInetAddress((String) confInetAddress);
+		}
+		// Set custom log directory if provided in config
+		Object logDirPath = properties.get(SystaRESTAPI.PROP_LOG_DIR);
+		if (logDirPath instanceof String && !((String) logDirPath).isEmpty()) {
+			System.out.println("[SystaLifecycle] start: Setting custom log directory: " + logDirPath);
+			fsw.setLogFileRootPath((String) logDirPath);
+		}
+		// configure the limits for the log directory
+		long maxBytes = getLongProperty(SystaRESTAPI.PROP_LOG_MAX_BYTES, LogRetentionService.DEFAULT_MAX_BYTES);
+		int maxAgeDays = (int) getLongProperty(SystaRESTAPI.PROP_LOG_MAX_AGE_DAYS,
+				LogRetentionService.DEFAULT_MAX_AGE_DAYS);
+		fsw.setLogRetention(maxBytes, maxAgeDays);
+		Object historyImport = properties.get(SystaRESTAPI.PROP_HISTORY_IMPORT);
+		if (historyImport != null) {
+			fsw.setImportHistory(Boolean.parseBoolean(historyImport.toString().trim()));
+		}
+		// keep a registry of the SystaComfort units, instead of searching on demand
+		Object deviceTouchListener = properties.get(SystaRESTAPI.PROP_DEVICE_TOUCH_LISTENER);
+		if (deviceTouchListener != null && Boolean.parseBoolean(deviceTouchListener.toString().trim())) {
+			DeviceTouchDiscovery.getInstance().startListener();
+		}
+	}
+
+	/**
+	 * helper function for reading numeric properties, that might be given as
+	 * {@code String} or {@code Number}
+	 *
+	 * @param name         name of the property
+	 * @param defaultValue value returned if the property is not set or invalid
+	 * @return the value of the property or {@code defaultValue}
+	 */
+	private long getLongProperty(String name, long defaultValue) {
+		Object value = properties.get(name);
+		if (value instanceof Number) {
+			return ((Number) value).longValue();
+		}
+		if (value instanceof String) {
+			try {
+				return Long.parseLong(((String) value).trim());
+			} catch (NumberFormatException e) {
+				System.out.println("[SystaLifecycle] invalid value for " + name + ": " + value);
+			}
+		}
+		return defaultValue;
+	}
+}
@@ -0,0 +1,273 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest;
+
+import java.nio.charset.StandardCharsets;
+
+import de.freaklamarsch.systarest.DataLogger.DataLoggerStatus;
+import de.freaklamarsch.systarest.FakeSystaWeb.FakeSystaWebStatus;
+import de.freaklamarsch.systarest.SnapshotStore.Snapshot;
+
+/**
+ * Renders the values received from the SystaComfort and the counters of
+ * {@link FakeSystaWeb} and its {@link DataLogger}s in the Prometheus text
+ * exposition format, so they can be scraped without converting the JSON of
+ * {@code /status}.
+ * <p>
+ * Each value of {@link SystaIndex} that is decoded by
+ * {@link FakeSystaWeb#getParadigmaStatus()} is exported as gauge named like the
+ * field of {@code /status}, e.g. {@code systa_outside_temp} for
+ * {@code outsideTemp}, with the same scaling. The text is written into a
+ * {@link StringBuilder} that is reused, and only rendered again if a new data
+ * packet has been received since the last request.
+ */
+public class SystaMetrics {
+
+	/** content type of the text exposition format */
+	public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+	private static final String PREFIX = "systa_";
+
+	/** a value of the data packet, exported as gauge */
+	private static class Metric {
+		private final String name;
+		private final int index;
+		private final int factor;
+		private final int divisor;
+		private final String help;
+
+		private Metric(String name, int index, int factor, int divisor, String help) {
+			this.name = PREFIX + name;
+			this.index = index;
+			this.factor = factor;
+			this.divisor = divisor;
+			this.help = help;
+		}
+	}
+
+	// same names and scaling as used by FakeSystaWeb.getParadigmaStatus()
+	private static final Metric[] METRICS = {
+			new Metric("outside_temp", SystaIndex.OUTSIDE_TEMP, 1, 10, "outsideTemp in °C"),
+			new Metric("circuit1_flow_temp", SystaIndex.CIRCUIT_1_FLOW_TEMP, 1, 10, "circuit1FlowTemp in °C"),
+			new Metric("circuit1_return_temp", SystaIndex.CIRCUIT_1_RETURN_TEMP, 1, 10, "circuit1ReturnTemp in °C"),
+			new Metric("circuit1_operation_mode", SystaIndex.CIRCUIT_1_OPERATION_MODE, 1, 1, "circuit1OperationMode"),
+			new Metric("hot_water_temp", SystaIndex.HOT_WATER_TEMP, 1, 10, "hotWaterTemp in °C"),
+			new Metric("buffer_temp_top", SystaIndex.BUFFER_TEMP_TOP, 1, 10, "bufferTempTop in °C"),
+			new Metric("buffer_temp_bottom", SystaIndex.BUFFER_TEMP_BOTTOM, 1, 10, "bufferTempBottom in °C"),
+			new Metric("circulation_temp", SystaIndex.CIRCULATION_TEMP, 1, 10, "circulationTemp in °C"),
+			new Metric("circuit2_flow_temp", SystaIndex.CIRCUIT_2_FLOW_TEMP, 1, 10, "circuit2FlowTemp in °C"),
+			new Metric("circuit2_return_temp", SystaIndex.CIRCUIT_2_RETURN_TEMP, 1, 10, "circuit2ReturnTemp in °C"),
+			new Metric("room_temp_actual1", SystaIndex.ROOM_TEMP_ACTUAL_1, 1, 10, "roomTempActual1 in °C"),
+			new Metric("room_temp_actual2", SystaIndex.ROOM_TEMP_ACTUAL_2, 1, 10, "roomTempActual2 in °C"),
+			new Metric("collector_temp_actual", SystaIndex.COLLECTOR_TEMP_ACTUAL, 1, 10, "collectorTempActual in °C"),
+			new Metric("boiler_flow_temp", SystaIndex.BOILER_FLOW_TEMP, 1, 10, "boilerFlowTemp in °C"),
+			new Metric("boiler_return_temp", SystaIndex.BOILER_RETURN_TEMP, 1, 10, "boilerReturnTemp in °C"),
+			new Metric("log_boiler_flow_temp", SystaIndex.LOG_BOILER_FLOW_TEMP, 1, 10, "logBoilerFlowTemp in °C"),
+			new Metric("log_boiler_return_temp", SystaIndex.LOG_BOILER_RETURN_TEMP, 1, 10, "logBoilerReturnTemp in °C"),
+			new Metric("log_boiler_buffer_temp_top", SystaIndex.LOG_BOILER_BUFFER_TEMP_TOP, 1, 10, "logBoilerBufferTempTop in °C"),
+			new Metric("swimmingpool_temp", SystaIndex.SWIMMINGPOOL_TEMP, 1, 10, "swimmingpoolTemp in °C"),
+			new Metric("swimmingpool_flow_temp", SystaIndex.SWIMMINGPOOL_FLOW_TEMP, 1, 10, "swimmingpoolFlowTemp in °C"),
+			new Metric("swimmingpool_return_temp", SystaIndex.SWIMMINGPOOL_RETURN_TEMP, 1, 10, "swimmingpoolReturnTemp in °C"),
+			new Metric("hot_water_temp_set", SystaIndex.HOT_WATER_TEMP_SET, 1, 10, "hotWaterTempSet in °C"),
+			new Metric("room_temp_set1", SystaIndex.ROOM_TEMP_SET_1, 1, 10, "roomTempSet1 in °C"),
+			new Metric("circuit1_flow_temp_set", SystaIndex.CIRCUIT_1_FLOW_TEMP_SET, 1, 10, "circuit1FlowTempSet in °C"),
+			new Metric("circuit2_flow_temp_set", SystaIndex.CIRCUIT_2_FLOW_TEMP_SET, 1, 10, "circuit2FlowTempSet in °C"),
+			new Metric("room_temp_set2", SystaIndex.ROOM_TEMP_SET_2, 1, 10, "roomTempSet2 in °C"),
+			new Metric("buffer_temp_set", SystaIndex.BUFFER_TEMP_SET, 1, 10, "bufferTempSet in °C"),
+			new Metric("boiler_temp_set", SystaIndex.BOILER_TEMP_SET, 1, 10, "boilerTempSet in °C"),
+			new Metric("operation_mode", SystaIndex.OPERATION_MODE, 1, 1, "operationMode"),
+			new Metric("room_temp_set_normal", SystaIndex.ROOM_TEMP_SET_NORMAL, 1, 10, "roomTempSetNormal in °C"),
+			new Metric("room_temp_set_comfort", SystaIndex.ROOM_TEMP_SET_COMFORT, 1, 10, "roomTempSetComfort in °C"),
+			new Metric("room_temp_set_lowering", SystaIndex.ROOM_TEMP_SET_LOWERING, 1, 10, "roomTempSetLowering in °C"),
+			new Metric("heating_operation_mode", SystaIndex.HEATING_OPERATION_MODE, 1, 1, "heatingOperationMode"),
+			new Metric("controlled_by", SystaIndex.CONTROLLED_BY, 1, 1, "controlledBy"),
+			new Metric("heating_curve_base_point", SystaIndex.HEATING_CURVE_BASE_POINT, 1, 10, "heatingCurveBasePoint in °C"),
+			new Metric("heating_curve_gradient", SystaIndex.HEATING_CURVE_GRADIENT, 1, 10, "heatingCurveGradient"),
+			new Metric("max_flow_temp", SystaIndex.MAX_FLOW_TEMP, 1, 10, "maxFlowTemp in °C"),
+			new Metric("heating_limit_temp", SystaIndex.HEATING_LIMIT_TEMP, 1, 10, "heatingLimitTemp in °C"),
+			new Metric("heating_limit_temp_lowering", SystaIndex.HEATING_LIMIT_TEMP_LOWERING, 1, 10, "heatingLimitTeampLowering in °C"),
+			new Metric("anti_freeze_outside_temp", SystaIndex.ANTI_FREEZE_OUTSIDE_TEMP, 1, 10, "antiFreezeOutsideTemp in °C"),
+			new Metric("heat_up_time", SystaIndex.HEAT_UP_TIME, 1, 1, "heatUpTime in minutes"),
+			new Metric("room_impact", SystaIndex.ROOM_IMPACT, 1, 10, "roomImpact"),
+			new Metric("boiler_superelevation", SystaIndex.BOILER_SUPERELEVATION, 1, 1, "boilerSuperelevation"),
+			new Metric("heating_circuit_spreading", SystaIndex.HEATING_CIRCUIT_SPREADING, 1, 10, "heatingCircuitSpreading in °C"),
+			new Metric("heating_pump_speed_min", SystaIndex.HEATING_PUMP_SPEED_MIN, 1, 1, "heatingPumpSpeedMin in %"),
+			new Metric("mixer_runtime", SystaIndex.MIXER_RUNTIME, 1, 1, "mixerRuntime in minutes"),
+			new Metric("room_temp_correction", SystaIndex.ROOM_TEMP_CORRECTION, 1, 10, "roomTempCorrection in °C"),
+			new Metric("underfloor_heating_base_point", SystaIndex.UNDERFLOOR_HEATING_BASE_POINT, 1, 10, "underfloorHeatingBasePoint in °C"),
+			new Metric("underfloor_heating_gradient", SystaIndex.UNDERFLOOR_HEATING_GRADIENT, 1, 10, "underfloorHeatingGradient"),
+			new Metric("hot_water_temp_normal", SystaIndex.HOT_WATER_TEMP_NORMAL, 1, 10, "hotWaterTempNormal in °C"),
+			new Metric("hot_water_temp_comfort", SystaIndex.HOT_WATER_TEMP_COMFORT, 1, 10, "hotWaterTempComfort in °C"),
+			new Metric("hot_water_operation_mode", SystaIndex.HOT_WATER_OPERATION_MODE, 1, 1, "hotWaterOperationMode"),
+			new Metric("hot_water_hysteresis", SystaIndex.HOT_WATER_HYSTERESIS, 1, 10, "hotWaterHysteresis in °C"),
+			new Metric("hot_water_temp_max", SystaIndex.HOT_WATER_TEMP_MAX, 1, 10, "hotWaterTempMax in °C"),
+			new Metric("heating_pump_overrun", SystaIndex.PUMP_OVERRUN, 1, 1, "heatingPumpOverrun"),
+			new Metric("heating_pump_speed_actual", SystaIndex.HEATING_PUMP_SPEED_ACTUAL, 5, 1, "heatingPumpSpeedActual in %"),
+			new Metric("buffer_temp_max", SystaIndex.BUFFER_TEMP_MAX, 1, 10, "bufferTempMax in °C"),
+			new Metric("buffer_temp_min", SystaIndex.BUFFER_TEMP_MIN, 1, 10, "bufferTempMin in °C"),
+			new Metric("boiler_hysteresis", SystaIndex.BOILER_HYSTERESIS, 1, 10, "boilerHysteresis in °C"),
+			new Metric("boiler_operation_time", SystaIndex.BOILER_RUNTIME_MIN, 1, 1, "boilerOperationTime in minutes"),
+			new Metric("boiler_shutdown_temp", SystaIndex.BOILER_SHUTDOWN_TEMP, 1, 10, "boilerShutdownTemp in °C"),
+			new Metric("boiler_pump_speed_min", SystaIndex.BOILER_PUMP_SPEED_MIN, 1, 1, "boilerPumpSpeedMin in %"),
+			new Metric("boiler_pump_speed_actual", SystaIndex.BOILER_PUMP_SPEED_ACTUAL, 5, 1, "boilerPumpSpeedActual in %"),
+			new Metric("boiler_operation_mode", SystaIndex.BOILER_OPERATION_MODE, 1, 1, "boilerOperationMode"),
+			new Metric("circulation_operation_mode", SystaIndex.CIRCULATION_OPERATION_MODE, 1, 1, "circulationOperationMode"),
+			new Metric("circulation_pump_overrun", SystaIndex.CIRCULATION_PUMP_OVERRUN, 1, 1, "circulationPumpOverrun in minutes"),
+			new Metric("circulation_lockout_time_push_button", SystaIndex.CIRCULATION_LOCKOUT_TIME_PUSH_BUTTON, 1, 1, "circulationLockoutTimePushButton in minutes"),
+			new Metric("circulation_hysteresis", SystaIndex.CIRCULATION_HYSTERESIS, 1, 10, "circulationHysteresis in °C"),
+			new Metric("adjust_room_temp_by", SystaIndex.ADJUST_ROOM_TEMP_BY, 1, 10, "adjustRoomTempBy in °C"),
+			new Metric("boiler_operation_time_hours", SystaIndex.BOILER_OPERATION_TIME_HOURS, 1, 1, "boilerOperationTimeHours"),
+			new Metric("boiler_operation_time_minutes", SystaIndex.BOILER_OPERATION_TIME_MINUTES, 1, 1, "boilerOperationTimeMinutes"),
+			new Metric("burner_number_of_starts", SystaIndex.BURNER_NUMBER_OF_STARTS, 1, 1, "burnerNumberOfStarts"),
+			new Metric("solar_power_actual", SystaIndex.SOLAR_POWER_ACTUAL, 1, 10, "solarPowerActual"),
+			new Metric("solar_gain_day", SystaIndex.SOLAR_GAIN_DAY, 1, 1, "solarGainDay in kWh"),
+			new Metric("solar_gain_total", SystaIndex.SOLAR_GAIN_TOTAL, 1, 1, "solarGainTotal in kWh"),
+			new Metric("system_number_of_starts", SystaIndex.SYSTEM_NUMBER_OF_STARTS, 1, 1, "systemNumberOfStarts"),
+			new Metric("circuit1_lead_time", SystaIndex.CIRCUIT_1_LEAD_TIME, 1, 1, "circuit1LeadTime in minutes"),
+			new Metric("circuit2_lead_time", SystaIndex.CIRCUIT_2_LEAD_TIME, 1, 1, "circuit2LeadTime in minutes"),
+			new Metric("circuit3_lead_time", SystaIndex.CIRCUIT_3_LEAD_TIME, 1, 1, "circuit3LeadTime in minutes"),
+			new Metric("relay", SystaIndex.RELAY, 1, 1, "relay"),
+			new Metric("error", SystaIndex.ERROR, 1, 1, "error"),
+			new Metric("operation_mode_x", SystaIndex.OPERATION_MODE_X, 1, 1, "operationModeX"),
+			new Metric("heating_operation_mode_x", SystaIndex.HEATING_OPERATION_MODE_X, 1, 1, "heatingOperationModeX"),
+			new Metric("log_boiler_buffer_temp_min", SystaIndex.LOG_BOILER_BUFFER_TEMP_MIN, 1, 10, "logBoilerBufferTempMin in °C"),
+			new Metric("log_boiler_temp_min", SystaIndex.LOG_BOILER_TEMP_MIN, 1, 10, "logBoilerTempMin in °C"),
+			new Metric("log_boiler_spreading_min", SystaIndex.LOG_BOILER_SPREADING_MIN, 1, 10, "logBoilerSpreadingMin in °C"),
+			new Metric("log_boiler_pump_speed_min", SystaIndex.LOG_BOILER_PUMP_SPEED_MIN, 1, 1, "logBoilerPumpSpeedMin in %"),
+			new Metric("log_boiler_pump_speed_actual", SystaIndex.LOG_BOILER_PUMP_SPEED_ACTUAL, 5, 1, "logBoilerPumpSpeedActual in %"),
+			new Metric("log_boiler_settings", SystaIndex.LOG_BOILER_SETTINGS, 1, 1, "logBoilerSettings"),
+			new Metric("log_boiler_operation_mode", SystaIndex.LOG_BOILER_OPERATION_MODE, 1, 1, "logBoilerOperationMode"),
+			new Metric("buffer_type", SystaIndex.BUFFER_TYPE, 1, 1, "bufferType")
+	};
+
+	private final StringBuilder text = new StringBuilder(16 * 1024);
+	private byte[] rendered = null;
+	// the state of fsw the metrics have been rendered for
+	private long renderedVersion = Long.MIN_VALUE;
+	private long renderedPackets = -1;
+	private int renderedFlags = -1;
+
+	/**
+	 * @param fsw the {@link FakeSystaWeb} to export the values of
+	 * @return the UTF-8 encoded metrics of {@code fsw}
+	 */
+	public synchronized byte[] render(FakeSystaWeb fsw) {
+		long version = fsw.getSnapshotVersion();
+		FakeSystaWebStatus status = fsw.getStatus();
+		long packets = status.dataPacketsReceived + status.dataPacketsProcessed;
+		int flags = (status.running ? 1 : 0) | (status.connected ? 2 : 0) | (status.logging ? 4 : 0);
+		if (rendered != null && version == renderedVersion && packets == renderedPackets && flags == renderedFlags) {
+			return rendered;
+		}
+		text.setLength(0);
+		Snapshot snapshot = fsw.getSnapshots().getLatest();
+		if (snapshot != null) {
+			Integer[] data = snapshot.data;
+			for (Metric m : METRICS) {
+				Integer value = (m.index < data.length) ? data[m.index] : null;
+				if (value == null) {
+					continue;
+				}
+				header(m.name, m.help, "gauge");
+				text.append(m.name).append(' ');
+				if (m.divisor == 1) {
+					text.append((long) value * m.factor);
+				} else {
+					text.append(value * m.factor / (double) m.divisor);
+				}
+				text.append('\n');
+			}
+			gauge("last_data_timestamp_seconds", "time the last data packet has been received",
+					snapshot.timestamp / 1000.0);
+			gauge("data_stale", "1 if the data has been restored at startup and not been received since",
+					fsw.isStale() ? 1L : 0L);
+		}
+		gauge("running", "1 if the communication with the SystaComfort is running", status.running ? 1L : 0L);
+		gauge("connected", "1 if data has been received from the SystaComfort recently", status.connected ? 1L : 0L);
+		counter("packets_received_total", "UDP packets received from the SystaComfort", status.dataPacketsReceived);
+		counter("packets_processed_total", "data packets processed", status.dataPacketsProcessed);
+		writeDataLoggers(fsw.getRawDataLoggerStatus(), fsw.getIntDataLoggerStatus());
+		rendered = text.toString().getBytes(StandardCharsets.UTF_8);
+		renderedVersion = version;
+		renderedPackets = packets;
+		renderedFlags = flags;
+		return rendered;
+	}
+
+	private void writeDataLoggers(DataLoggerStatus raw, DataLoggerStatus values) {
+		DataLoggerStatus[] loggers = { raw, values };
+		String[] labels = { "{logger=\"raw\"}", "{logger=\"data\"}" };
+		header(PREFIX + "datalogger_enabled", "1 if the data logger writes log files", "gauge");
+		for (int i = 0; i < loggers.length; i++) {
+			sample("datalogger_enabled", labels[i], loggers[i].saveLoggedData ? 1 : 0);
+		}
+		header(PREFIX + "datalogger_buffered_entries", "entries waiting to be written to a log file", "gauge");
+		for (int i = 0; i < loggers.length; i++) {
+			sample("datalogger_buffered_entries", labels[i], loggers[i].bufferedEntries);
+		}
+		header(PREFIX + "datalogger_capacity", "entries written to one log file", "gauge");
+		for (int i = 0; i < loggers.length; i++) {
+			sample("datalogger_capacity", labels[i], loggers[i].capacity);
+		}
+		header(PREFIX + "datalogger_files_written_total", "log files written", "counter");
+		for (int i = 0; i < loggers.length; i++) {
+			sample("datalogger_files_written_total", labels[i], loggers[i].writerFileCount);
+		}
+		header(PREFIX + "datalogger_entries_written_total", "entries written to log files", "counter");
+		for (int i = 0; i < loggers.length; i++) {
+			sample("datalogger_entries_written_total", labels[i], loggers[i].entriesWritten);
+		}
+		header(PREFIX + "datalogger_write_failures_total", "log files that could not be written", "counter");
+		for (int i = 0; i < loggers.length; i++) {
+			sample("datalogger_write_failures_total", labels[i], loggers[i].writeFailures);
+		}
+		header(PREFIX + "datalogger_last_write_duration_seconds", "time needed for writing the last log file",
+				"gauge");
+		for (int i = 0; i < loggers.length; i++) {
+			sample("datalogger_last_write_duration_seconds", labels[i], loggers[i].lastWriteDurationMillis / 1000.0);
+		}
+	}
+
+	private void gauge(String name, String help, double value) {
+		header(PREFIX + name, help, "gauge");
+		sample(name, "", value);
+	}
+
+	private void gauge(String name, String help, long value) {
+		header(PREFIX + name, help, "gauge");
+		sample(name, "", value);
+	}
+
+	private void counter(String name, String help, long value) {
+		header(PREFIX + name, help, "counter");
+		sample(name, "", value);
+	}
+
+	private void header(String name, String help, String type) {
+		text.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		text.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+	}
+
+	private void sample(String name, String labels, long value) {
+		text.append(PREFIX).append(name).append(labels).append(' ').append(value).append('\n');
+	}
+
+	private void sample(String name, String labels, double value) {
+		text.append(PREFIX).append(name).append(labels).append(' ').append(value).append('\n');
+	}
+}
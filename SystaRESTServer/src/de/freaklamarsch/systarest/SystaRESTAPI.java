@@ -24,37 +24,63 @@ import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.Consumer;
 
 import org.glassfish.jersey.server.ResourceConfig;
 import org.glassfish.jersey.server.model.Resource;
 import org.glassfish.jersey.server.model.ResourceMethod;
 
+import de.freaklamarsch.systarest.DataLogger.RotationPolicy;
+import de.freaklamarsch.systarest.DeviceTouchDiscovery.DeviceTouchDiscoveryStatus;
 import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
 import de.freaklamarsch.systarest.FakeSystaWeb.FakeSystaWebStatus;
+import de.freaklamarsch.systarest.HistoryImporter.HistoryImporterStatus;
+import de.freaklamarsch.systarest.JsonSnapshotCache.JsonSnapshotCacheStatus;
+import de.freaklamarsch.systarest.SnapshotEventStream.SnapshotEventStreamStatus;
+import de.freaklamarsch.systarest.SnapshotLongPoll.SnapshotLongPollStatus;
+import de.freaklamarsch.systarest.SystaHistory.HistorySeries;
+import de.freaklamarsch.systarest.SystaHistory.Resolution;
+import de.freaklamarsch.systarest.LogRetentionService.LogRetentionStatus;
 import jakarta.json.Json;
 import jakarta.json.JsonArrayBuilder;
 import jakarta.json.JsonBuilderFactory;
 import jakarta.json.JsonObject;
+import jakarta.json.JsonObjectBuilder;
+import jakarta.json.stream.JsonGenerator;
+import jakarta.json.stream.JsonGeneratorFactory;
 import jakarta.ws.rs.DELETE;
 import jakarta.ws.rs.DefaultValue;
 import jakarta.ws.rs.GET;
 import jakarta.ws.rs.POST;
 import jakarta.ws.rs.PUT;
 import jakarta.ws.rs.Path;
+import jakarta.ws.rs.PathParam;
 import jakarta.ws.rs.Produces;
 import jakarta.ws.rs.QueryParam;
 import jakarta.ws.rs.WebApplicationException;
+import jakarta.ws.rs.container.AsyncResponse;
+import jakarta.ws.rs.container.Suspended;
 import jakarta.ws.rs.core.Context;
+import jakarta.ws.rs.core.EntityTag;
+import jakarta.ws.rs.core.HttpHeaders;
 import jakarta.ws.rs.core.MediaType;
+import jakarta.ws.rs.core.Request;
 import jakarta.ws.rs.core.Response;
+import jakarta.ws.rs.core.Response.ResponseBuilder;
 import jakarta.ws.rs.core.StreamingOutput;
+import jakarta.ws.rs.sse.Sse;
+import jakarta.ws.rs.sse.SseEventSink;
 
 /**
  * /** A REST API for interacting with the Paradigma SystaComfort system. This
@@ -67,11 +93,28 @@ public class SystaRESTAPI {
 	public final static String PROP_PARADIGMA_IP = "PARADIGMA_IP";
 	public static final String PROP_LOG_DIR = "de.freaklamarsch.systarest.LogDirectory"; // New property for log
 																							// directory
+	public static final String PROP_LOG_MAX_BYTES = "de.freaklamarsch.systarest.LogMaxBytes";
+	public static final String PROP_LOG_MAX_AGE_DAYS = "de.freaklamarsch.systarest.LogMaxAgeDays";
+	public static final String PROP_HISTORY_IMPORT = "de.freaklamarsch.systarest.HistoryImport";
+	public static final String PROP_DEVICE_TOUCH_LISTENER = "de.freaklamarsch.systarest.DeviceTouchListener";
+	// SystaLifecycle started by SystaRESTServer before the HTTP server is ready
+	public static final String PROP_LIFECYCLE = "de.freaklamarsch.systarest.Lifecycle";
+	private static SystaLifecycle lifecycle = null;
 	private static FakeSystaWeb fsw = null;
-	private static Thread t = null;
+	// serialized rawdata, status and waterheater, shared by all requests
+	private static final JsonSnapshotCache jsonCache = new JsonSnapshotCache();
+	// text exposition of the received values for /metrics
+	private static final SystaMetrics metrics = new SystaMetrics();
+	// created with the first subscription to /stream
+	private static SnapshotEventStream eventStream = null;
+	// created with the first request using waitForNewerThan
+	private static SnapshotLongPoll longPoll = null;
 	private final Map<String, Object> config = new HashMap<>();
 	private final JsonBuilderFactory jsonFactory = Json.createBuilderFactory(config);
+	private static final JsonGeneratorFactory generatorFactory = Json.createGeneratorFactory(null);
 	private static SystaRESTAPI instance;
+	@Context
+	private HttpHeaders headers;
 
 	/**
 	 * Create SystaRESTAPI object which provides the Jersey REST API resource for
@@ -84,9 +127,18 @@ public class SystaRESTAPI {
 		instance = this; // Set the static instance
 		// constructor is called for each request, so make sure only one FakeSystaWeb is
 		// created, or the socket will be blocked
-		if (fsw == null) {
-			fsw = new FakeSystaWeb();
-			start(config);
+		synchronized (SystaRESTAPI.class) {
+			if (fsw == null) {
+				Object configured = config.getProperty(PROP_LIFECYCLE);
+				if (configured instanceof SystaLifecycle) {
+					// already started by SystaRESTServer
+					lifecycle = (SystaLifecycle) configured;
+				} else {
+					lifecycle = new SystaLifecycle(new FakeSystaWeb(), config.getProperties());
+					lifecycle.start();
+				}
+				fsw = lifecycle.getFakeSystaWeb();
+			}
 		}
 		// printAPI();
 	}
@@ -130,34 +182,10 @@ public class SystaRESTAPI {
 	@Path("{start : (?i)start}")
 	public void start(@Context ResourceConfig config) {
 		System.out.println("[SystaRESTAPI] start: called");
-		if (t == null || !t.isAlive()) {
-			// in Java you can start a thread only once, so we need a new one
-			t = new Thread(fsw);
-			System.out.println("[SystaRESTAPI] start: starting FakeSystaWeb");
-			String confInetAddress = (String) config.getProperty(PROP_PARADIGMA_IP);
-			System.out.println("[SystaRESTAPI] start: Configuring FakeSystaWeb to listen on IP " + confInetAddress);
-			if (confInetAddress != null) {
-				fsw.setInetAddress(confInetAddress);
-			}
-
-			// Set custom log directory if provided in config
-			Object logDirPathProperty = config.getProperty(PROP_LOG_DIR);
-			if (logDirPathProperty instanceof String) {
-				String logDirPath = (String) logDirPathProperty;
-				if (logDirPath != null && !logDirPath.isEmpty()) {
-					System.out.println("[SystaRESTAPI] start: Setting custom log directory: " + logDirPath);
-					fsw.setLogFileRootPath(logDirPath);
-				}
-			}
-
-			try {
-				t.start();
-			} catch (Exception e) {
-				e.printStackTrace();
-			}
+		if (lifecycle.start()) {
+			// the request returns when packets can be received
+			lifecycle.awaitListening(SystaLifecycle.SOCKET_TIMEOUT);
 			System.out.println("[SystaRESTAPI] start: running");
-		} else {
-			System.out.println("[SystaRESTAPI] start: FakeSystaWeb is already running, ignoring request");
 		}
 	}
 
@@ -168,7 +196,7 @@ public class SystaRESTAPI {
 	@Path("{stop : (?i)stop}")
 	public void stop() {
 		System.out.println("[SystaRESTAPI] stop: called");
-		fsw.stop();
+		lifecycle.stop();
 		System.out.println("[SystaRESTAPI] stop: stopped");
 	}
 
@@ -176,28 +204,32 @@ public class SystaRESTAPI {
 	 * find SystaComfort units using the search capability of the device touch
 	 * protocol. This function looks over all available network interfaces and tries
 	 * to discover device touch capable units using a search broadcast message.
+	 * The found units are cached, see {@link DeviceTouchDiscovery}.
 	 *
+	 * @param refresh {@code true} to search again, even if a cached unit is
+	 *                available
+	 * @param all     {@code true} to return all found units as array
+	 *                {@code units}, instead of only the preferred one
 	 * @return a JSON object representing the found unit, or null
 	 */
 	@GET
 	@Path("{findsystacomfort : (?i)findsystacomfort}")
 	@Produces(MediaType.APPLICATION_JSON)
-	public JsonObject findSystaComfort() {
+	public JsonObject findSystaComfort(@QueryParam("refresh") boolean refresh, @QueryParam("all") boolean all) {
 		// System.out.println("Service Status called");
 		try {
-			DeviceTouchDeviceInfo sci = fsw.findSystaComfort();
+			if (all) {
+				JsonArrayBuilder units = jsonFactory.createArrayBuilder();
+				for (DeviceTouchDeviceInfo sci : fsw.findSystaComforts(refresh)) {
+					units.add(toJson(sci));
+				}
+				return jsonFactory.createObjectBuilder().add("units", units).build();
+			}
+			DeviceTouchDeviceInfo sci = fsw.findSystaComfort(refresh);
 			if (sci == null) {
 				return null;
 			} else {
-				JsonObject jo = jsonFactory.createObjectBuilder().add("SystaWebIP", sci.localIp)
-						.add("SystaWebPort", 22460).add("DeviceTouchBcastIP", sci.bcastIp)
-						.add("DeviceTouchBcastPort", sci.bcastPort).add("deviceTouchInfoString", sci.string)
-						.add("unitIP", sci.ip).add("unitName", sci.name).add("unitId", sci.id).add("unitApp", sci.app)
-						.add("unitPlatform", sci.platform).add("unitVersion", sci.version).add("unitMajor", sci.major)
-						.add("unitMinor", sci.minor).add("unitBaseVersion", sci.baseVersion).add("unitMac", sci.mac)
-						.add("STouchAppSupported", sci.stouchSupported).add("DeviceTouchPort", sci.port)
-						.add("DeviceTouchPassword", (sci.password == null) ? "null" : sci.password).build();
-				return jo;
+				return toJson(sci);
 			}
 		} catch (Exception e) {
 			e.printStackTrace();
@@ -205,23 +237,61 @@ public class SystaRESTAPI {
 		}
 	}
 
+	private JsonObject toJson(DeviceTouchDeviceInfo sci) {
+		return jsonFactory.createObjectBuilder().add("SystaWebIP", sci.localIp).add("SystaWebPort", 22460)
+				.add("DeviceTouchBcastIP", sci.bcastIp).add("DeviceTouchBcastPort", sci.bcastPort)
+				.add("deviceTouchInfoString", sci.string).add("unitIP", sci.ip).add("unitName", sci.name)
+				.add("unitId", sci.id).add("unitApp", sci.app).add("unitPlatform", sci.platform)
+				.add("unitVersion", sci.version).add("unitMajor", sci.major).add("unitMinor", sci.minor)
+				.add("unitBaseVersion", sci.baseVersion).add("unitMac", sci.mac)
+				.add("STouchAppSupported", sci.stouchSupported).add("DeviceTouchPort", sci.port)
+				.add("DeviceTouchPassword", (sci.password == null) ? "null" : sci.password).build();
+	}
+
+	/**
+	 * return the received values and the counters of the service in the
+	 * Prometheus text exposition format. The text is only rendered again if new
+	 * data has been received.
+	 *
+	 * @return Response holding the metrics as text
+	 */
+	@GET
+	@Path("{metrics : (?i)metrics}")
+	@Produces(SystaMetrics.CONTENT_TYPE)
+	public Response metrics() {
+		return Response.ok(metrics.render(fsw)).build();
+	}
+
 	/**
-	 * return the status of the SystaRESTAPI service
+	 * return the status of the SystaRESTAPI service. The status holds the current
+	 * time, so it is never identical between two calls. The response carries a weak
+	 * {@code ETag}, a hash of all other fields of the status, {@code 304 Not
+	 * Modified} is returned if none of them changed
 	 *
-	 * @return JSONObject holding the status
+	 * @param request the request, used for evaluating the preconditions
+	 * @return Response holding the status as JSON
 	 */
 	@GET
 	@Path("{servicestatus : (?i)servicestatus}")
 	@Produces(MediaType.APPLICATION_JSON)
-	public JsonObject status() {
+	public Response status(@Context Request request) {
 		// System.out.println("Service Status called");
 		try {
 			FakeSystaWebStatus fsws = fsw.getStatus();
+			LogRetentionStatus lrs = fsw.getLogRetentionStatus();
+			HistoryImporterStatus his = fsw.getHistoryImporterStatus();
+			JsonSnapshotCacheStatus jcs = jsonCache.getStatus();
+			SnapshotEventStreamStatus ses = (eventStream == null) ? new SnapshotEventStreamStatus(0, 0, 0)
+					: eventStream.getStatus();
+			SnapshotLongPollStatus lps = (longPoll == null) ? new SnapshotLongPollStatus(0, 0, 0)
+					: longPoll.getStatus();
+			DeviceTouchDiscoveryStatus dds = DeviceTouchDiscovery.getInstance().getStatus();
+			JsonObjectBuilder startupMillis = jsonFactory.createObjectBuilder();
+			for (Map.Entry<String, Long> phase : lifecycle.getStartupMillis().entrySet()) {
+				startupMillis.add(phase.getKey(), phase.getValue());
+			}
 
-			JsonObject jo = jsonFactory.createObjectBuilder()
-					.add("timeStampString",
-							DateTimeFormatter.ISO_OFFSET_DATE_TIME
-									.format(ZonedDateTime.of(LocalDateTime.now(), ZoneId.systemDefault())))
+			JsonObject fields = jsonFactory.createObjectBuilder()
 					.add("connected", fsws.connected).add("running", fsws.running)
 					.add("lastDataReceivedAt", fsws.lastTimestamp).add("packetsReceived", fsws.dataPacketsReceived)
 					.add("packetsProcessed", fsws.dataPacketsProcessed) // Added new field here
@@ -231,8 +301,43 @@ public class SystaRESTAPI {
 					.add("logFileSize", fsws.packetsPerFile).add("logFilePrefix", fsws.loggerFilePrefix)
 					.add("logFileDelimiter", fsws.loggerEntryDelimiter).add("logFileRootPath", fsws.loggerFileRootPath)
 					.add("logFilesWritten", fsws.loggerFileCount).add("logBufferedEntries", fsws.loggerBufferedEntries)
+					.add("logFileRotation", fsws.loggerRotationPolicy.toString().toLowerCase())
+					.add("logRetentionRunning", lrs.running).add("logRetentionMaxBytes", lrs.maxBytes)
+					.add("logRetentionMaxAgeDays", lrs.maxAgeDays).add("logRetentionRuns", lrs.runs)
+					.add("logRetentionLastRun", lrs.lastRun).add("logDirectoryBytes", lrs.directoryBytes)
+					.add("logRetentionPendingFiles", lrs.pendingFiles)
+					.add("logRetentionFilesCompacted", lrs.filesCompacted)
+					.add("logRetentionArchivesWritten", lrs.archivesWritten)
+					.add("logRetentionFilesDeleted", lrs.filesDeleted).add("logRetentionBytesFreed", lrs.bytesFreed)
+					.add("historyImportRunning", his.running).add("historyImportFilesTotal", his.filesTotal)
+					.add("historyImportFilesImported", his.filesImported)
+					.add("historyImportFilesFailed", his.filesFailed)
+					.add("historyImportEntries", his.entriesImported)
+					.add("historyImportDurationMillis", his.durationMillis)
+					.add("jsonCacheEntries", jcs.entries).add("jsonCacheHits", jcs.hits)
+					.add("jsonCacheMisses", jcs.misses).add("jsonCacheCompressions", jcs.compressions)
+					.add("streamClients", ses.clients)
+					.add("streamEventsSent", ses.eventsSent).add("streamHeartbeatsSent", ses.heartbeatsSent)
+					.add("longPollParked", lps.parked).add("longPollCompleted", lps.completed)
+					.add("longPollTimedOut", lps.timedOut).add("discoveryFound", dds.units > 0)
+					.add("discoveryUnits", dds.units).add("discoveryListening", dds.listening)
+					.add("discoveryListenerUnits", dds.listenerUnits).add("discoveryListenerHits", dds.listenerHits)
+					.add("discoveryAgeMillis", dds.ageMillis).add("discoveryHits", dds.hits)
+					.add("discoveryMisses", dds.misses).add("discoverySearches", dds.searches)
+					.add("discoveryCoalesced", dds.coalesced).add("discoveryLastSearchMillis", dds.lastSearchMillis)
+					.add("startupMillis", startupMillis)
 					.add("commitDate", fsws.commitDate).build();
-			return jo;
+			// no Last-Modified here, the state of the service can change without new data
+			EntityTag etag = new EntityTag(Integer.toHexString(fields.toString().hashCode()), true);
+			ResponseBuilder notModified = request.evaluatePreconditions(etag);
+			if (notModified != null) {
+				return notModified.build();
+			}
+			JsonObjectBuilder jo = jsonFactory.createObjectBuilder().add("timeStampString",
+					DateTimeFormatter.ISO_OFFSET_DATE_TIME
+							.format(ZonedDateTime.of(LocalDateTime.now(), ZoneId.systemDefault())));
+			fields.forEach(jo::add);
+			return Response.ok(jo.build()).tag(etag).build();
 		} catch (Exception e) {
 			e.printStackTrace();
 			return null;
@@ -241,159 +346,558 @@ public class SystaRESTAPI {
 
 	/**
 	 * Get the last values received by the FakeSystaWeb, without any conversion or
-	 * interpretation
+	 * interpretation. With {@code indices}, only the selected values are returned,
+	 * together with their indices. The JSON is built once per received data set
+	 * and cached. {@code 304 Not Modified} is returned if the client already has
+	 * the current data set. Requests with {@code waitForNewerThan} are routed to
+	 * {@link #waitForRawData} by the {@link LongPollFilter}
 	 *
-	 * @return JsonObject holding the values of the last received data
+	 * @param request the request, used for evaluating the preconditions
+	 * @param indices comma separated list of indices or ranges of indices to
+	 *                return, e.g. {@code 0-20,36}. Defaults to all values
+	 * @return Response holding the values of the last received data as JSON
 	 */
 	@GET
 	@Path("{rawdata : (?i)rawdata}")
 	@Produces(MediaType.APPLICATION_JSON)
-	public JsonObject getRawData() {
-		Integer[] rawData = fsw.getData();
-		if (rawData == null) {
-			return jsonFactory.createObjectBuilder().build();
+	public Response getRawData(@Context Request request, @QueryParam("indices") String indices) {
+		Representation representation;
+		try {
+			representation = rawData(indices);
+		} catch (IllegalArgumentException e) {
+			return badRequest(e);
 		}
-		// NOTE: it is not guaranteed that the time stamps match each other and the
-		// timestamp of the rawData
-		// there is a possibility that there is an update on the side of the
-		// FakeSystaWeb between the calls
+		return cachedResponse(request, representation.name, representation.writer, acceptsGzip());
+	}
+
+	/**
+	 * Like {@link #getRawData}, but the request is answered as soon as data newer
+	 * than {@code waitForNewerThan} is available
+	 *
+	 * @param request          the request, used for evaluating the preconditions
+	 * @param indices          comma separated list of indices or ranges of
+	 *                         indices to return, e.g. {@code 0-20,36}. Defaults
+	 *                         to all values
+	 * @param waitForNewerThan timestamp in epoch milliseconds of the data the
+	 *                         client already has, see {@link SnapshotLongPoll}
+	 * @param timeout          maximum time in seconds to wait for newer data,
+	 *                         {@code 304 Not Modified} is returned after it
+	 * @param response         the suspended response, resumed with the Response
+	 *                         holding the values of the last received data as JSON
+	 */
+	@GET
+	@Path("{rawdata : (?i)rawdata}/" + LongPollFilter.LONG_POLL_PATH)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void waitForRawData(@Context Request request, @QueryParam("indices") String indices,
+			@DefaultValue("-1") @QueryParam("waitForNewerThan") long waitForNewerThan,
+			@DefaultValue("60") @QueryParam("timeout") long timeout, @Suspended AsyncResponse response) {
+		Representation representation;
+		try {
+			representation = rawData(indices);
+		} catch (IllegalArgumentException e) {
+			response.resume(badRequest(e));
+			return;
+		}
+		respond(request, representation, waitForNewerThan, timeout, response);
+	}
+
+	/**
+	 * @param indices comma separated list of indices or ranges of indices, or
+	 *                {@code null} for all values
+	 * @return the representation of the selected raw data
+	 * @throws IllegalArgumentException if {@code indices} is invalid
+	 */
+	private Representation rawData(String indices) {
+		if (indices == null || indices.isBlank()) {
+			return new Representation("rawdata", g -> writeRawData(g, null));
+		}
+		FieldProjection projection = FieldProjection.ofIndices(indices, FakeSystaWeb.RAW_DATA_SIZE);
+		return new Representation("rawdata?" + projection.getKey(), g -> writeRawData(g, projection));
+	}
+
+	/**
+	 * Resume {@code response} with one of the cached representations, right away
+	 * or, if {@code waitForNewerThan} is set, once newer data has been received
+	 */
+	private void respond(Request request, Representation representation, long waitForNewerThan, long timeout,
+			AsyncResponse response) {
+		// resolve the headers now, parked requests are resumed outside of the request
+		boolean gzip = acceptsGzip();
+		if (waitForNewerThan < 0) {
+			response.resume(cachedResponse(request, representation.name, representation.writer, gzip));
+			return;
+		}
+		getLongPoll().park(waitForNewerThan, timeout, response,
+				() -> cachedResponse(request, representation.name, representation.writer, gzip));
+	}
+
+	/**
+	 * @return {@code true} if the client of the current request accepts
+	 *         {@code gzip}
+	 */
+	private boolean acceptsGzip() {
+		return CompressionFilter.GZIP
+				.equals(CompressionFilter.negotiate(headers.getHeaderString(HttpHeaders.ACCEPT_ENCODING)));
+	}
+
+	/**
+	 * @param e the reason for rejecting the request
+	 * @return Response with status {@code 400 Bad Request} holding the reason
+	 */
+	private Response badRequest(IllegalArgumentException e) {
+		return Response.status(Response.Status.BAD_REQUEST)
+				.entity(jsonFactory.createObjectBuilder().add("error", String.valueOf(e.getMessage())).build()).build();
+	}
+
+	/**
+	 * @return the {@link SnapshotLongPoll} shared by all requests
+	 */
+	private static SnapshotLongPoll getLongPoll() {
+		synchronized (SystaRESTAPI.class) {
+			if (longPoll == null) {
+				longPoll = new SnapshotLongPoll(fsw.getSnapshots());
+			}
+			return longPoll;
+		}
+	}
+
+	/**
+	 * Answer a request for one of the cached representations of the last received
+	 * data set. The strong {@code ETag} is derived from the timestamp and version
+	 * of the data set, {@code Last-Modified} is its timestamp. The compressed
+	 * representation gets its own {@code ETag}, see
+	 * {@link CompressionFilter#encodedTag(EntityTag, String)}. If the client sends
+	 * a matching {@code If-None-Match} for any of the encodings, or a matching
+	 * {@code If-Modified-Since}, {@code 304 Not Modified} is returned without
+	 * touching the cache
+	 *
+	 * @param request        the request, used for evaluating the preconditions
+	 * @param representation name of the representation in the {@link #jsonCache}
+	 * @param writer         writes the representation, if it is not cached
+	 * @param gzip           {@code true} if the client accepts {@code gzip}, the
+	 *                       cached compressed representation is returned then, if
+	 *                       it is larger than {@link CompressionFilter#MIN_SIZE}
+	 * @return Response holding the representation, or {@code 304 Not Modified}
+	 */
+	private Response cachedResponse(Request request, String representation, Consumer<JsonGenerator> writer,
+			boolean gzip) {
+		long version = fsw.getSnapshotVersion();
+		Date lastModified = lastModified();
+		if (version < 0 || lastModified == null) {
+			// nothing received yet, the empty representation gets no validators
+			return Response.ok(jsonCache.get(representation, version, writer)).build();
+		}
+		EntityTag etag = new EntityTag(Long.toHexString(lastModified.getTime()) + "-" + Long.toHexString(version));
+		ResponseBuilder notModified = request.evaluatePreconditions(lastModified, etag);
+		// a client holding the compressed representation has the current data as well
+		for (String encoding : new String[] { CompressionFilter.GZIP, CompressionFilter.DEFLATE }) {
+			if (notModified == null) {
+				notModified = request.evaluatePreconditions(lastModified,
+						CompressionFilter.encodedTag(etag, encoding));
+			}
+		}
+		if (notModified != null) {
+			return notModified.build();
+		}
+		byte[] json = jsonCache.get(representation, version, writer);
+		if (gzip && json.length >= CompressionFilter.MIN_SIZE) {
+			// the CompressionFilter leaves responses with a Content-Encoding alone
+			return Response.ok(jsonCache.getGzip(representation, version, writer))
+					.tag(CompressionFilter.encodedTag(etag, CompressionFilter.GZIP))
+					.lastModified(lastModified).header(HttpHeaders.CONTENT_ENCODING, CompressionFilter.GZIP)
+					.header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING).build();
+		}
+		return Response.ok(json).tag(etag).lastModified(lastModified).build();
+	}
+
+	/**
+	 * @return the timestamp of the last received data set, or {@code null} if no
+	 *         data has been received
+	 */
+	private Date lastModified() {
 		long timestamp = fsw.getTimestamp();
-		String timestampString = fsw.getTimestampString();
-		JsonArrayBuilder jab = jsonFactory.createArrayBuilder();
-		for (Integer i : rawData) {
-			// rawData is initialized to all 0, so we do not have to check for null here
-			jab.add(i.intValue());
+		return (timestamp > 0) ? new Date(timestamp) : null;
+	}
+
+	/**
+	 * write the values of the last received data
+	 *
+	 * @param g          the {@link JsonGenerator} to write to
+	 * @param projection selects the values to write, or {@code null} for all
+	 */
+	private void writeRawData(JsonGenerator g, FieldProjection projection) {
+		g.writeStartObject();
+		Integer[] rawData = fsw.getData();
+		if (rawData != null) {
+			// NOTE: it is not guaranteed that the time stamps match each other and the
+			// timestamp of the rawData
+			// there is a possibility that there is an update on the side of the
+			// FakeSystaWeb between the calls
+			g.write("timestamp", fsw.getTimestamp()).write("timestampString", fsw.getTimestampString())
+					.write("stale", fsw.isStale());
+			int[] indices = (projection == null) ? null : projection.getIndices();
+			if (indices == null) {
+				g.writeStartArray("rawData");
+				for (Integer i : rawData) {
+					// rawData is initialized to all 0, so we do not have to check for null here
+					g.write(i.intValue());
+				}
+			} else {
+				g.writeStartArray("indices");
+				for (int i : indices) {
+					g.write(i);
+				}
+				g.writeEnd().writeStartArray("rawData");
+				for (int i : indices) {
+					g.write(rawData[i].intValue());
+				}
+			}
+			g.writeEnd();
 		}
-		JsonObject jo = jsonFactory.createObjectBuilder().add("timestamp", timestamp)
-				.add("timestampString", timestampString).add("rawData", jab.build()).build();
-		return jo;
+		g.writeEnd();
 	}
 
 	/**
 	 * returns a JsonObject holding the fields of an <a href=
 	 * "https://developers.home-assistant.io/docs/core/entity/water-heater/">Home
-	 * Assistant Water Heater Entity</a>
+	 * Assistant Water Heater Entity</a>. The JSON is built once per received data
+	 * set and cached. {@code 304 Not Modified} is returned if the client already
+	 * has the current data set. Requests with {@code waitForNewerThan} are routed
+	 * to {@link #waitForWaterHeater} by the {@link LongPollFilter}
 	 *
-	 * @return the Water Heater Entity
+	 * @param request the request, used for evaluating the preconditions
+	 * @return Response holding the Water Heater Entity as JSON
 	 */
 	@GET
 	@Path("{waterheater : (?i)waterheater}")
 	@Produces(MediaType.APPLICATION_JSON)
-	public JsonObject getWaterHeater() {
+	public Response getWaterHeater(@Context Request request) {
+		return cachedResponse(request, "waterheater", this::writeWaterHeater, acceptsGzip());
+	}
+
+	/**
+	 * Like {@link #getWaterHeater}, but the request is answered as soon as data
+	 * newer than {@code waitForNewerThan} is available
+	 *
+	 * @param request          the request, used for evaluating the preconditions
+	 * @param waitForNewerThan timestamp in epoch milliseconds of the data the
+	 *                         client already has, see {@link SnapshotLongPoll}
+	 * @param timeout          maximum time in seconds to wait for newer data,
+	 *                         {@code 304 Not Modified} is returned after it
+	 * @param response         the suspended response, resumed with the Response
+	 *                         holding the Water Heater Entity as JSON
+	 */
+	@GET
+	@Path("{waterheater : (?i)waterheater}/" + LongPollFilter.LONG_POLL_PATH)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void waitForWaterHeater(@Context Request request,
+			@DefaultValue("-1") @QueryParam("waitForNewerThan") long waitForNewerThan,
+			@DefaultValue("60") @QueryParam("timeout") long timeout, @Suspended AsyncResponse response) {
+		respond(request, new Representation("waterheater", this::writeWaterHeater), waitForNewerThan, timeout,
+				response);
+	}
+
+	/**
+	 * write the Water Heater Entity
+	 *
+	 * @param g the {@link JsonGenerator} to write to
+	 */
+	private void writeWaterHeater(JsonGenerator g) {
+		g.writeStartObject();
 		SystaWaterHeaterStatus whs = fsw.getWaterHeaterStatus();
-		if (whs == null) {
-			return jsonFactory.createObjectBuilder().build();
-		}
-		JsonArrayBuilder jabOperationList = jsonFactory.createArrayBuilder();
-		for (String s : whs.operationList) {
-			jabOperationList.add(s);
-		}
-		JsonArrayBuilder jabSupportedFeatures = jsonFactory.createArrayBuilder();
-		for (String s : whs.supportedFeatures) {
-			jabSupportedFeatures.add(s);
+		if (whs != null) {
+			new JsonFieldWriter(g, null).add("min_temp", whs.minTemp).add("max_temp", whs.maxTemp)
+					.add("current_temperature", whs.currentTemperature)
+					.add("target_temperature", whs.targetTemperature)
+					.add("target_temperature_high", whs.targetTemperatureHigh)
+					.add("target_temperature_low", whs.targetTemperatureLow)
+					.add("temperature_unit", whs.temperatureUnit.toString())
+					.add("current_operation", whs.currentOperation).add("operation_list", whs.operationList)
+					.add("supported_features", whs.supportedFeatures).add("is_away_mode_on", whs.is_away_mode_on)
+					.add("stale", whs.stale).add("timestamp", whs.timestamp)
+					.add("timestampString", whs.timestampString);
 		}
-		JsonObject jo = jsonFactory.createObjectBuilder().add("min_temp", whs.minTemp).add("max_temp", whs.maxTemp)
-				.add("current_temperature", whs.currentTemperature).add("target_temperature", whs.targetTemperature)
-				.add("target_temperature_high", whs.targetTemperatureHigh)
-				.add("target_temperature_low", whs.targetTemperatureLow)
-				.add("temperature_unit", whs.temperatureUnit.toString()).add("current_operation", whs.currentOperation)
-				.add("operation_list", jabOperationList.build()).add("supported_features", jabSupportedFeatures.build())
-				.add("is_away_mode_on", whs.is_away_mode_on).add("timestamp", whs.timestamp)
-				.add("timestampString", whs.timestampString).build();
-		return jo;
+		g.writeEnd();
 	}
 
 	/**
 	 * returns a JsonObject holding the status of the connected Paradigma
-	 * SystaComfort II. The status is all known fields.
+	 * SystaComfort II. The status is all known fields, or the fields selected with
+	 * {@code fields}. The JSON is built once per received data set and cached.
+	 * {@code 304 Not Modified} is returned if the client already has the current
+	 * data set. Requests with {@code waitForNewerThan} are routed to
+	 * {@link #waitForStatus} by the {@link LongPollFilter}
 	 *
-	 * @return the status
+	 * @param request the request, used for evaluating the preconditions
+	 * @param fields  comma separated list of the fields to return, e.g.
+	 *                {@code outsideTemp,hotWaterTemp}. Defaults to all fields
+	 * @return Response holding the status as JSON
 	 */
 	@GET
 	@Path("{status : (?i)status}")
 	@Produces(MediaType.APPLICATION_JSON)
-	public JsonObject getStatus() {
+	public Response getStatus(@Context Request request, @QueryParam("fields") String fields) {
+		Representation representation;
+		try {
+			representation = status(fields);
+		} catch (IllegalArgumentException e) {
+			return badRequest(e);
+		}
+		return cachedResponse(request, representation.name, representation.writer, acceptsGzip());
+	}
+
+	/**
+	 * Like {@link #getStatus}, but the request is answered as soon as data newer
+	 * than {@code waitForNewerThan} is available
+	 *
+	 * @param request          the request, used for evaluating the preconditions
+	 * @param fields           comma separated list of the fields to return, e.g.
+	 *                         {@code outsideTemp,hotWaterTemp}. Defaults to all
+	 *                         fields
+	 * @param waitForNewerThan timestamp in epoch milliseconds of the data the
+	 *                         client already has, see {@link SnapshotLongPoll}
+	 * @param timeout          maximum time in seconds to wait for newer data,
+	 *                         {@code 304 Not Modified} is returned after it
+	 * @param response         the suspended response, resumed with the Response
+	 *                         holding the status as JSON
+	 */
+	@GET
+	@Path("{status : (?i)status}/" + LongPollFilter.LONG_POLL_PATH)
+	@Produces(MediaType.APPLICATION_JSON)
+	public void waitForStatus(@Context Request request, @QueryParam("fields") String fields,
+			@DefaultValue("-1") @QueryParam("waitForNewerThan") long waitForNewerThan,
+			@DefaultValue("60") @QueryParam("timeout") long timeout, @Suspended AsyncResponse response) {
+		Representation representation;
+		try {
+			representation = status(fields);
+		} catch (IllegalArgumentException e) {
+			response.resume(badRequest(e));
+			return;
+		}
+		respond(request, representation, waitForNewerThan, timeout, response);
+	}
+
+	/**
+	 * @param fields comma separated list of the fields, or {@code null} for all
+	 *               fields
+	 * @return the representation of the selected fields of the status
+	 * @throws IllegalArgumentException if {@code fields} is invalid
+	 */
+	private Representation status(String fields) {
+		if (fields == null || fields.isBlank()) {
+			return new Representation("status", g -> writeStatus(g, null));
+		}
+		FieldProjection projection = FieldProjection.ofFields(fields);
+		return new Representation("status?" + projection.getKey(), g -> writeStatus(g, projection));
+	}
+
+	/**
+	 * write all known fields of the status
+	 *
+	 * @param g          the {@link JsonGenerator} to write to
+	 * @param projection selects the fields to write, or {@code null} for all
+	 */
+	private void writeStatus(JsonGenerator g, FieldProjection projection) {
+		g.writeStartObject();
+		// the status is decoded completely, also for a projection. This runs only when
+		// the representation is not in the jsonCache, i.e. once per received data set
+		// and projection, and many fields are derived from several values, e.g. the
+		// pump states from the relay bits
 		SystaStatus ps = fsw.getParadigmaStatus();
-		if (ps == null) {
-			return jsonFactory.createObjectBuilder().build();
+		if (ps != null) {
+			new JsonFieldWriter(g, projection).add("outsideTemp", ps.outsideTemp)
+					.add("operationMode", ps.operationMode).add("operationModeName", ps.operationModes[ps.operationMode])
+					.add("circuit1FlowTemp", ps.circuit1FlowTemp).add("circuit1ReturnTemp", ps.circuit1ReturnTemp)
+					.add("circuit1FlowTempSet", ps.circuit1FlowTempSet).add("circuit1LeadTime", ps.circuit1LeadTime)
+					.add("circuit1OperationMode", ps.circuit1OperationMode)
+					.add("circuit1OperationModeName", ps.circuit1OperationModeNames[ps.circuit1OperationMode])
+					.add("hotWaterTemp", ps.hotWaterTemp).add("hotWaterTempSet", ps.hotWaterTempSet)
+					.add("hotWaterTempNormal", ps.hotWaterTempNormal).add("hotWaterTempComfort", ps.hotWaterTempComfort)
+					.add("hotWaterTempMax", ps.hotWaterTempMax).add("hotWaterOperationMode", ps.hotWaterOperationMode)
+					.add("hotWaterOperationModeName", ps.hotWaterOperationModes[ps.hotWaterOperationMode])
+					.add("hotWaterHysteresis", ps.hotWaterHysteresis).add("bufferTempTop", ps.bufferTempTop)
+					.add("bufferTempBottom", ps.bufferTempBottom).add("bufferTempSet", ps.bufferTempSet)
+					.add("bufferType", ps.bufferType).add("bufferTypeName", ps.bufferTypeNames[ps.bufferType])
+					.add("logBoilerFlowTemp", ps.logBoilerFlowTemp).add("logBoilerReturnTemp", ps.logBoilerReturnTemp)
+					.add("logBoilerBufferTempTop", ps.logBoilerBufferTempTop)
+					.add("logBoilerBufferTempMin", ps.logBoilerBufferTempMin).add("logBoilerTempMin", ps.logBoilerTempMin)
+					.add("logBoilerSpreadingMin", ps.logBoilerSpreadingMin)
+					.add("logBoilerPumpSpeedMin", ps.logBoilerPumpSpeedMin)
+					.add("logBoilerPumpSpeedActual", ps.logBoilerPumpSpeedActual)
+					.add("logBoilderChargePumpIsOn", ps.logBoilderChargePumpIsOn)
+					.add("logBoilerSettings", ps.logBoilerSettings)
+					.add("logBoilerParallelOperation", ps.logBoilerParallelOperation)
+					.add("logBoilerOperationMode", ps.logBoilerOperationMode)
+					.add("logBoilerOperationModeName", ps.logBoilerOperationModeNames[ps.logBoilerOperationMode])
+					.add("boilerHeatsBuffer", ps.boilerHeatsBuffer).add("boilerOperationMode", ps.boilerOperationMode)
+					.add("boilerOperationModeName", ps.boilerOperationModeNames[ps.boilerOperationMode])
+					.add("boilerFlowTemp", ps.boilerFlowTemp).add("boilerReturnTemp", ps.boilerReturnTemp)
+					.add("boilerTempSet", ps.boilerTempSet).add("boilerSuperelevation", ps.boilerSuperelevation)
+					.add("boilerHysteresis", ps.boilerHysteresis).add("boilerOperationTime", ps.boilerOperationTime)
+					.add("boilerShutdownTemp", ps.boilerShutdownTemp).add("boilerPumpSpeedMin", ps.boilerPumpSpeedMin)
+					.add("boilerPumpSpeedActual", ps.boilerPumpSpeedActual).add("boilerLedIsOn", ps.boilerLedIsOn)
+					.add("circulationOperationMode", ps.circulationOperationMode)
+					.add("circulationOperationModeName", ps.circulationOperationModeNames[ps.circulationOperationMode])
+					.add("circulationTemp", ps.circulationTemp).add("circulationPumpIsOn", ps.circulationPumpIsOn)
+					.add("circulationPumpOverrun", ps.circulationPumpOverrun)
+					.add("circulationLockoutTimePushButton", ps.circulationLockoutTimePushButton)
+					.add("circulationHysteresis", ps.circulationHysteresis).add("circuit2FlowTemp", ps.circuit2FlowTemp)
+					.add("circuit2ReturnTemp", ps.circuit2ReturnTemp)
+					.add("circuit2FlowTempSet", ps.circuit2FlowTempSet).add("roomTempActual1", ps.roomTempActual1)
+					.add("roomTempSet1", ps.roomTempSet1).add("roomTempActual2", ps.roomTempActual2)
+					.add("roomTempSet2", ps.roomTempSet2).add("roomTempSetNormal", ps.roomTempSetNormal)
+					.add("roomTempSetComfort", ps.roomTempSetComfort).add("roomTempSetLowering", ps.roomTempSetLowering)
+					.add("roomImpact", ps.roomImpact).add("roomTempCorrection", ps.roomTempCorrection)
+					.add("collectorTempActual", ps.collectorTempActual).add("swimmingpoolTemp", ps.swimmingpoolTemp)
+					.add("swimmingpoolFlowTemp", ps.swimmingpoolFlowTemp)
+					.add("swimmingpoolReturnTemp", ps.swimmingpoolReturnTemp)
+					.add("heatingOperationMode", ps.heatingOperationMode)
+					.add("heatingOperationModeName", ps.heatingOperationModes[ps.heatingOperationMode])
+					.add("heatingCurveBasePoint", ps.heatingCurveBasePoint)
+					.add("heatingCurveGradient", ps.heatingCurveGradient).add("heatingLimitTemp", ps.heatingLimitTemp)
+					.add("heatingLimitTeampLowering", ps.heatingLimitTeampLowering)
+					.add("heatingPumpSpeedActual", ps.heatingPumpSpeedActual)
+					.add("heatingPumpOverrun", ps.heatingPumpOverrun).add("heatingPumpIsOn", ps.heatingPumpIsOn)
+					.add("heatingCircuitSpreading", ps.heatingCircuitSpreading)
+					.add("heatingPumpSpeedMin", ps.heatingPumpSpeedMin).add("controlledBy", ps.controlledBy)
+					.add("controlMethodName", ps.controlMethods[ps.controlledBy]).add("maxFlowTemp", ps.maxFlowTemp)
+					.add("antiFreezeOutsideTemp", ps.antiFreezeOutsideTemp).add("heatUpTime", ps.heatUpTime)
+					.add("mixerRuntime", ps.mixerRuntime).add("mixer1IsOnWarm", ps.mixer1IsOnWarm)
+					.add("mixer1IsOnCool", ps.mixer1IsOnCool).add("mixer1State", ps.mixer1State)
+					.add("mixer1StateName", ps.mixerStateNames[ps.mixer1State])
+					.add("underfloorHeatingBasePoint", ps.underfloorHeatingBasePoint)
+					.add("underfloorHeatingGradient", ps.underfloorHeatingGradient).add("bufferTempMax", ps.bufferTempMax)
+					.add("bufferTempMin", ps.bufferTempMin).add("adjustRoomTempBy", ps.adjustRoomTempBy)
+					.add("solarPowerActual", ps.solarPowerActual).add("solarGainDay", ps.solarGainDay)
+					.add("solarGainTotal", ps.solarGainTotal).add("relay", ps.relay)
+					.add("chargePumpIsOn", ps.chargePumpIsOn).add("boilerIsOn", ps.boilerIsOn)
+					.add("burnerIsOn", ps.burnerIsOn).add("systemNumberOfStarts", ps.systemNumberOfStarts)
+					.add("burnerNumberOfStarts", ps.burnerNumberOfStarts)
+					.add("boilerOperationTimeHours", ps.boilerOperationTimeHours)
+					.add("boilerOperationTimeMinutes", ps.boilerOperationTimeMinutes)
+					.add("unknowRelayState1IsOn", ps.unknowRelayState1IsOn)
+					.add("unknowRelayState2IsOn", ps.unknowRelayState2IsOn)
+					.add("unknowRelayState5IsOn", ps.unknowRelayState5IsOn).add("error", ps.error)
+					.add("operationModeX", ps.operationModeX).add("heatingOperationModeX", ps.heatingOperationModeX)
+					.add("stale", ps.stale).add("timestamp", ps.timestamp).add("timestampString", ps.timestampString);
 		}
-		JsonObject jo = jsonFactory.createObjectBuilder().add("outsideTemp", ps.outsideTemp)
-				.add("operationMode", ps.operationMode).add("operationModeName", ps.operationModes[ps.operationMode])
-				.add("circuit1FlowTemp", ps.circuit1FlowTemp).add("circuit1ReturnTemp", ps.circuit1ReturnTemp)
-				.add("circuit1FlowTempSet", ps.circuit1FlowTempSet).add("circuit1LeadTime", ps.circuit1LeadTime)
-				.add("circuit1OperationMode", ps.circuit1OperationMode)
-				.add("circuit1OperationModeName", ps.circuit1OperationModeNames[ps.circuit1OperationMode])
-				.add("hotWaterTemp", ps.hotWaterTemp).add("hotWaterTempSet", ps.hotWaterTempSet)
-				.add("hotWaterTempNormal", ps.hotWaterTempNormal).add("hotWaterTempComfort", ps.hotWaterTempComfort)
-				.add("hotWaterTempMax", ps.hotWaterTempMax).add("hotWaterOperationMode", ps.hotWaterOperationMode)
-				.add("hotWaterOperationModeName", ps.hotWaterOperationModes[ps.hotWaterOperationMode])
-				.add("hotWaterHysteresis", ps.hotWaterHysteresis).add("bufferTempTop", ps.bufferTempTop)
-				.add("bufferTempBottom", ps.bufferTempBottom).add("bufferTempSet", ps.bufferTempSet)
-				.add("bufferType", ps.bufferType).add("bufferTypeName", ps.bufferTypeNames[ps.bufferType])
-				.add("logBoilerFlowTemp", ps.logBoilerFlowTemp).add("logBoilerReturnTemp", ps.logBoilerReturnTemp)
-				.add("logBoilerBufferTempTop", ps.logBoilerBufferTempTop)
-				.add("logBoilerBufferTempMin", ps.logBoilerBufferTempMin).add("logBoilerTempMin", ps.logBoilerTempMin)
-				.add("logBoilerSpreadingMin", ps.logBoilerSpreadingMin)
-				.add("logBoilerPumpSpeedMin", ps.logBoilerPumpSpeedMin)
-				.add("logBoilerPumpSpeedActual", ps.logBoilerPumpSpeedActual)
-				.add("logBoilderChargePumpIsOn", ps.logBoilderChargePumpIsOn)
-				.add("logBoilerSettings", ps.logBoilerSettings)
-				.add("logBoilerParallelOperation", ps.logBoilerParallelOperation)
-				.add("logBoilerOperationMode", ps.logBoilerOperationMode)
-				.add("logBoilerOperationModeName", ps.logBoilerOperationModeNames[ps.logBoilerOperationMode])
-				.add("boilerHeatsBuffer", ps.boilerHeatsBuffer).add("boilerOperationMode", ps.boilerOperationMode)
-				.add("boilerOperationModeName", ps.boilerOperationModeNames[ps.boilerOperationMode])
-				.add("boilerFlowTemp", ps.boilerFlowTemp).add("boilerReturnTemp", ps.boilerReturnTemp)
-				.add("boilerTempSet", ps.boilerTempSet).add("boilerSuperelevation", ps.boilerSuperelevation)
-				.add("boilerHysteresis", ps.boilerHysteresis).add("boilerOperationTime", ps.boilerOperationTime)
-				.add("boilerShutdownTemp", ps.boilerShutdownTemp).add("boilerPumpSpeedMin", ps.boilerPumpSpeedMin)
-				.add("boilerPumpSpeedActual", ps.boilerPumpSpeedActual).add("boilerLedIsOn", ps.boilerLedIsOn)
-				.add("circulationOperationMode", ps.circulationOperationMode)
-				.add("circulationOperationModeName", ps.circulationOperationModeNames[ps.circulationOperationMode])
-				.add("circulationTemp", ps.circulationTemp).add("circulationPumpIsOn", ps.circulationPumpIsOn)
-				.add("circulationPumpOverrun", ps.circulationPumpOverrun)
-				.add("circulationLockoutTimePushButton", ps.circulationLockoutTimePushButton)
-				.add("circulationHysteresis", ps.circulationHysteresis).add("circuit2FlowTemp", ps.circuit2FlowTemp)
-				.add("circuit2FlowTemp", ps.circuit2FlowTemp).add("circuit2ReturnTemp", ps.circuit2ReturnTemp)
-				.add("circuit2FlowTempSet", ps.circuit2FlowTempSet).add("roomTempActual1", ps.roomTempActual1)
-				.add("roomTempSet1", ps.roomTempSet1).add("roomTempActual2", ps.roomTempActual2)
-				.add("roomTempSet2", ps.roomTempSet2).add("roomTempSetNormal", ps.roomTempSetNormal)
-				.add("roomTempSetComfort", ps.roomTempSetComfort).add("roomTempSetLowering", ps.roomTempSetLowering)
-				.add("roomImpact", ps.roomImpact).add("roomTempCorrection", ps.roomTempCorrection)
-				.add("collectorTempActual", ps.collectorTempActual).add("swimmingpoolTemp", ps.swimmingpoolTemp)
-				.add("swimmingpoolFlowTemp", ps.swimmingpoolFlowTemp)
-				.add("swimmingpoolReturnTemp", ps.swimmingpoolReturnTemp)
-				.add("heatingOperationMode", ps.heatingOperationMode)
-				.add("heatingOperationModeName", ps.heatingOperationModes[ps.heatingOperationMode])
-				.add("heatingCurveBasePoint", ps.heatingCurveBasePoint)
-				.add("heatingCurveGradient", ps.heatingCurveGradient).add("heatingLimitTemp", ps.heatingLimitTemp)
-				.add("heatingLimitTeampLowering", ps.heatingLimitTeampLowering)
-				.add("heatingPumpSpeedActual", ps.heatingPumpSpeedActual)
-				.add("heatingPumpOverrun", ps.heatingPumpOverrun).add("heatingPumpIsOn", ps.heatingPumpIsOn)
-				.add("heatingCircuitSpreading", ps.heatingCircuitSpreading)
-				.add("heatingPumpSpeedMin", ps.heatingPumpSpeedMin).add("controlledBy", ps.controlledBy)
-				.add("controlMethodName", ps.controlMethods[ps.controlledBy]).add("maxFlowTemp", ps.maxFlowTemp)
-				.add("antiFreezeOutsideTemp", ps.antiFreezeOutsideTemp).add("heatUpTime", ps.heatUpTime)
-				.add("mixerRuntime", ps.mixerRuntime).add("mixer1IsOnWarm", ps.mixer1IsOnWarm)
-				.add("mixer1IsOnCool", ps.mixer1IsOnCool).add("mixer1State", ps.mixer1State)
-				.add("mixer1StateName", ps.mixerStateNames[ps.mixer1State])
-				.add("underfloorHeatingBasePoint", ps.underfloorHeatingBasePoint)
-				.add("underfloorHeatingGradient", ps.underfloorHeatingGradient).add("bufferTempMax", ps.bufferTempMax)
-				.add("bufferTempMin", ps.bufferTempMin).add("adjustRoomTempBy", ps.adjustRoomTempBy)
-				.add("solarPowerActual", ps.solarPowerActual).add("solarGainDay", ps.solarGainDay)
-				.add("solarGainTotal", ps.solarGainTotal).add("relay", ps.relay)
-				.add("chargePumpIsOn", ps.chargePumpIsOn).add("boilerIsOn", ps.boilerIsOn)
-				.add("burnerIsOn", ps.burnerIsOn).add("systemNumberOfStarts", ps.systemNumberOfStarts)
-				.add("burnerNumberOfStarts", ps.burnerNumberOfStarts)
-				.add("boilerOperationTimeHours", ps.boilerOperationTimeHours)
-				.add("boilerOperationTimeMinutes", ps.boilerOperationTimeMinutes)
-				.add("unknowRelayState1IsOn", ps.unknowRelayState1IsOn)
-				.add("unknowRelayState2IsOn", ps.unknowRelayState2IsOn)
-				.add("unknowRelayState5IsOn", ps.unknowRelayState5IsOn).add("error", ps.error)
-				.add("operationModeX", ps.operationModeX).add("heatingOperationModeX", ps.heatingOperationModeX)
-				.add("timestamp", ps.timestamp).add("timestampString", ps.timestampString).build();
-		return jo;
+		g.writeEnd();
+	}
+
+	/**
+	 * Subscribe to a stream of Server-Sent Events. Each time new data is received
+	 * from the SystaComfort, an event holding the same JSON as returned by the
+	 * endpoint with the name of the {@code representation} is sent. The event name
+	 * is the {@code representation}, the event id is the timestamp of the data. If
+	 * data has already been received, the current data is sent right after
+	 * subscribing. Comments are sent as heartbeat, if no data is received for a
+	 * while
+	 *
+	 * @param representation {@code rawdata}, {@code waterheater} or
+	 *                       {@code status}
+	 * @param sink           the {@link SseEventSink} of the client
+	 * @param sse            the {@link Sse} of the server
+	 */
+	@GET
+	@Path("{stream : (?i)stream}/{representation : (?i)(rawdata|waterheater|status)}")
+	@Produces(MediaType.SERVER_SENT_EVENTS)
+	public void stream(@PathParam("representation") String representation, @Context SseEventSink sink,
+			@Context Sse sse) {
+		getEventStream(sse).subscribe(representation.toLowerCase(), sink);
+	}
 
+	/**
+	 * @param sse the {@link Sse} used by the {@link SnapshotEventStream}
+	 * @return the {@link SnapshotEventStream} shared by all requests
+	 */
+	private SnapshotEventStream getEventStream(Sse sse) {
+		synchronized (SystaRESTAPI.class) {
+			if (eventStream == null) {
+				eventStream = new SnapshotEventStream(sse, fsw.getSnapshots(),
+						r -> jsonCache.get(r, fsw.getSnapshotVersion(), writerFor(r)));
+			}
+			return eventStream;
+		}
+	}
+
+	/**
+	 * @param representation {@code rawdata}, {@code waterheater} or
+	 *                       {@code status}
+	 * @return the writer of the {@code representation}
+	 */
+	private Consumer<JsonGenerator> writerFor(String representation) {
+		switch (representation) {
+		case "rawdata":
+			return g -> writeRawData(g, null);
+		case "waterheater":
+			return this::writeWaterHeater;
+		case "status":
+			return g -> writeStatus(g, null);
+		default:
+			throw new IllegalArgumentException("unknown representation " + representation);
+		}
+	}
+
+	/**
+	 * returns the averages of the received values for a time range. The history
+	 * is filled with the received data and with the data log files found in the
+	 * log directory at startup.
+	 *
+	 * @param resolution {@code minute} (last 24 hours), {@code hour} (last 90
+	 *                   days) or {@code day} (last 10 years). Defaults to
+	 *                   {@code hour}
+	 * @param from       start of the time range in epoch milliseconds. Defaults
+	 *                   to {@code 0}
+	 * @param to         end of the time range in epoch milliseconds. Defaults to
+	 *                   now
+	 * @param indices    comma separated list of the indices of the values to
+	 *                   return, e.g. {@code 0,1,36}. Defaults to all indices
+	 * @return JsonObject holding the timestamps and averaged values
+	 */
+	@GET
+	@Path("{history : (?i)history}")
+	@Produces(MediaType.APPLICATION_JSON)
+	public Response getHistory(@DefaultValue("hour") @QueryParam("resolution") String resolution,
+			@DefaultValue("0") @QueryParam("from") long from, @QueryParam("to") Long to,
+			@QueryParam("indices") String indices) {
+		HistorySeries series;
+		try {
+			int[] idx = null;
+			if (indices != null && !indices.isBlank()) {
+				idx = Arrays.stream(indices.split(",")).map(String::trim).mapToInt(Integer::parseInt).toArray();
+			}
+			series = fsw.getHistory().query(Resolution.valueOf(resolution.trim().toUpperCase()), from,
+					(to == null) ? System.currentTimeMillis() : to, idx);
+		} catch (IllegalArgumentException e) {
+			return Response.status(Response.Status.BAD_REQUEST).entity(
+					jsonFactory.createObjectBuilder().add("error", String.valueOf(e.getMessage())).build()).build();
+		}
+		// a series can hold several hundred thousand values, so write them straight to
+		// the response instead of building a JsonObject first
+		StreamingOutput body = out -> {
+			try (JsonGenerator g = generatorFactory.createGenerator(out, StandardCharsets.UTF_8)) {
+				g.writeStartObject().write("resolution", series.resolution.toString().toLowerCase());
+				g.writeStartArray("indices");
+				for (int i : series.indices) {
+					g.write(i);
+				}
+				g.writeEnd().writeStartArray("timestamps");
+				for (long timestamp : series.timestamps) {
+					g.write(timestamp);
+				}
+				g.writeEnd().writeStartArray("values");
+				for (double[] row : series.values) {
+					g.writeStartArray();
+					for (double v : row) {
+						// same formatting as JsonArrayBuilder.add(double)
+						g.write(BigDecimal.valueOf(v));
+					}
+					g.writeEnd();
+				}
+				g.writeEnd().writeEnd();
+			}
+		};
+		return Response.ok(body).build();
 	}
 
 	/**
@@ -406,13 +910,26 @@ public class SystaRESTAPI {
 	 *                       entries. Defaults to {@code ;}
 	 * @param entriesPerFile the logger collects up to this number of elemnt before
 	 *                       writing the file to disk. Defaults to {@code 60}
+	 * @param rotation       {@code count}, {@code hourly} or {@code daily}. With
+	 *                       {@code hourly} or {@code daily} a log file never spans
+	 *                       more than one hour, respectively one day, and is
+	 *                       written to a {@code yyyy/MM/dd} subfolder. Defaults to
+	 *                       {@code count}
 	 */
 	@PUT
 	@Path("{enablelogging : (?i)enablelogging}")
 	public void enablelogging(@DefaultValue("SystaREST") @QueryParam("filePrefix") String filePrefix,
 			@DefaultValue(";") @QueryParam("logEntryDelimiter") String delimiter,
-			@DefaultValue("60") @QueryParam("entriesPerFile") int entriesPerFile) {
-		fsw.logRawData(filePrefix, delimiter, entriesPerFile);
+			@DefaultValue("60") @QueryParam("entriesPerFile") int entriesPerFile,
+			@DefaultValue("count") @QueryParam("rotation") String rotation) {
+		RotationPolicy rotationPolicy;
+		try {
+			rotationPolicy = RotationPolicy.valueOf(rotation.toUpperCase());
+		} catch (IllegalArgumentException e) {
+			System.out.println("[SystaRESTAPI] enablelogging: unknown rotation " + rotation + ", using count");
+			rotationPolicy = RotationPolicy.COUNT;
+		}
+		fsw.logRawData(filePrefix, delimiter, entriesPerFile, rotationPolicy);
 	}
 
 	/**
@@ -504,4 +1021,16 @@ public class SystaRESTAPI {
 		}
 	}
 
+	/**
+	 * a representation in the {@link #jsonCache} and the writer building it
+	 */
+	private static final class Representation {
+		final String name;
+		final Consumer<JsonGenerator> writer;
+
+		Representation(String name, Consumer<JsonGenerator> writer) {
+			this.name = name;
+			this.writer = writer;
+		}
+	}
 }
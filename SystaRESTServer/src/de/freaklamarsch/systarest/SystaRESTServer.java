@@ -20,35 +20,38 @@ package de.freaklamarsch.systarest;
 
 import java.io.FileInputStream;
 import java.io.IOException;
+import java.lang.management.ManagementFactory;
 import java.net.Inet4Address;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
 import java.util.Enumeration;
+import java.util.Map;
 import java.util.Properties;
 
-import org.glassfish.jersey.jdkhttp.JdkHttpServerFactory;
 import org.glassfish.jersey.server.ResourceConfig;
 
-import com.sun.net.httpserver.HttpServer;
-
 import jakarta.ws.rs.core.UriBuilder;
 
 /**
- * The main function of this class starts an
- * {@link com.sun.net.httpserver.HttpServer} for providing {@link SystaRESTAPI}
- * and {@link STouchRESTAPI}. The main method requires a configured
- * SystaREST.properties for setting the interfaces that should be used. One
- * interface is used for the connection to the Paradigma SystaComfort II and one
- * for accessing the REST APIs.
+ * The main function of this class starts an {@link HttpEngine} for providing
+ * {@link SystaRESTAPI} and {@link STouchRESTAPI}. The main method requires a
+ * configured SystaREST.properties for setting the interfaces that should be
+ * used. One interface is used for the connection to the Paradigma SystaComfort
+ * II and one for accessing the REST APIs. The {@link FakeSystaWeb} is started by
+ * a {@link SystaLifecycle} while the HTTP server is starting, so packets from
+ * the SystaComfort are received as early as possible after boot.
  */
 public class SystaRESTServer {
 
 	public static void main(String[] args) {
+		long mainStarted = System.currentTimeMillis();
+		// the SystaPi has no display, AWT is only used for rendering the screen of
+		// the STouchRESTAPI into images
+		if (System.getProperty("java.awt.headless") == null) {
+			System.setProperty("java.awt.headless", "true");
+		}
 		// load configuration from SystaREST.properties
 		String rootPath = Thread.currentThread().getContextClassLoader().getResource("").getPath();
 		String defaultConfigPath = rootPath + "SystaREST.properties";
@@ -84,27 +87,36 @@ public class SystaRESTServer {
 		System.out.println("[SystaRESTServer] Starting SystaRESTServer");
 		URI baseUri = UriBuilder.fromUri("http://" + restAPIIPv4 + "/")
 				.port(Integer.parseInt(props.getProperty("RESTAPI_PORT"))).build();
-		ResourceConfig config = new ResourceConfig(SystaRESTAPI.class);
-		// config.register(new STouchRESTAPI());
-		config.register(STouchRESTAPI.class);
-		config.register(new CorsFilter());
-		config.property(SystaRESTAPI.PROP_PARADIGMA_IP, paradigmIPv4);
-		// config.property("jersey.config.server.wadl.disableWadl", true);
-		HttpServer server = JdkHttpServerFactory.createHttpServer(baseUri, config, false);
-		server.start();
-		System.out.println("[SystaRESTServer] SystaRESTServer started at " + baseUri);
+		ResourceConfig config = createResourceConfig(props, paradigmIPv4);
+		// start receiving packets from the SystaComfort, while the HTTP server is
+		// starting, instead of waiting for a request to SystaREST/start
+		SystaLifecycle lifecycle = new SystaLifecycle(new FakeSystaWeb(), config.getProperties());
+		lifecycle.recordStartupPhase("jvm", mainStarted - ManagementFactory.getRuntimeMXBean().getStartTime());
+		lifecycle.recordStartupPhase("config", System.currentTimeMillis() - mainStarted);
+		config.property(SystaRESTAPI.PROP_LIFECYCLE, lifecycle);
+		lifecycle.start();
+		HttpEngine server = null;
+		long httpStarted = System.currentTimeMillis();
 		try {
-			// start the SystaRESTAPI
-			System.out.println("[SystaRESTServer] Calling: " + baseUri + "SystaREST/start");
-			HttpClient client = HttpClient.newHttpClient();
-			HttpRequest request = HttpRequest.newBuilder().uri(URI.create(baseUri + "SystaREST/start"))
-					.POST(HttpRequest.BodyPublishers.ofString("")).build();
-			// send the POST SystaREST/start request
-			client.send(request, HttpResponse.BodyHandlers.ofString());
-			System.out.println("[SystaRESTServer] Returning from: " + baseUri + "SystaREST/start");
+			server = HttpEngine.create(props, baseUri, config);
+			server.start();
 		} catch (Exception e) {
 			e.printStackTrace();
+			System.out.println("[SystaRESTServer] Could not start the HTTP server. Exiting.");
+			System.exit(1);
 		}
+		lifecycle.recordStartupPhase("http", System.currentTimeMillis() - httpStarted);
+		System.out.println("[SystaRESTServer] SystaRESTServer started at " + baseUri + " using the "
+				+ server.getName() + " HTTP engine");
+		if (!lifecycle.awaitListening(SystaLifecycle.SOCKET_TIMEOUT)) {
+			System.out.println("[SystaRESTServer] FakeSystaWeb is not listening for packets");
+		}
+		lifecycle.recordStartupPhase("total", System.currentTimeMillis() - mainStarted);
+		StringBuilder startupTimes = new StringBuilder();
+		for (Map.Entry<String, Long> phase : lifecycle.getStartupMillis().entrySet()) {
+			startupTimes.append(' ').append(phase.getKey()).append('=').append(phase.getValue()).append("ms");
+		}
+		System.out.println("[SystaRESTServer] Startup times:" + startupTimes);
 		try {
 			System.out.println("[SystaRESTServer] Joining currenThread");
 			Thread.currentThread().join();
@@ -112,10 +124,72 @@ public class SystaRESTServer {
 		} catch (InterruptedException e) {
 			e.printStackTrace();
 		}
-		server.stop(0);
+		server.stop();
+		lifecycle.stop();
 		System.out.println("[SystaRESTServer] Server stopped");
 	}
 
+	/**
+	 * Create the {@link ResourceConfig} of the REST APIs. The
+	 * {@link STouchRESTAPI} is registered, but the emulated S-Touch and its
+	 * display are only created with the first request to it.
+	 *
+	 * @param props       the properties read from SystaREST.properties
+	 * @param paradigmaIP the IP address used for the connection to the Paradigma
+	 *                    SystaComfort II
+	 * @return the {@code ResourceConfig}
+	 */
+	public static ResourceConfig createResourceConfig(Properties props, String paradigmaIP) {
+		ResourceConfig config = new ResourceConfig(SystaRESTAPI.class);
+		// config.register(new STouchRESTAPI());
+		config.register(STouchRESTAPI.class);
+		config.register(new CorsFilter());
+		config.register(new CompressionFilter());
+		config.register(new LongPollFilter());
+		config.property(SystaRESTAPI.PROP_PARADIGMA_IP, paradigmaIP);
+		// limits for the log directory, values are given in MB and days
+		Long logMaxSize = longProperty(props, "LOG_MAX_SIZE_MB");
+		if (logMaxSize != null) {
+			config.property(SystaRESTAPI.PROP_LOG_MAX_BYTES, logMaxSize * 1024 * 1024);
+		}
+		Long logMaxAge = longProperty(props, "LOG_MAX_AGE_DAYS");
+		if (logMaxAge != null) {
+			config.property(SystaRESTAPI.PROP_LOG_MAX_AGE_DAYS, logMaxAge);
+		}
+		String historyImport = props.getProperty("HISTORY_IMPORT");
+		if (historyImport != null) {
+			config.property(SystaRESTAPI.PROP_HISTORY_IMPORT, historyImport.trim());
+		}
+		String deviceTouchListener = props.getProperty("DEVICE_TOUCH_LISTENER");
+		if (deviceTouchListener != null) {
+			config.property(SystaRESTAPI.PROP_DEVICE_TOUCH_LISTENER, deviceTouchListener.trim());
+		}
+		// config.property("jersey.config.server.wadl.disableWadl", true);
+		return config;
+	}
+
+	/**
+	 * helper function for reading numeric properties. Invalid values are logged
+	 * and ignored, so the default of the property is used.
+	 *
+	 * @param props the properties read from the config file
+	 * @param name  the name of the property
+	 * @return the value of the property, or {@code null} if it is not set or not
+	 *         a number
+	 */
+	private static Long longProperty(Properties props, String name) {
+		String value = props.getProperty(name);
+		if (value == null || value.isBlank()) {
+			return null;
+		}
+		try {
+			return Long.parseLong(value.trim());
+		} catch (NumberFormatException e) {
+			System.out.println("[SystaRESTServer] ignoring invalid " + name + "=" + value + ", using the default");
+			return null;
+		}
+	}
+
 	/**
 	 * Helper function to get the IPv4 address for a given interface name
 	 *
@@ -1081,6 +1081,11 @@ public class SystaStatus {
 	public final String[] circulationOperationModeNames = { "off", "overrun", "locked (time)", "locked",
 			"off (temperature)", "on", "anti freeze" };
 
+	/**
+	 * {@code true} if this status has been restored from the snapshot saved before
+	 * the last restart and no new data has been received since
+	 */
+	public boolean stale;
 	/**
 	 * timestamp for this status in number of milliseconds from the epoch of
 	 * 1970-01-01T00:00:00Z (UTC)
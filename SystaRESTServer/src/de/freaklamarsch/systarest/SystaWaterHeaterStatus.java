@@ -82,6 +82,11 @@ public class SystaWaterHeaterStatus {
 	 * The current status of away mode.
 	 */
 	public boolean is_away_mode_on;
+	/**
+	 * {@code true} if this status has been restored from the snapshot saved before
+	 * the last restart and no new data has been received since
+	 */
+	public boolean stale;
 	/**
 	 * The timestamp for this status.
 	 */
@@ -0,0 +1,157 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import de.freaklamarsch.systarest.AutomationJobs;
+import de.freaklamarsch.systarest.AutomationJobs.AutomationJobStatus;
+import de.freaklamarsch.systarest.AutomationJobs.Job;
+import de.freaklamarsch.systarest.AutomationJobs.State;
+
+public class AutomationJobsTest {
+
+	private static final String[] COMMANDS = { "connect", "touchText=Heizung", "disconnect" };
+
+	@Test
+	void testJobSucceeds() throws InterruptedException {
+		AutomationJobs jobs = new AutomationJobs();
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch atSecondStep = new CountDownLatch(1);
+		Job job = jobs.submit(COMMANDS, j -> {
+			for (int i = 0; i < COMMANDS.length; i++) {
+				j.step(i, COMMANDS[i]);
+				if (i == 1) {
+					atSecondStep.countDown();
+					release.await(5, TimeUnit.SECONDS);
+				}
+			}
+			return null;
+		});
+		assertTrue(atSecondStep.await(5, TimeUnit.SECONDS));
+		AutomationJobStatus status = jobs.getStatus(job.getStatus().id);
+		assertEquals(State.RUNNING, status.state);
+		assertEquals(1, status.step);
+		assertEquals(3, status.steps);
+		assertEquals("touchText=Heizung", status.command);
+		release.countDown();
+		status = jobs.await(job);
+		assertEquals(State.SUCCEEDED, status.state);
+		assertEquals(2, status.step);
+		assertTrue(status.finished >= status.started);
+	}
+
+	@Test
+	void testJobFails() throws InterruptedException {
+		AutomationJobs jobs = new AutomationJobs();
+		AutomationJobStatus status = jobs.await(jobs.submit(COMMANDS, j -> "Command failed: connect"));
+		assertEquals(State.FAILED, status.state);
+		assertEquals("Command failed: connect", status.message);
+		status = jobs.await(jobs.submit(COMMANDS, j -> {
+			throw new IllegalArgumentException("Unknown command");
+		}));
+		assertEquals(State.FAILED, status.state);
+		assertEquals("Unknown command", status.message);
+	}
+
+	@Test
+	void testJobsRunOneAfterTheOther() throws InterruptedException {
+		AutomationJobs jobs = new AutomationJobs();
+		List<String> executed = Collections.synchronizedList(new ArrayList<>());
+		List<Job> submitted = new ArrayList<>();
+		for (int i = 0; i < 5; i++) {
+			String name = "job" + i;
+			submitted.add(jobs.submit(COMMANDS, j -> {
+				executed.add(name + " start");
+				Thread.sleep(10);
+				executed.add(name + " end");
+				return null;
+			}));
+		}
+		for (Job job : submitted) {
+			assertEquals(State.SUCCEEDED, jobs.await(job).state);
+		}
+		for (int i = 0; i < 5; i++) {
+			assertEquals("job" + i + " start", executed.get(2 * i));
+			assertEquals("job" + i + " end", executed.get(2 * i + 1));
+		}
+		assertEquals(5, jobs.getStatus().size());
+		assertNotEquals(submitted.get(0).getStatus().id, submitted.get(1).getStatus().id);
+	}
+
+	@Test
+	void testCancelRunningAndQueuedJob() throws InterruptedException {
+		AutomationJobs jobs = new AutomationJobs();
+		CountDownLatch running = new CountDownLatch(1);
+		Job first = jobs.submit(COMMANDS, j -> {
+			j.step(0, COMMANDS[0]);
+			running.countDown();
+			// waits until the job is cancelled
+			Thread.sleep(60_000);
+			return null;
+		});
+		Job second = jobs.submit(COMMANDS, j -> null);
+		assertTrue(running.await(5, TimeUnit.SECONDS));
+		assertEquals(State.CANCELLED, jobs.cancel(second.getStatus().id).state);
+		jobs.cancel(first.getStatus().id);
+		AutomationJobStatus status = jobs.await(first);
+		assertEquals(State.CANCELLED, status.state);
+		assertEquals(0, status.step);
+		assertEquals(State.CANCELLED, jobs.await(second).state);
+		assertEquals(-1, second.getStatus().started, "a cancelled queued job should not be started");
+		// finished jobs can not be cancelled
+		assertThrows(IllegalStateException.class, () -> jobs.cancel(first.getStatus().id));
+		assertNull(jobs.cancel("unknown"));
+		assertNull(jobs.getStatus("unknown"));
+		// the thread is not interrupted for the next job
+		assertEquals(State.SUCCEEDED, jobs.await(jobs.submit(COMMANDS, j -> {
+			Thread.sleep(10);
+			return null;
+		})).state);
+	}
+
+	@Test
+	void testFinishedJobsAreRemoved() throws InterruptedException {
+		AutomationJobs jobs = new AutomationJobs();
+		Job first = null;
+		Job last = null;
+		for (int i = 0; i < AutomationJobs.MAX_FINISHED_JOBS + 10; i++) {
+			last = jobs.submit(COMMANDS, j -> null);
+			jobs.await(last);
+			if (first == null) {
+				first = last;
+			}
+		}
+		assertTrue(jobs.getStatus().size() <= AutomationJobs.MAX_FINISHED_JOBS + 1);
+		assertNull(jobs.getStatus(first.getStatus().id));
+		assertEquals(State.SUCCEEDED, jobs.getStatus(last.getStatus().id).state);
+	}
+}
@@ -0,0 +1,97 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.freaklamarsch.systarest.BroadcastRing;
+
+public class BroadcastRingTest {
+
+	@Test
+	public void testAllConsumersReceiveAllElements() {
+		BroadcastRing<Integer> ring = new BroadcastRing<>(8);
+		BroadcastRing<Integer>.Cursor a = ring.subscribe("a");
+		BroadcastRing<Integer>.Cursor b = ring.subscribe("b");
+		for (int i = 0; i < 5; i++) {
+			ring.publish(i);
+		}
+		List<Integer> received = new ArrayList<>();
+		assertEquals(5, a.drainTo(received, 10));
+		assertEquals(List.of(0, 1, 2, 3, 4), received);
+		assertEquals(0, a.getLag());
+		assertEquals(5, b.getLag(), "consumers should read independently");
+		assertEquals(0, (int) b.poll());
+		assertEquals(4, ring.getSequence());
+		assertEquals(4, (int) ring.getLatest());
+		assertEquals(2, ring.getCursors().size());
+	}
+
+	@Test
+	public void testSlowConsumerIsLapped() {
+		BroadcastRing<Integer> ring = new BroadcastRing<>(4);
+		BroadcastRing<Integer>.Cursor slow = ring.subscribe("slow");
+		for (int i = 0; i < 10; i++) {
+			// the producer is never blocked
+			ring.publish(i);
+		}
+		assertEquals(6, (int) slow.poll(), "a lapped consumer should continue with the oldest element");
+		assertEquals(6, slow.getMissed());
+		List<Integer> received = new ArrayList<>();
+		slow.drainTo(received, 10);
+		assertEquals(List.of(7, 8, 9), received);
+		assertNull(slow.poll());
+	}
+
+	@Test
+	public void testSubscribeAndUnsubscribe() throws InterruptedException {
+		BroadcastRing<Integer> ring = new BroadcastRing<>(4);
+		ring.publish(0);
+		BroadcastRing<Integer>.Cursor late = ring.subscribe("late");
+		assertNull(late.poll(), "a new consumer should only receive new elements");
+		BroadcastRing<Integer>.Cursor latest = ring.subscribeFromLatest("latest");
+		assertEquals(0, (int) latest.poll(), "subscribeFromLatest should deliver the last element");
+
+		Thread publisher = new Thread(() -> {
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				return;
+			}
+			ring.publish(1);
+		});
+		publisher.start();
+		assertEquals(1, (int) late.poll(5000), "poll with timeout should wait for the next element");
+		publisher.join();
+		assertNull(late.poll(10), "poll with timeout should return null, if nothing is published");
+
+		ring.unsubscribe(late);
+		assertFalse(late.isSubscribed());
+		assertEquals(1, ring.getCursors().size());
+		assertTrue(ring.getCursors().contains(latest));
+	}
+}
@@ -20,9 +20,14 @@ package de.freaklamarsch.systarest.tests;
 
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 
 import org.junit.jupiter.api.Test; // Replaced org.junit.Test
 
@@ -338,4 +343,83 @@ public class CircularBufferTest {
         assertTrue(buffer.isEmpty(), "Freshly created buffer should be empty");
         assertEquals(0, buffer.size(), "Freshly created buffer should have size 0");
     }
+
+	/**
+	 * fill a buffer of capacity 5 so that its content wraps around the end of the
+	 * underlying array: [4, 5, 6]
+	 */
+	private CircularBuffer<Integer> createWrappedBuffer() {
+		CircularBuffer<Integer> buffer = new CircularBuffer<>(5);
+		buffer.setOverwrite(true);
+		for (int i = 0; i < 7; i++) {
+			buffer.add(i);
+		}
+		buffer.remove();
+		buffer.remove();
+		return buffer;
+	}
+
+	@Test
+	public void testGetAndToArray() {
+		CircularBuffer<Integer> buffer = createWrappedBuffer();
+		assertEquals(3, buffer.size(), "Size should be 3 after adding 7 and removing 2 with capacity 5");
+		assertEquals(4, (int) buffer.get(0), "get(0) should return the oldest element");
+		assertEquals(6, (int) buffer.get(2), "get(size-1) should return the newest element");
+		assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(3));
+		assertArrayEquals(new Integer[] { 4, 5, 6 }, buffer.toArray(new Integer[3], 0, 3),
+				"toArray should copy across the end of the array");
+		assertArrayEquals(new Object[] { 5, 6 }, buffer.toArray(1, 3));
+		assertArrayEquals(new Integer[] { 4 }, buffer.toArray(new Integer[0], 0, 1),
+				"toArray should allocate a new array, if the given one is too small");
+		assertThrows(IndexOutOfBoundsException.class, () -> buffer.toArray(0, 4));
+		assertEquals(3, buffer.size(), "toArray should not remove elements");
+	}
+
+	@Test
+	public void testDrainTo() {
+		CircularBuffer<Integer> buffer = createWrappedBuffer();
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(2, buffer.drainTo(drained, 2), "drainTo should remove up to maxElements");
+		assertEquals(List.of(4, 5), drained);
+		assertEquals(1, buffer.drainTo(drained, 10), "drainTo should remove not more than size elements");
+		assertEquals(List.of(4, 5, 6), drained);
+		assertTrue(buffer.isEmpty(), "Buffer should be empty after draining all elements");
+		assertEquals(0, buffer.drainTo(drained, 10));
+	}
+
+	@Test
+	public void testAddAll() {
+		CircularBuffer<Integer> buffer = createWrappedBuffer();
+		assertEquals(4, buffer.addAll(new Integer[] { 7, 8, 9, 10 }), "addAll with overwrite should add all elements");
+		assertArrayEquals(new Object[] { 6, 7, 8, 9, 10 }, buffer.toArray(0, buffer.size()),
+				"addAll should overwrite the oldest elements");
+		assertEquals(5, buffer.addAll(new Integer[] { 11, 12, 13, 14, 15, 16, 17 }),
+				"addAll should only keep capacity elements");
+		assertArrayEquals(new Object[] { 13, 14, 15, 16, 17 }, buffer.toArray(0, buffer.size()));
+		assertEquals(17, (int) buffer.end());
+
+		CircularBuffer<Integer> noOverwrite = new CircularBuffer<>(3);
+		noOverwrite.add(0);
+		assertEquals(2, noOverwrite.addAll(new Integer[] { 1, 2, 3 }),
+				"addAll without overwrite should only add the fitting elements");
+		assertArrayEquals(new Object[] { 0, 1, 2 }, noOverwrite.toArray(0, 3));
+		assertEquals(0, noOverwrite.addAll(new Integer[] { 4 }), "addAll to a full buffer should add nothing");
+	}
+
+	@Test
+	public void testSnapshotIterator() {
+		CircularBuffer<Integer> buffer = createWrappedBuffer();
+		Iterator<Integer> iterator = buffer.iterator();
+		// changes after the creation of the iterator are not visible
+		buffer.add(7);
+		buffer.remove();
+		List<Integer> elements = new ArrayList<>();
+		iterator.forEachRemaining(elements::add);
+		assertEquals(List.of(4, 5, 6), elements);
+		elements.clear();
+		for (Integer i : buffer) {
+			elements.add(i);
+		}
+		assertEquals(List.of(5, 6, 7), elements);
+	}
 }
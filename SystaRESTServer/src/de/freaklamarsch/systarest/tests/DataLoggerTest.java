@@ -389,4 +389,39 @@ public class DataLoggerTest {
         }
         assertEquals(0, files.size(), "No log file with prefix '" + prefix + "' should exist.");
     }
+
+    @Test
+    void testHourlyRotation() throws IOException {
+        logger.saveLoggedData("hourly", ";", 10, DataLogger.RotationPolicy.HOURLY);
+        long hour = java.time.ZonedDateTime.of(2025, 6, 14, 13, 0, 0, 0, ZoneId.systemDefault()).toInstant()
+                .toEpochMilli();
+        Integer[] entryData = { 1, 2, 3 };
+        logger.addData(entryData.clone(), hour + 58 * 60_000);
+        logger.addData(entryData.clone(), hour + 59 * 60_000);
+        assertEquals(0, logger.getStatus().writerFileCount, "No file should be written within the hour.");
+        // the next entry belongs to the next hour and closes the file
+        logger.addData(entryData.clone(), hour + 60 * 60_000);
+        assertEquals(1, logger.getStatus().writerFileCount, "The file of the first hour should be written.");
+        assertEquals(1, logger.getStatus().bufferedEntries, "The new entry should be buffered.");
+        assertEquals(DataLogger.RotationPolicy.HOURLY, logger.getStatus().rotationPolicy);
+
+        DateTimeFormatter fileTs = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss").withZone(ZoneId.systemDefault());
+        Path logFile = logPath.resolve("2025").resolve("06").resolve("14")
+                .resolve("hourly--" + fileTs.format(Instant.ofEpochMilli(hour + 58 * 60_000)) + "_"
+                        + fileTs.format(Instant.ofEpochMilli(hour + 59 * 60_000)) + ".txt");
+        assertTrue(Files.exists(logFile), "File should be named by its time range in a date directory: " + logFile);
+        verifyFileContent(logFile, ";", List.of(Map.entry(hour + 58 * 60_000, entryData),
+                Map.entry(hour + 59 * 60_000, entryData)), entryData.length);
+    }
+
+    @Test
+    void testCountRotationDoesNotOverwrite() throws IOException {
+        String prefix = "restart";
+        Path existing = logPath.resolve(prefix + "--0.txt");
+        Files.writeString(existing, "written before the restart");
+        logger.saveLoggedData(prefix, ";", 1);
+        logger.addData(dataArray.clone(), Instant.now().toEpochMilli());
+        assertEquals("written before the restart", Files.readString(existing), "Existing file must not be overwritten.");
+        assertTrue(Files.exists(logPath.resolve(prefix + "--1.txt")), "The next free file name should be used.");
+    }
 }
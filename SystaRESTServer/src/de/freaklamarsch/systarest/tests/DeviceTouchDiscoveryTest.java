@@ -0,0 +1,176 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+import de.freaklamarsch.systarest.DeviceTouchDiscovery;
+import de.freaklamarsch.systarest.DeviceTouchDiscovery.DeviceTouchDiscoveryStatus;
+import de.freaklamarsch.systarest.DeviceTouchSearch;
+import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
+
+public class DeviceTouchDiscoveryTest {
+	private static final String INFO_STRING = "SC2 1 192.168.11.23 255.255.255.0 192.168.11.1 SystaComfort-II0 0809720001 0 V0.34 V1.00 2CBE9700BEE9";
+
+	private final AtomicInteger searches = new AtomicInteger();
+
+	private List<DeviceTouchDeviceInfo> search() {
+		searches.incrementAndGet();
+		return List.of(DeviceTouchSearch.parseDeviceTouchInfoString(INFO_STRING));
+	}
+
+	@Test
+	void testLookupIsCached() {
+		DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(this::search, 60_000, 60_000);
+		DeviceTouchDeviceInfo info = discovery.lookup();
+		assertEquals("2CBE9700BEE9", info.mac);
+		for (int i = 0; i < 100; i++) {
+			assertSame(info, discovery.lookup());
+		}
+		assertEquals(1, searches.get());
+		DeviceTouchDiscoveryStatus status = discovery.getStatus();
+		assertEquals(1, status.units);
+		assertEquals(100, status.hits);
+		assertEquals(1, status.misses);
+		assertEquals(1, status.searches);
+		// refresh searches, even if the cached unit has not expired
+		discovery.refresh();
+		assertEquals(2, searches.get());
+		discovery.invalidate();
+		discovery.lookup();
+		assertEquals(3, searches.get());
+	}
+
+	@Test
+	void testExpiredLookupSearchesAgain() throws InterruptedException {
+		DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(this::search, 50, 50);
+		discovery.lookup();
+		Thread.sleep(80);
+		discovery.lookup();
+		assertEquals(2, searches.get());
+	}
+
+	@Test
+	void testRefreshAhead() throws InterruptedException {
+		DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(this::search, 400, 400);
+		DeviceTouchDeviceInfo info = discovery.lookup();
+		Thread.sleep(250);
+		// after half of the ttl, the cached unit is returned and refreshed in the
+		// background
+		assertSame(info, discovery.lookup());
+		long deadline = System.currentTimeMillis() + 2000;
+		while (searches.get() < 2 && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertEquals(2, searches.get());
+	}
+
+	@Test
+	void testNotFound() throws InterruptedException {
+		AtomicInteger calls = new AtomicInteger();
+		DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(() -> {
+			calls.incrementAndGet();
+			return List.of();
+		}, 60_000, 50);
+		assertNull(discovery.lookup());
+		assertNull(discovery.lookup());
+		assertEquals(1, calls.get(), "not finding a unit should be cached");
+		assertEquals(0, discovery.getStatus().units);
+		assertTrue(discovery.lookupAll().isEmpty());
+		Thread.sleep(80);
+		assertNull(discovery.lookup());
+		assertEquals(2, calls.get(), "not finding a unit should be cached for a shorter time");
+	}
+
+	@Test
+	void testLostReplyKeepsUnit() {
+		AtomicInteger calls = new AtomicInteger();
+		DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(
+				() -> (calls.incrementAndGet() == 1)
+						? List.of(DeviceTouchSearch.parseDeviceTouchInfoString(INFO_STRING))
+						: null,
+				60_000, 60_000);
+		DeviceTouchDeviceInfo info = discovery.lookup();
+		assertSame(info, discovery.refresh());
+		assertSame(info, discovery.lookup());
+	}
+
+	@Test
+	void testLookupSelectsSTouchUnit() {
+		DeviceTouchDeviceInfo other = DeviceTouchSearch.parseDeviceTouchInfoString(
+				"SC2 1 192.168.11.24 255.255.255.0 192.168.11.1 SystaComfort-II0 0809720002 0 V0.34 V1.00 2CBE9700BEEA");
+		DeviceTouchDeviceInfo stouch = DeviceTouchSearch.parseDeviceTouchInfoString(INFO_STRING);
+		stouch.stouchSupported = true;
+		DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(() -> List.of(other, stouch), 60_000, 60_000);
+		assertEquals(List.of(other, stouch), discovery.lookupAll());
+		assertSame(stouch, discovery.lookup());
+		assertEquals(2, discovery.getStatus().units);
+	}
+
+	@Test
+	void testConcurrentLookupsShareOneSearch() throws InterruptedException {
+		CountDownLatch searching = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(() -> {
+			searching.countDown();
+			try {
+				release.await(5, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return search();
+		}, 60_000, 60_000);
+		List<Thread> callers = new ArrayList<>();
+		List<DeviceTouchDeviceInfo> results = new ArrayList<>();
+		for (int i = 0; i < 8; i++) {
+			Thread t = new Thread(() -> {
+				DeviceTouchDeviceInfo info = discovery.lookup();
+				synchronized (results) {
+					results.add(info);
+				}
+			});
+			callers.add(t);
+			t.start();
+		}
+		assertTrue(searching.await(5, TimeUnit.SECONDS));
+		// give the other callers time to join the running search
+		Thread.sleep(50);
+		release.countDown();
+		for (Thread t : callers) {
+			t.join(5000);
+		}
+		assertEquals(8, results.size());
+		for (DeviceTouchDeviceInfo info : results) {
+			assertSame(results.get(0), info);
+		}
+		assertEquals(1, searches.get());
+		assertEquals(7, discovery.getStatus().coalesced);
+	}
+}
@@ -0,0 +1,156 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import org.junit.jupiter.api.Test;
+
+import de.freaklamarsch.systarest.DeviceTouchDiscovery;
+import de.freaklamarsch.systarest.DeviceTouchDiscovery.DeviceTouchDiscoveryStatus;
+import de.freaklamarsch.systarest.DeviceTouchListener;
+import de.freaklamarsch.systarest.DeviceTouchSearch;
+import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
+import de.freaklamarsch.systarest.DeviceTouchSearch.SearchTarget;
+
+public class DeviceTouchListenerTest {
+	private static final String STOUCH_INFO = "SC2 1 127.0.0.1 255.0.0.0 127.0.0.1 SystaComfort-II0 0809720001 0 V0.34 V1.00 2CBE9700BEE9";
+	private static final String OTHER_INFO = "SC2 1 127.0.0.2 255.0.0.0 127.0.0.1 SystaComfort-II0 0809720002 0 V0.34 V1.00 2CBE9700BEEA";
+
+	private static void await(BooleanSupplier condition) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 3000;
+		while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(5);
+		}
+		assertTrue(condition.getAsBoolean());
+	}
+
+	@Test
+	void testRegistersUnits() throws Exception {
+		InetAddress first = InetAddress.getByName("127.0.0.1");
+		InetAddress second = InetAddress.getByName("127.0.0.2");
+		try (DatagramSocket stouchUnit = new DatagramSocket(new InetSocketAddress(first, 0))) {
+			int port = stouchUnit.getLocalPort();
+			DeviceTouchSearchTest.startFakeUnit(stouchUnit, STOUCH_INFO, "0 7 3477", "0 7 1234");
+			DeviceTouchListener listener = new DeviceTouchListener(0, port, List.of(new SearchTarget(first, first, 32)));
+			try (DatagramSocket otherUnit = new DatagramSocket(new InetSocketAddress(second, port))) {
+				DeviceTouchSearchTest.startFakeUnit(otherUnit, OTHER_INFO, "0 7 unknown value:Uremoteportalde", null);
+				listener.start();
+				// the unit replies to the search broadcast sent by start()
+				await(listener::isComplete);
+				DeviceTouchDeviceInfo stouch = listener.getUnits().get(0);
+				assertEquals("2CBE9700BEE9", stouch.mac);
+				assertTrue(stouch.stouchSupported);
+				assertEquals(3477, stouch.port);
+				assertEquals("1234", stouch.password);
+				assertEquals("127.0.0.1", stouch.localIp);
+				// the other unit announces itself
+				byte[] data = OTHER_INFO.getBytes(StandardCharsets.ISO_8859_1);
+				otherUnit.send(new DatagramPacket(data, data.length, first, listener.getLocalPort()));
+				await(() -> listener.getUnits().size() == 2 && listener.isComplete());
+				DeviceTouchDeviceInfo other = listener.getUnits().get(1);
+				assertEquals("2CBE9700BEEA", other.mac);
+				assertFalse(other.stouchSupported);
+				// announcing again does not replace a complete unit
+				long received = listener.getReceived();
+				otherUnit.send(new DatagramPacket(data, data.length, first, listener.getLocalPort()));
+				await(() -> listener.getReceived() > received);
+				assertSame(other, listener.getUnits().get(1));
+			} finally {
+				listener.stop();
+			}
+			assertFalse(listener.isListening());
+			assertEquals(2, listener.getUnits().size(), "the registry should be kept after stop");
+		}
+	}
+
+	@Test
+	void testDiscoveryUsesListener() throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		try (DatagramSocket unit = new DatagramSocket(new InetSocketAddress(loopback, 0))) {
+			DeviceTouchSearchTest.startFakeUnit(unit, STOUCH_INFO, "0 7 3477", "0 7 1234");
+			DeviceTouchListener listener = new DeviceTouchListener(0, unit.getLocalPort(),
+					List.of(new SearchTarget(loopback, loopback, 32)));
+			AtomicInteger searches = new AtomicInteger();
+			DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(() -> {
+				searches.incrementAndGet();
+				return List.of();
+			}, 60_000, 60_000);
+			try {
+				listener.start();
+				discovery.setListener(listener);
+				await(listener::isComplete);
+				for (int i = 0; i < 10; i++) {
+					assertEquals("2CBE9700BEE9", discovery.lookup().mac);
+				}
+				assertEquals(0, searches.get(), "lookups should be answered from the registry");
+				DeviceTouchDiscoveryStatus status = discovery.getStatus();
+				assertTrue(status.listening);
+				assertEquals(1, status.listenerUnits);
+				assertEquals(10, status.listenerHits);
+				// invalidate clears the registry and searches again
+				discovery.invalidate();
+				await(listener::isComplete);
+				assertTrue(discovery.lookup().stouchSupported);
+			} finally {
+				listener.stop();
+			}
+		}
+	}
+
+	@Test
+	void testSearchResultsAreRegistered() throws Exception {
+		InetAddress loopback = InetAddress.getByName("127.0.0.1");
+		try (DatagramSocket silent = new DatagramSocket(new InetSocketAddress(loopback, 0))) {
+			DeviceTouchListener listener = new DeviceTouchListener(0, silent.getLocalPort(),
+					List.of(new SearchTarget(loopback, loopback, 32)));
+			AtomicInteger searches = new AtomicInteger();
+			DeviceTouchDiscovery discovery = new DeviceTouchDiscovery(() -> {
+				searches.incrementAndGet();
+				DeviceTouchDeviceInfo info = DeviceTouchSearch.parseDeviceTouchInfoString(STOUCH_INFO);
+				info.stouchSupported = true;
+				return List.of(info);
+			}, 0, 0);
+			try {
+				listener.start();
+				discovery.setListener(listener);
+				// no unit replies to the listener, so the discovery searches
+				DeviceTouchDeviceInfo info = discovery.lookup();
+				assertEquals(1, searches.get());
+				assertTrue(listener.isComplete());
+				assertSame(info, discovery.lookup());
+				assertEquals(1, searches.get());
+			} finally {
+				listener.stop();
+			}
+		}
+	}
+}
@@ -3,10 +3,17 @@ package de.freaklamarsch.systarest.tests;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.net.DatagramPacket;
+import java.net.DatagramSocket;
 import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 
 import org.junit.jupiter.api.Test;
 import de.freaklamarsch.systarest.DeviceTouchSearch;
+import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
+import de.freaklamarsch.systarest.DeviceTouchSearch.SearchTarget;
 
 class DeviceTouchSearchTest {
 
@@ -37,4 +44,158 @@ class DeviceTouchSearchTest {
         String reply = DeviceTouchSearch.getSearchReplyString(packet);
         assertEquals("SC2 1 192.168.11.23 255.255.255.0 192.168.11.1", reply);
     }
-}
\ No newline at end of file
+
+    @Test
+    void testSearchAllFindsEveryUnit() throws Exception {
+        InetAddress first = InetAddress.getByName("127.0.0.1");
+        InetAddress second = InetAddress.getByName("127.0.0.2");
+        try (DatagramSocket stouchUnit = new DatagramSocket(new InetSocketAddress(first, 0))) {
+            int port = stouchUnit.getLocalPort();
+            try (DatagramSocket otherUnit = new DatagramSocket(new InetSocketAddress(second, port))) {
+                startFakeUnit(stouchUnit, "SC2 1 127.0.0.1 255.0.0.0 127.0.0.1 SystaComfort-II0 0809720001 0 V0.34 V1.00 2CBE9700BEE9",
+                        "0 7 3477", "0 7 1234");
+                startFakeUnit(otherUnit, "SC2 1 127.0.0.2 255.0.0.0 127.0.0.1 SystaComfort-II0 0809720002 0 V0.34 V1.00 2CBE9700BEEA",
+                        "0 7 unknown value:Uremoteportalde", null);
+                long timeout = 3000;
+                long start = System.currentTimeMillis();
+                List<DeviceTouchDeviceInfo> units = DeviceTouchSearch.searchAll(
+                        List.of(new SearchTarget(first, first, 32), new SearchTarget(second, second, 32)), port, timeout);
+                long duration = System.currentTimeMillis() - start;
+
+                assertEquals(2, units.size());
+                DeviceTouchDeviceInfo stouch = units.stream().filter(u -> "2CBE9700BEE9".equals(u.mac)).findFirst().get();
+                assertTrue(stouch.stouchSupported);
+                assertEquals(3477, stouch.port);
+                assertEquals("1234", stouch.password);
+                assertEquals("127.0.0.1", stouch.localIp);
+                DeviceTouchDeviceInfo other = units.stream().filter(u -> "2CBE9700BEEA".equals(u.mac)).findFirst().get();
+                assertFalse(other.stouchSupported);
+                assertEquals(-1, other.port);
+                assertEquals("127.0.0.2", other.localIp);
+                assertSame(stouch, DeviceTouchSearch.select(units));
+                // all expected replies arrived, the search should not wait for the timeout
+                assertTrue(duration < timeout / 2, "search took " + duration + " ms");
+            }
+        }
+    }
+
+    @Test
+    void testSearchAllFindsUnitsOnTheSameNetwork() throws Exception {
+        InetAddress first = InetAddress.getByName("127.0.0.1");
+        InetAddress second = InetAddress.getByName("127.0.0.2");
+        InetAddress outside = InetAddress.getByName("127.0.0.5");
+        try (DatagramSocket firstUnit = new DatagramSocket(new InetSocketAddress(first, 0));
+                DatagramSocket secondUnit = new DatagramSocket(new InetSocketAddress(second, 0));
+                // the outside unit is asked on the port of the units
+                DatagramSocket outsideUnit = new DatagramSocket(new InetSocketAddress(outside, firstUnit.getLocalPort()))) {
+            String firstInfo = "SC2 1 127.0.0.1 255.0.0.0 127.0.0.1 SystaComfort-II0 0809720001 0 V0.34 V1.00 2CBE9700BEE9";
+            String secondInfo = "SC2 1 127.0.0.2 255.0.0.0 127.0.0.1 SystaComfort-II0 0809720002 0 V0.34 V1.00 2CBE9700BEEA";
+            String outsideInfo = "SC2 1 127.0.0.5 255.0.0.0 127.0.0.1 SystaComfort-II0 0809720003 0 V0.34 V1.00 2CBE9700BEEB";
+            // the broadcast is only received by the first unit, it forwards the search to
+            // the others, which reply a little later, like a slower unit on the same network
+            Thread t = new Thread(() -> {
+                byte[] buffer = new byte[1048];
+                try {
+                    while (true) {
+                        DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                        firstUnit.receive(request);
+                        String message = new String(request.getData(), 0, request.getLength(), StandardCharsets.ISO_8859_1);
+                        if (message.equals("0 1 A")) {
+                            reply(firstUnit, firstInfo, request);
+                            Thread.sleep(100);
+                            reply(secondUnit, secondInfo, request);
+                            reply(outsideUnit, outsideInfo, request);
+                        } else if (message.startsWith("2CBE9700BEE9") && message.endsWith("DISP Port")) {
+                            reply(firstUnit, "0 7 3477", request);
+                        } else if (message.startsWith("2CBE9700BEE9") && message.endsWith("UDP Pass")) {
+                            reply(firstUnit, "0 7 1234", request);
+                        } else if (message.startsWith("2CBE9700BEEA") && message.endsWith("DISP Port")) {
+                            reply(secondUnit, "0 7 3478", request);
+                        } else if (message.startsWith("2CBE9700BEEA") && message.endsWith("UDP Pass")) {
+                            reply(secondUnit, "0 7 5678", request);
+                        }
+                    }
+                } catch (SocketException e) {
+                    // socket closed, test is finished
+                } catch (Exception e) {
+                    e.printStackTrace();
+                }
+            });
+            t.setDaemon(true);
+            t.start();
+            startFakeUnit(outsideUnit, outsideInfo, "0 7 unknown value:Uremoteportalde", null);
+            long timeout = 3000;
+            long start = System.currentTimeMillis();
+            // the outside unit is not in the network of the target
+            List<DeviceTouchDeviceInfo> units = DeviceTouchSearch.searchAll(
+                    List.of(new SearchTarget(first, first, 30)), firstUnit.getLocalPort(), timeout);
+            long duration = System.currentTimeMillis() - start;
+
+            assertEquals(3, units.size(), "the search should not stop after the first reply on a target");
+            DeviceTouchDeviceInfo secondFound = units.get(1);
+            assertEquals("2CBE9700BEEA", secondFound.mac);
+            assertTrue(secondFound.stouchSupported);
+            assertEquals(3478, secondFound.port);
+            assertEquals("5678", secondFound.password);
+            assertEquals("127.0.0.1", secondFound.localIp);
+            DeviceTouchDeviceInfo outsideFound = units.get(2);
+            assertEquals("2CBE9700BEEB", outsideFound.mac);
+            assertEquals("127.0.0.5", outsideFound.bcastIp, "units outside of all targets are asked directly");
+            assertFalse(outsideFound.stouchSupported);
+            // the search ends after the grace period, not after the timeout
+            assertTrue(duration < timeout / 2, "search took " + duration + " ms");
+        }
+    }
+
+    private static void reply(DatagramSocket socket, String reply, DatagramPacket request) throws Exception {
+        byte[] data = reply.getBytes(StandardCharsets.ISO_8859_1);
+        socket.send(new DatagramPacket(data, data.length, request.getSocketAddress()));
+    }
+
+    @Test
+    void testSearchAllWithoutReply() throws Exception {
+        InetAddress loopback = InetAddress.getByName("127.0.0.1");
+        try (DatagramSocket silent = new DatagramSocket(new InetSocketAddress(loopback, 0))) {
+            long start = System.currentTimeMillis();
+            List<DeviceTouchDeviceInfo> units = DeviceTouchSearch.searchAll(
+                    List.of(new SearchTarget(loopback, loopback, 32)), silent.getLocalPort(), 200);
+            assertTrue(units.isEmpty());
+            assertTrue(System.currentTimeMillis() - start >= 200);
+            assertNull(DeviceTouchSearch.select(units));
+        }
+    }
+
+    /**
+     * answer the search, port and password requests like a SystaComfort
+     */
+    static void startFakeUnit(DatagramSocket socket, String info, String portReply, String passwordReply) {
+        Thread t = new Thread(() -> {
+            byte[] buffer = new byte[1048];
+            try {
+                while (true) {
+                    DatagramPacket request = new DatagramPacket(buffer, buffer.length);
+                    socket.receive(request);
+                    String message = new String(request.getData(), 0, request.getLength(), StandardCharsets.ISO_8859_1);
+                    String reply = null;
+                    if (message.equals("0 1 A")) {
+                        reply = info;
+                    } else if (message.endsWith("DISP Port")) {
+                        reply = portReply;
+                    } else if (message.endsWith("UDP Pass")) {
+                        reply = passwordReply;
+                    }
+                    if (reply != null) {
+                        byte[] data = reply.getBytes(StandardCharsets.ISO_8859_1);
+                        socket.send(new DatagramPacket(data, data.length, request.getSocketAddress()));
+                    }
+                }
+            } catch (SocketException e) {
+                // socket closed, test is finished
+            } catch (Exception e) {
+                e.printStackTrace();
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+    }
+}
@@ -37,4 +37,50 @@ class FakeSTouchDisplayTest {
 
         assertNull(display.findButtonInObjectTree((byte) 1)); // All buttons cleared
     }
-}
\ No newline at end of file
+
+    @Test
+    void testPublishVersion() {
+        FakeSTouchDisplay display = new FakeSTouchDisplay();
+        assertEquals(0, display.getVersion());
+        assertEquals(1, display.publishVersion());
+        assertEquals(2, display.publishVersion());
+        assertEquals(2, display.getVersion());
+    }
+
+    @Test
+    void testAwaitSettled() throws InterruptedException {
+        FakeSTouchDisplay display = new FakeSTouchDisplay();
+        long since = display.getVersion();
+        // the SystaComfort redraws the screen with several packets
+        Thread redraw = new Thread(() -> {
+            try {
+                for (int i = 0; i < 3; i++) {
+                    Thread.sleep(50);
+                    display.publishVersion();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        long start = System.currentTimeMillis();
+        redraw.start();
+        assertTrue(display.awaitSettled(since, 100, 5000));
+        long duration = System.currentTimeMillis() - start;
+        redraw.join();
+        assertEquals(3, display.getVersion(), "should wait until the last packet of the redraw");
+        assertTrue(duration >= 250, "should wait for the quiet time after the last packet, took " + duration);
+        assertTrue(duration < 5000, "should not wait for the timeout, took " + duration);
+    }
+
+    @Test
+    void testAwaitSettledTimeout() throws InterruptedException {
+        FakeSTouchDisplay display = new FakeSTouchDisplay();
+        long start = System.currentTimeMillis();
+        assertFalse(display.awaitSettled(display.getVersion(), 10, 100));
+        assertTrue(System.currentTimeMillis() - start >= 100);
+        // an older version is settled right away, if the quiet time has passed
+        display.publishVersion();
+        Thread.sleep(20);
+        assertTrue(display.awaitSettled(0, 10, 0));
+    }
+}
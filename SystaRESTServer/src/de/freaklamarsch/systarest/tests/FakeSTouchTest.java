@@ -21,6 +21,9 @@ package de.freaklamarsch.systarest.tests;
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.awt.image.BufferedImage;
@@ -30,6 +33,7 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.lang.reflect.Field;
 import java.math.BigInteger;
 import java.net.DatagramPacket;
 import java.net.InetAddress;
@@ -45,6 +49,7 @@ import org.junit.jupiter.api.Test;
 import de.freaklamarsch.systarest.DeviceTouchSearch;
 import de.freaklamarsch.systarest.DeviceTouchSearch.DeviceTouchDeviceInfo;
 import de.freaklamarsch.systarest.FakeSTouch;
+import de.freaklamarsch.systarest.FakeSTouchDisplay;
 
 class FakeSTouchTest {
 	public class PcapPacket {
@@ -294,6 +299,36 @@ class FakeSTouchTest {
 		assertEquals(info.password, "1234"); // never saw a different password in returns
 	}
 
+	@Test
+	void testProcessCommandsPublishesVersion() throws UnknownHostException {
+		FakeSTouch stouch = new FakeSTouch();
+		stouch.setAddr(InetAddress.getByName("127.0.0.1"));
+		// packet without commands, e.g. polling for touch events
+		byte[] empty = { 1, 0, 0, 0, 0 };
+		assertNotNull(stouch.processCommands(new DatagramPacket(empty, empty.length)));
+		assertEquals(0, stouch.getDisplay().getVersion());
+		// packet type 9, packet command 0, packet id 1, DISPLAY_SWITCHON
+		byte[] switchOn = { 9, 0, 0, 1, 0, 0 };
+		assertNotNull(stouch.processCommands(new DatagramPacket(switchOn, switchOn.length)));
+		assertEquals(1, stouch.getDisplay().getVersion(), "processed display commands should publish a new version");
+		// packet type 9, packet command 0, packet id 2, SYSTEM_GETSYSTEM does not draw
+		byte[] getSystem = { 9, 0, 0, 2, 0, (byte) 240 };
+		assertNotNull(stouch.processCommands(new DatagramPacket(getSystem, getSystem.length)));
+		assertEquals(1, stouch.getDisplay().getVersion(), "commands that do not draw should not publish a version");
+	}
+
+	@Test
+	void testLazyDisplay() throws ReflectiveOperationException {
+		FakeSTouch stouch = new FakeSTouch();
+		// the display needs AWT and is only created when it is used
+		Field display = FakeSTouch.class.getDeclaredField("display");
+		display.setAccessible(true);
+		assertNull(display.get(stouch));
+		FakeSTouchDisplay created = stouch.getDisplay();
+		assertNotNull(created);
+		assertSame(created, stouch.getDisplay());
+	}
+
 	@Test
 	void testCommunication() {
 		this.localIpAddrBytes = new byte[] { (byte) 0xc0, (byte) 0xa8, 0x0b, 0x01 };
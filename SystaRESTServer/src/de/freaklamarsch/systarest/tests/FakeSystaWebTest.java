@@ -36,6 +36,7 @@ import java.lang.reflect.Modifier;
 import java.net.DatagramSocket;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
+import java.nio.file.Files;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Arrays;
@@ -51,6 +52,7 @@ import de.freaklamarsch.systarest.DataLogger;
 import de.freaklamarsch.systarest.DataLogger.DataLoggerStatus;
 import de.freaklamarsch.systarest.FakeSystaWeb;
 import de.freaklamarsch.systarest.FakeSystaWeb.FakeSystaWebStatus;
+import de.freaklamarsch.systarest.LogRetentionService;
 import de.freaklamarsch.systarest.SystaStatus;
 
 class FakeSystaWebTest {
@@ -306,6 +308,48 @@ class FakeSystaWebTest {
 		assertEquals(6, logIntStatus.bufferedEntries);
 	}
 
+	@Test
+	void testSnapshotRestore() throws Exception {
+		initialize();
+		String oldLogDir = fsw.getStatus().loggerFileRootPath;
+		File snapshotDir = new File(logDir, "snapshot");
+		try {
+			fsw.setLogFileRootPath(snapshotDir.getPath());
+			Method processDatagram = prepareInvokeMethod("processDatagram", ByteBuffer.class);
+			processDatagram.invoke(fsw, data[2]);
+			data[2].position(0);
+			assertFalse(fsw.isStale());
+			fsw.saveSnapshot();
+			Integer[] saved = fsw.getData();
+
+			FakeSystaWeb restored = new FakeSystaWeb();
+			assertTrue(restored.restoreSnapshot());
+			assertTrue(restored.isStale());
+			assertEquals(0, restored.getSnapshots().getSequence(), "the restored data should be published");
+			assertEquals(fsw.getTimestamp(), restored.getTimestamp());
+			assertTrue(Arrays.equals(saved, restored.getData()));
+			assertTrue(restored.getParadigmaStatus().stale);
+			assertTrue(restored.getWaterHeaterStatus().stale);
+			assertFalse(restored.getStatus().connected);
+			// a second restore must not overwrite the data
+			assertFalse(restored.restoreSnapshot());
+
+			// the first received packet clears the stale flag
+			socketField.set(restored, socket);
+			processDatagram.invoke(restored, data[3]);
+			data[3].position(0);
+			assertFalse(restored.isStale());
+			assertFalse(restored.getParadigmaStatus().stale);
+			assertEquals(1, restored.getSnapshots().getSequence(), "each received data set should be published");
+		} finally {
+			fsw.setLogFileRootPath(oldLogDir);
+			for (File file : snapshotDir.listFiles()) {
+				file.delete();
+			}
+			snapshotDir.delete();
+		}
+	}
+
 	@Test
 	void testGetAllLogs() {
 		// make sure initialization is successfull
@@ -394,6 +438,49 @@ class FakeSystaWebTest {
 		assertNotEquals(0, logs.listFiles());
 	}
 
+	@Test
+	void testAllLogsIncludeArchives() throws IOException {
+		assertTrue(initialize());
+		String oldLogDir = fsw.getStatus().loggerFileRootPath;
+		File archiveDir = new File(logDir, "archive");
+		archiveDir.mkdirs();
+		try {
+			fsw.setLogFileRootPath(archiveDir.getPath());
+			// two log files of yesterday are compacted into an archive, one of today is
+			// kept
+			long yesterday = System.currentTimeMillis() - 24L * 60 * 60 * 1000;
+			for (int i = 0; i < 2; i++) {
+				File old = new File(archiveDir, "test-data-" + i + ".txt");
+				Files.write(old.toPath(), new byte[100]);
+				old.setLastModified(yesterday);
+			}
+			Files.write(new File(archiveDir, "test-data-2.txt").toPath(), new byte[100]);
+			LogRetentionService lrs = new LogRetentionService(archiveDir.getPath(), logfileFilter);
+			lrs.setLimits(0, 0);
+			lrs.runOnce();
+			File[] archives = archiveDir.listFiles((dir, name) -> name.startsWith("SystaPiArchive-"));
+			assertEquals(1, archives.length);
+
+			File zf = fsw.getAllLogs();
+			try (ZipFile zipFile = new ZipFile(zf)) {
+				assertEquals(2, zipFile.size());
+				assertTrue(zipFile.getEntry(archives[0].getName()) != null, "the archive should be included");
+				assertTrue(zipFile.getEntry("test-data-2.txt") != null);
+			}
+			zf.delete();
+
+			assertEquals(2, fsw.deleteAllLogs());
+			assertFalse(archives[0].exists(), "the archive should be deleted");
+			assertEquals(0, archiveDir.listFiles().length);
+		} finally {
+			fsw.setLogFileRootPath(oldLogDir);
+			for (File file : archiveDir.listFiles()) {
+				file.delete();
+			}
+			archiveDir.delete();
+		}
+	}
+
 	/**
 	 * @param methodName the name of the method, that should be retrieved from
 	 *                   FakeSystaWeb
@@ -0,0 +1,133 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.FilenameFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.ZipFile;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.freaklamarsch.systarest.LogRetentionService;
+import de.freaklamarsch.systarest.LogRetentionService.LogRetentionStatus;
+
+public class LogRetentionServiceTest {
+	private static final FilenameFilter logFileFilter = (dir, name) -> name.matches(".*-(raw|data)-[0-9]+\\.txt");
+
+	@TempDir
+	Path tempDir;
+	private LogRetentionService lrs;
+
+	@BeforeEach
+	void setUp() {
+		lrs = new LogRetentionService(tempDir.toString(), logFileFilter);
+	}
+
+	/**
+	 * create a log file with {@code size} bytes, that was last modified
+	 * {@code daysAgo} days ago
+	 */
+	private Path createLogFile(String name, int size, int daysAgo) throws IOException {
+		Path file = tempDir.resolve(name);
+		Files.write(file, new byte[size]);
+		long modified = LocalDate.now().minusDays(daysAgo).atTime(12, 0).atZone(ZoneId.systemDefault()).toInstant()
+				.toEpochMilli();
+		Files.setLastModifiedTime(file, FileTime.fromMillis(modified));
+		return file;
+	}
+
+	@Test
+	void testCompactPastDays() throws IOException {
+		lrs.setLimits(0, 0);
+		createLogFile("test-data-0.txt", 1000, 2);
+		createLogFile("test-raw-0.txt", 1000, 2);
+		createLogFile("test-data-1.txt", 1000, 1);
+		Path today = createLogFile("test-data-2.txt", 1000, 0);
+		Path other = createLogFile("dont-touch.txt", 1000, 2);
+		lrs.runOnce();
+
+		DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMdd");
+		Path archive2 = tempDir.resolve("SystaPiArchive-" + formatter.format(LocalDate.now().minusDays(2)) + ".zip");
+		Path archive1 = tempDir.resolve("SystaPiArchive-" + formatter.format(LocalDate.now().minusDays(1)) + ".zip");
+		assertTrue(Files.exists(archive2));
+		assertTrue(Files.exists(archive1));
+		try (ZipFile zf = new ZipFile(archive2.toFile())) {
+			assertEquals(2, zf.size());
+			assertEquals(1000, zf.getEntry("test-data-0.txt").getSize());
+		}
+		assertFalse(Files.exists(tempDir.resolve("test-data-0.txt")));
+		assertTrue(Files.exists(today), "files of today should not be compacted");
+		assertTrue(Files.exists(other), "files not matching the filter should not be touched");
+
+		// a second run for the same day has to keep the existing entries
+		createLogFile("test-data-3.txt", 1000, 2);
+		lrs.runOnce();
+		try (ZipFile zf = new ZipFile(archive2.toFile())) {
+			assertEquals(3, zf.size());
+		}
+		LogRetentionStatus status = lrs.getStatus();
+		assertEquals(2, status.runs);
+		assertEquals(4, status.filesCompacted);
+		assertEquals(0, status.pendingFiles);
+		assertTrue(status.bytesFreed > 0);
+	}
+
+	@Test
+	void testMaxAge() throws IOException {
+		lrs.setLimits(0, 10);
+		createLogFile("test-data-0.txt", 100, 20);
+		Path keep = createLogFile("test-data-1.txt", 100, 0);
+		lrs.runOnce();
+		assertEquals(1, lrs.getStatus().filesDeleted);
+		assertTrue(Files.exists(keep));
+		try (var files = Files.list(tempDir)) {
+			assertEquals(1, files.count(), "expired files and their archive should be deleted");
+		}
+	}
+
+	@Test
+	void testMaxBytes() throws IOException {
+		lrs.setLimits(2500, 0);
+		Path oldest = createLogFile("test-data-0.txt", 1000, 0);
+		Files.setLastModifiedTime(oldest, FileTime.fromMillis(System.currentTimeMillis() - 3000));
+		Path middle = createLogFile("test-data-1.txt", 1000, 0);
+		Files.setLastModifiedTime(middle, FileTime.fromMillis(System.currentTimeMillis() - 2000));
+		Path newest = createLogFile("test-data-2.txt", 1000, 0);
+		Files.setLastModifiedTime(newest, FileTime.fromMillis(System.currentTimeMillis() - 1000));
+		lrs.runOnce();
+		assertFalse(Files.exists(oldest), "the oldest file should be deleted first");
+		assertTrue(Files.exists(middle));
+		assertTrue(Files.exists(newest));
+		LogRetentionStatus status = lrs.getStatus();
+		assertEquals(1000, status.bytesFreed);
+		assertEquals(2000, status.directoryBytes);
+	}
+}
@@ -0,0 +1,90 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.NoSuchElementException;
+
+import org.junit.jupiter.api.Test;
+
+import de.freaklamarsch.systarest.LongCircularBuffer;
+
+public class LongCircularBufferTest {
+
+	@Test
+	public void testAddAndRemove() {
+		LongCircularBuffer buffer = new LongCircularBuffer(3);
+		assertTrue(buffer.isEmpty(), "New buffer should be empty");
+		assertThrows(NoSuchElementException.class, buffer::peek);
+		assertThrows(NoSuchElementException.class, buffer::end);
+		assertTrue(buffer.add(1L));
+		assertTrue(buffer.add(2L));
+		assertTrue(buffer.add(3L));
+		assertFalse(buffer.add(4L), "Adding to full buffer (overwrite off) should fail");
+		assertEquals(3L, buffer.end());
+		assertEquals(1L, buffer.remove());
+		assertEquals(2L, buffer.remove());
+		assertEquals(3L, buffer.remove());
+		assertThrows(NoSuchElementException.class, buffer::remove);
+	}
+
+	@Test
+	public void testOverwrite() {
+		LongCircularBuffer buffer = new LongCircularBuffer(3);
+		buffer.setOverwrite(true);
+		for (long i = 1; i <= 4; i++) {
+			assertTrue(buffer.add(i));
+		}
+		assertTrue(buffer.isFull());
+		assertEquals(2L, buffer.peek(), "After overwriting 1 with 4, peek should return 2");
+		assertEquals(4L, buffer.end());
+		assertEquals(3L, buffer.get(1));
+		assertThrows(IndexOutOfBoundsException.class, () -> buffer.get(3));
+	}
+
+	@Test
+	public void testBulkOperations() {
+		LongCircularBuffer buffer = new LongCircularBuffer(5);
+		buffer.setOverwrite(true);
+		assertEquals(5, buffer.addAll(new long[] { 0, 1, 2, 3, 4, 5, 6 }), "addAll should only keep capacity elements");
+		assertArrayEquals(new long[] { 2, 3, 4, 5, 6 }, buffer.toArray(0, 5));
+		assertEquals(2L, buffer.remove());
+		assertEquals(3, buffer.addAll(new long[] { 7, 8, 9 }));
+		// the content wraps around the end of the array
+		assertArrayEquals(new long[] { 6, 7, 8 }, buffer.toArray(1, 4));
+		assertEquals(5, buffer.size(), "toArray should not remove elements");
+
+		long[] target = new long[4];
+		assertEquals(3, buffer.drainTo(target, 1));
+		assertArrayEquals(new long[] { 0, 5, 6, 7 }, target);
+		assertEquals(2, buffer.size());
+		assertArrayEquals(new long[] { 8, 9 }, buffer.toArray(0, 2));
+
+		LongCircularBuffer noOverwrite = new LongCircularBuffer(3);
+		assertEquals(3, noOverwrite.addAll(new long[] { 1, 2, 3, 4 }),
+				"addAll without overwrite should only add the fitting elements");
+		noOverwrite.clear();
+		assertTrue(noOverwrite.isEmpty());
+	}
+}
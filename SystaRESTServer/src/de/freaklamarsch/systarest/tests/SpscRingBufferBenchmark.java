@@ -0,0 +1,130 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import de.freaklamarsch.systarest.CircularBuffer;
+import de.freaklamarsch.systarest.SpscRingBuffer;
+
+/**
+ * Simple throughput benchmark comparing the {@link SpscRingBuffer} with a
+ * {@link CircularBuffer} guarded by {@code synchronized}, as it is used by the
+ * {@link de.freaklamarsch.systarest.DataLogger}. One producer thread hands
+ * {@code ELEMENTS} elements to one consumer thread.
+ * <p>
+ * Run it after {@code build_test.sh} from the {@code SystaRESTServer}
+ * directory with
+ *
+ * <pre>
+ * java -cp ./bin de.freaklamarsch.systarest.tests.SpscRingBufferBenchmark
+ * </pre>
+ *
+ * The first rounds are used to warm up the JIT compiler and are not reported.
+ */
+public class SpscRingBufferBenchmark {
+	private static final int ELEMENTS = 10_000_000;
+	private static final int CAPACITY = 1024;
+	private static final int WARMUP_ROUNDS = 3;
+	private static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws InterruptedException {
+		for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+			long spsc = runSpsc();
+			long locked = runSynchronizedCircularBuffer();
+			if (round >= WARMUP_ROUNDS) {
+				System.out.println("[SpscRingBufferBenchmark] round " + (round - WARMUP_ROUNDS + 1)
+						+ ": SpscRingBuffer " + opsPerSecond(spsc) + " ops/s, synchronized CircularBuffer "
+						+ opsPerSecond(locked) + " ops/s");
+			}
+		}
+	}
+
+	private static long opsPerSecond(long nanos) {
+		return ELEMENTS * 1_000_000_000L / Math.max(1, nanos);
+	}
+
+	private static long runSpsc() throws InterruptedException {
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(CAPACITY);
+		Integer element = 1;
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < ELEMENTS; i++) {
+				while (!buffer.offer(element)) {
+					Thread.yield();
+				}
+			}
+		});
+		long start = System.nanoTime();
+		producer.start();
+		long sum = 0;
+		for (int received = 0; received < ELEMENTS;) {
+			Integer value = buffer.poll();
+			if (value == null) {
+				Thread.yield();
+			} else {
+				sum += value;
+				received++;
+			}
+		}
+		producer.join();
+		long duration = System.nanoTime() - start;
+		check(sum);
+		return duration;
+	}
+
+	private static long runSynchronizedCircularBuffer() throws InterruptedException {
+		CircularBuffer<Integer> buffer = new CircularBuffer<>(CAPACITY);
+		Integer element = 1;
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < ELEMENTS; i++) {
+				while (true) {
+					synchronized (buffer) {
+						if (buffer.add(element)) {
+							break;
+						}
+					}
+					Thread.yield();
+				}
+			}
+		});
+		long start = System.nanoTime();
+		producer.start();
+		long sum = 0;
+		for (int received = 0; received < ELEMENTS;) {
+			Integer value;
+			synchronized (buffer) {
+				value = buffer.remove();
+			}
+			if (value == null) {
+				Thread.yield();
+			} else {
+				sum += value;
+				received++;
+			}
+		}
+		producer.join();
+		long duration = System.nanoTime() - start;
+		check(sum);
+		return duration;
+	}
+
+	private static void check(long sum) {
+		if (sum != ELEMENTS) {
+			throw new IllegalStateException("lost elements, received " + sum + " of " + ELEMENTS);
+		}
+	}
+}
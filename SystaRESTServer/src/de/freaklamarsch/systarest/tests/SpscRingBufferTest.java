@@ -0,0 +1,112 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import de.freaklamarsch.systarest.SpscRingBuffer;
+
+public class SpscRingBufferTest {
+
+	@Test
+	public void testCapacity() {
+		assertEquals(1, new SpscRingBuffer<Integer>(1).capacity());
+		assertEquals(8, new SpscRingBuffer<Integer>(8).capacity());
+		assertEquals(64, new SpscRingBuffer<Integer>(60).capacity(), "capacity should be rounded up");
+		assertThrows(IllegalArgumentException.class, () -> new SpscRingBuffer<Integer>(0));
+	}
+
+	@Test
+	public void testOfferAndPoll() {
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(4);
+		assertNull(buffer.poll(), "polling an empty buffer should return null");
+		for (int i = 0; i < 4; i++) {
+			assertTrue(buffer.offer(i));
+		}
+		assertFalse(buffer.offer(4), "offer to a full buffer should fail");
+		assertEquals(4, buffer.size());
+		assertEquals(0, (int) buffer.peek());
+		assertEquals(0, (int) buffer.poll());
+		assertTrue(buffer.offer(4), "offer should succeed after an element was removed");
+		for (int i = 1; i <= 4; i++) {
+			assertEquals(i, (int) buffer.poll());
+		}
+		assertTrue(buffer.isEmpty());
+		assertThrows(NullPointerException.class, () -> buffer.offer(null));
+	}
+
+	@Test
+	public void testPeekAndDrainTo() {
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(8);
+		// move the sequences, so the elements wrap around the end of the array
+		for (int i = 0; i < 6; i++) {
+			buffer.offer(-1);
+			buffer.poll();
+		}
+		for (int i = 0; i < 5; i++) {
+			buffer.offer(i);
+		}
+		List<Integer> peeked = new ArrayList<>();
+		assertEquals(3, buffer.peek(peeked, 3));
+		assertEquals(List.of(0, 1, 2), peeked);
+		assertEquals(5, buffer.size(), "peek should not remove elements");
+
+		List<Integer> drained = new ArrayList<>();
+		assertEquals(5, buffer.drainTo(drained, 10));
+		assertEquals(List.of(0, 1, 2, 3, 4), drained);
+		assertTrue(buffer.isEmpty());
+		assertEquals(0, buffer.drainTo(drained, 10));
+	}
+
+	@Test
+	public void testConcurrentProducerAndConsumer() throws InterruptedException {
+		final int count = 1_000_000;
+		SpscRingBuffer<Integer> buffer = new SpscRingBuffer<>(64);
+		Thread producer = new Thread(() -> {
+			for (int i = 0; i < count; i++) {
+				while (!buffer.offer(i)) {
+					Thread.yield();
+				}
+			}
+		});
+		producer.start();
+		List<Integer> batch = new ArrayList<>();
+		int expected = 0;
+		while (expected < count) {
+			batch.clear();
+			if (buffer.drainTo(batch, 16) == 0) {
+				Thread.yield();
+			}
+			for (Integer value : batch) {
+				assertEquals(expected++, (int) value, "elements should be received in order");
+			}
+		}
+		producer.join();
+		assertTrue(buffer.isEmpty());
+	}
+}
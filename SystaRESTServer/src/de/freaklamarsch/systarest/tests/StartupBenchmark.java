@@ -0,0 +1,159 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.glassfish.jersey.server.ResourceConfig;
+
+import de.freaklamarsch.systarest.FakeSystaWeb;
+import de.freaklamarsch.systarest.HttpEngine;
+import de.freaklamarsch.systarest.SystaLifecycle;
+import de.freaklamarsch.systarest.SystaRESTAPI;
+import de.freaklamarsch.systarest.SystaRESTServer;
+
+/**
+ * Startup benchmark measuring the time from the start of the JVM until the
+ * first successful request to {@code /SystaREST/status}. Each round starts the
+ * server in a new JVM, like it is done when the SystaPi boots, with the
+ * {@code ResourceConfig} of the {@link SystaRESTServer} on {@code localhost}.
+ * <p>
+ * Run it after {@code build_test.sh} from the {@code SystaRESTServer}
+ * directory with
+ *
+ * <pre>
+ * java -cp "./bin:./lib/*" de.freaklamarsch.systarest.tests.StartupBenchmark [jdk|grizzly]
+ * </pre>
+ *
+ * The first round warms up the file system caches and is not reported.
+ */
+public class StartupBenchmark {
+	private static final int WARMUP_ROUNDS = 1;
+	private static final int ROUNDS = 5;
+	private static final int PORT = 9996;
+	private static final long TIMEOUT_MILLIS = 60_000;
+	private static final String RESULT = "[StartupBenchmark] first status after ";
+
+	public static void main(String[] args) throws Exception {
+		String engine = (args.length > 0) ? args[0] : "jdk";
+		if (args.length > 1 && args[1].equals("round")) {
+			runRound(engine);
+			return;
+		}
+		long[] millis = new long[ROUNDS];
+		for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+			long result = forkRound(engine);
+			if (round >= WARMUP_ROUNDS) {
+				millis[round - WARMUP_ROUNDS] = result;
+				System.out.println("[StartupBenchmark] round " + (round - WARMUP_ROUNDS + 1) + ": first /status after "
+						+ result + " ms");
+			}
+		}
+		Arrays.sort(millis);
+		System.out.println("[StartupBenchmark] " + engine + ": min " + millis[0] + " ms, median "
+				+ millis[ROUNDS / 2] + " ms, max " + millis[ROUNDS - 1] + " ms");
+	}
+
+	/**
+	 * run one round in a new JVM
+	 *
+	 * @return the time in milliseconds until the first successful {@code /status}
+	 */
+	private static long forkRound(String engine) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder pb = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				StartupBenchmark.class.getName(), engine, "round");
+		pb.redirectErrorStream(true);
+		Process process = pb.start();
+		long result = -1;
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				if (line.startsWith(RESULT)) {
+					result = Long.parseLong(line.substring(RESULT.length()).replace(" ms", "").trim());
+				}
+			}
+		}
+		if (process.waitFor() != 0 || result < 0) {
+			throw new IllegalStateException("round failed with exit code " + process.exitValue());
+		}
+		return result;
+	}
+
+	/**
+	 * start the server the same way as {@link SystaRESTServer} and wait for the
+	 * first successful {@code /status}
+	 */
+	private static void runRound(String engine) throws Exception {
+		System.setProperty("java.awt.headless", "true");
+		long jvmStarted = ManagementFactory.getRuntimeMXBean().getStartTime();
+		Properties props = new Properties();
+		props.setProperty(HttpEngine.PROP_ENGINE, engine);
+		props.setProperty("HISTORY_IMPORT", "false");
+		URI baseUri = URI.create("http://127.0.0.1:" + PORT + "/");
+		ResourceConfig config = SystaRESTServer.createResourceConfig(props, "127.0.0.1");
+		File logDir = Files.createTempDirectory("StartupBenchmark").toFile();
+		config.property(SystaRESTAPI.PROP_LOG_DIR, logDir.getAbsolutePath());
+		SystaLifecycle lifecycle = new SystaLifecycle(new FakeSystaWeb(), config.getProperties());
+		config.property(SystaRESTAPI.PROP_LIFECYCLE, lifecycle);
+		lifecycle.start();
+		HttpEngine server = HttpEngine.create(props, baseUri, config);
+		server.start();
+		URL status = baseUri.resolve("SystaREST/status").toURL();
+		long deadline = System.currentTimeMillis() + TIMEOUT_MILLIS;
+		while (!isOk(status)) {
+			if (System.currentTimeMillis() > deadline) {
+				System.out.println("[StartupBenchmark] no successful /status within " + TIMEOUT_MILLIS + " ms");
+				System.exit(1);
+			}
+			Thread.sleep(1);
+		}
+		System.out.println(RESULT + (System.currentTimeMillis() - jvmStarted) + " ms");
+		server.stop();
+		lifecycle.stop();
+		for (File file : logDir.listFiles()) {
+			file.delete();
+		}
+		logDir.delete();
+		System.exit(0);
+	}
+
+	private static boolean isOk(URL url) {
+		try {
+			HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+			try {
+				return connection.getResponseCode() == 200;
+			} finally {
+				connection.disconnect();
+			}
+		} catch (IOException e) {
+			return false;
+		}
+	}
+}
@@ -0,0 +1,184 @@
+/*
+* Copyright (c) 2025, The beep-projects contributors
+* this file originated from https://github.com/beep-projects
+* Do not remove the lines above.
+* This program is free software: you can redistribute it and/or modify
+* it under the terms of the GNU General Public License as published by
+* the Free Software Foundation, either version 3 of the License, or
+* (at your option) any later version.
+*
+* This program is distributed in the hope that it will be useful,
+* but WITHOUT ANY WARRANTY; without even the implied warranty of
+* MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+* GNU General Public License for more details.
+*
+* You should have received a copy of the GNU General Public License
+* along with this program.  If not, see https://www.gnu.org/licenses/
+*
+*/
+package de.freaklamarsch.systarest.tests;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import de.freaklamarsch.systarest.DataLogger;
+import de.freaklamarsch.systarest.HistoryImporter;
+import de.freaklamarsch.systarest.HistoryImporter.HistoryImporterStatus;
+import de.freaklamarsch.systarest.LogRetentionService;
+import de.freaklamarsch.systarest.SystaHistory;
+import de.freaklamarsch.systarest.SystaHistory.HistorySeries;
+import de.freaklamarsch.systarest.SystaHistory.Resolution;
+
+public class SystaHistoryTest {
+	private static final long HOUR = 3_600_000L;
+	// 2025-06-14T12:00:00Z
+	private static final long T0 = 1749902400000L;
+
+	@TempDir
+	Path tempDir;
+
+	@Test
+	public void testAddAndQuery() {
+		SystaHistory history = new SystaHistory();
+		history.add(T0, new int[] { 10, 100 });
+		history.add(T0 + 60_000, new int[] { 20, 200 });
+		history.add(T0 + HOUR, new int[] { 30, 300 });
+
+		HistorySeries hours = history.query(Resolution.HOUR, 0, Long.MAX_VALUE, new int[] { 1, 0 });
+		assertEquals(2, hours.timestamps.length);
+		assertEquals(T0, hours.timestamps[0]);
+		assertEquals(150.0, hours.values[0][0]);
+		assertEquals(15.0, hours.values[0][1]);
+		assertEquals(300.0, hours.values[1][0]);
+
+		HistorySeries minutes = history.query(Resolution.MINUTE, T0, T0 + 60_000, new int[] { 0 });
+		assertEquals(2, minutes.timestamps.length);
+		assertEquals(1, history.size(Resolution.DAY));
+		assertThrows(IllegalArgumentException.class,
+				() -> history.query(Resolution.DAY, 0, Long.MAX_VALUE, new int[] { SystaHistory.HISTORY_FIELDS }));
+	}
+
+	@Test
+	public void testOutOfOrderAndOverwrite() {
+		SystaHistory history = new SystaHistory();
+		long newest = T0 + Resolution.MINUTE.capacity * 60_000L;
+		history.add(newest, new int[] { 2 });
+		// same slot as newest, but older: must not replace the newer bucket
+		history.add(T0, new int[] { 1 });
+		HistorySeries minutes = history.query(Resolution.MINUTE, 0, Long.MAX_VALUE, new int[] { 0 });
+		assertEquals(1, minutes.timestamps.length);
+		assertEquals(newest, minutes.timestamps[0]);
+		// the hour resolution keeps both
+		assertEquals(2, history.query(Resolution.HOUR, 0, Long.MAX_VALUE, new int[] { 0 }).timestamps.length);
+		// a newer bucket in the same slot starts from zero
+		long newer = newest + Resolution.MINUTE.capacity * 60_000L;
+		history.add(newer, new int[] { 5 });
+		minutes = history.query(Resolution.MINUTE, 0, Long.MAX_VALUE, new int[] { 0 });
+		assertEquals(1, minutes.timestamps.length);
+		assertEquals(newer, minutes.timestamps[0]);
+		assertEquals(5.0, minutes.values[0][0]);
+	}
+
+	@Test
+	public void testEmptyHistory() {
+		SystaHistory history = new SystaHistory();
+		for (Resolution r : Resolution.values()) {
+			assertEquals(0, history.size(r));
+			assertEquals(0, history.query(r, 0, Long.MAX_VALUE, null).timestamps.length);
+		}
+	}
+
+	@Test
+	public void testImportDataLoggerFiles() throws Exception {
+		DataLogger<Integer> logger = new DataLogger<>("SystaREST", "data", "<>", 3, tempDir.toString(),
+				DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault()));
+		logger.saveLoggedData();
+		Integer[] row = new Integer[300];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = -i;
+		}
+		for (int e = 0; e < 6; e++) {
+			logger.addData(row, T0 + e * 60_000L);
+		}
+		// one file that is not a data log
+		Files.writeString(tempDir.resolve("SystaREST-raw-0.txt"), "not imported");
+
+		SystaHistory history = new SystaHistory();
+		HistoryImporter importer = new HistoryImporter(history, 2);
+		importer.start(tempDir.toString());
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (importer.getStatus().running && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		HistoryImporterStatus status = importer.getStatus();
+		assertFalse(status.running);
+		assertEquals(2, status.filesTotal);
+		assertEquals(2, status.filesImported);
+		assertEquals(0, status.filesFailed);
+		assertEquals(6, status.entriesImported);
+		HistorySeries minutes = history.query(Resolution.MINUTE, 0, Long.MAX_VALUE, new int[] { 0, 5, 255 });
+		assertEquals(6, minutes.timestamps.length);
+		assertEquals(T0, minutes.timestamps[0]);
+		assertEquals(-5.0, minutes.values[0][1]);
+		assertEquals(-255.0, minutes.values[5][2]);
+	}
+
+	@Test
+	public void testImportArchives() throws Exception {
+		DataLogger<Integer> logger = new DataLogger<>("SystaREST", "data", "<>", 3, tempDir.toString(),
+				DateTimeFormatter.ISO_OFFSET_DATE_TIME.withZone(ZoneId.systemDefault()));
+		logger.saveLoggedData();
+		Integer[] row = new Integer[300];
+		for (int i = 0; i < row.length; i++) {
+			row[i] = i;
+		}
+		for (int e = 0; e < 6; e++) {
+			logger.addData(row, T0 + e * 60_000L);
+		}
+		Files.writeString(tempDir.resolve("SystaREST-raw-0.txt"), "not imported");
+		// compact the files of yesterday into an archive
+		FileTime yesterday = FileTime.fromMillis(System.currentTimeMillis() - 24 * HOUR);
+		try (Stream<Path> files = Files.list(tempDir)) {
+			for (Path file : files.collect(Collectors.toList())) {
+				Files.setLastModifiedTime(file, yesterday);
+			}
+		}
+		LogRetentionService lrs = new LogRetentionService(tempDir.toString(),
+				(dir, name) -> name.matches(".*-(raw|data)-[0-9]+\\.txt"));
+		lrs.setLimits(0, 0);
+		lrs.runOnce();
+		try (Stream<Path> files = Files.list(tempDir)) {
+			assertEquals(1, files.count(), "all files should be compacted into one archive");
+		}
+
+		SystaHistory history = new SystaHistory();
+		HistoryImporter importer = new HistoryImporter(history, 2);
+		importer.start(tempDir.toString());
+		long deadline = System.currentTimeMillis() + 10_000;
+		while (importer.getStatus().running && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10);
+		}
+		HistoryImporterStatus status = importer.getStatus();
+		assertFalse(status.running);
+		assertEquals(2, status.filesTotal, "the data files in the archive should be counted");
+		assertEquals(2, status.filesImported);
+		assertEquals(0, status.filesFailed);
+		assertEquals(6, status.entriesImported);
+		HistorySeries minutes = history.query(Resolution.MINUTE, 0, Long.MAX_VALUE, new int[] { 0, 5, 255 });
+		assertEquals(6, minutes.timestamps.length);
+		assertEquals(5.0, minutes.values[0][1]);
+		assertEquals(255.0, minutes.values[5][2]);
+	}
+}
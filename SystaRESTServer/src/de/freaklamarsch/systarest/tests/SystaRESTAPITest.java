@@ -21,8 +21,11 @@ package de.freaklamarsch.systarest.tests;
 // import static org.junit.Assert.assertEquals; // Removed JUnit 4 import
 import static org.junit.jupiter.api.Assertions.assertEquals; // Added explicit JUnit 5 import
 import static org.junit.jupiter.api.Assertions.assertNotEquals; // Added explicit JUnit 5 import
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.nio.file.Files;
@@ -33,11 +36,13 @@ import java.nio.file.Path; // For @TempDir
 // import java.lang.reflect.Field;
 // import java.lang.reflect.Modifier;
 import java.net.Inet4Address;
+import java.net.URI;
 import java.net.InetAddress;
 import java.net.NetworkInterface;
 import java.net.SocketException;
 import java.util.Comparator;
 import java.util.Enumeration;
+import java.util.Properties;
 import java.util.stream.Stream;
 
 import org.glassfish.jersey.server.ResourceConfig;
@@ -50,7 +55,11 @@ import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.io.TempDir; // For @TempDir
 
 // import de.freaklamarsch.systarest.DataLogger; // No longer needed for reflection hack
+import de.freaklamarsch.systarest.CompressionFilter;
+import de.freaklamarsch.systarest.HttpEngine;
+import de.freaklamarsch.systarest.LongPollFilter;
 import de.freaklamarsch.systarest.SystaRESTAPI;
+import de.freaklamarsch.systarest.SystaRESTServer;
 import jakarta.json.JsonObject;
 //import javax.annotation.Priority;
 //import jakarta.ws.rs.Priorities;
@@ -58,8 +67,11 @@ import jakarta.ws.rs.client.Entity;
 import jakarta.ws.rs.core.Application;
 import jakarta.ws.rs.core.MediaType; // Needed for content type checks
 import jakarta.ws.rs.core.Response;
+import java.io.ByteArrayInputStream;
 import java.io.InputStream; // Needed for zip stream check
 import java.io.IOException; // Needed for InputStream operations
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream; // Needed for zip stream check
 import java.io.File; // Added for readHexTextIntoByteBuffer
@@ -72,6 +84,12 @@ import java.lang.reflect.Method; // Added for feedDataToFakeSystaWeb
 import de.freaklamarsch.systarest.FakeSystaWeb; // Added for FakeSystaWeb type
 import java.util.ArrayList; // Added for testData list
 import java.util.List; // Added for testData list
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import jakarta.ws.rs.sse.InboundSseEvent;
+import jakarta.ws.rs.sse.SseEventSource;
 // org.junit.jupiter.api.BeforeAll is already imported
 // java.nio.ByteOrder is already imported
 
@@ -191,6 +209,8 @@ class SystaRESTAPITest extends JerseyTest {
     System.out.println("[SystaRESTAPITest] configure: Setting log directory to: " + this.effectiveLogPath); // Existing print (now confirmed after successful resolve)
 
 		ResourceConfig config = new ResourceConfig(SystaRESTAPI.class);
+		config.register(new CompressionFilter());
+		config.register(new LongPollFilter());
 		config.property(SystaRESTAPI.PROP_PARADIGMA_IP, paradigmIPv4);
 		config.property(SystaRESTAPI.PROP_LOG_DIR, this.effectiveLogPath); // Set the log directory property
 		return config;
@@ -275,6 +295,22 @@ class SystaRESTAPITest extends JerseyTest {
 		assertTrue(json.getBoolean("running"));
 	}
 
+	@Test
+	public void testStartupMillis() {
+		System.out.println("SystaRESTAPITest: testStartupMillis()");
+		target("/systarest/stop").request().post(Entity.json(""));
+		Response response = target("/systarest/start").request().post(Entity.json(""));
+		assertEquals(204, response.getStatus(), "should return status 204");
+		// start returns when the socket is open, so the time needed is recorded
+		response = target("/systarest/servicestatus").request().get();
+		assertEquals(200, response.getStatus(), "should return status 200");
+		JsonObject json = response.readEntity(JsonObject.class);
+		assertTrue(json.getBoolean("running"));
+		JsonObject startupMillis = json.getJsonObject("startupMillis");
+		assertTrue(startupMillis.containsKey("udp"), "time for opening the socket should be recorded");
+		assertTrue(startupMillis.getJsonNumber("udp").longValue() >= 0);
+	}
+
 	@Test
 	public void testStop() {
 		System.out.println("SystaRESTAPITest: testStop()");
@@ -653,7 +689,252 @@ class SystaRESTAPITest extends JerseyTest {
 		assertNotNull(json, "/status response should be a valid JSON object");
 		// Further checks for expected status fields
 	}
+
+	@Test
+	void testConditionalGet() {
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA02_09_01));
+		for (String endpoint : new String[] { "rawdata", "waterheater", "status" }) {
+			Response response = target("/systarest/" + endpoint).request().get();
+			assertEquals(200, response.getStatus(), "GET /" + endpoint + " should return 200 OK");
+			String etag = response.getHeaderString("ETag");
+			String lastModified = response.getHeaderString("Last-Modified");
+			assertNotNull(etag, "GET /" + endpoint + " should return an ETag");
+			assertNotNull(lastModified, "GET /" + endpoint + " should return Last-Modified");
+			response.close();
+			response = target("/systarest/" + endpoint).request().header("If-None-Match", etag).get();
+			assertEquals(304, response.getStatus(), "matching If-None-Match should return 304");
+			response.close();
+			response = target("/systarest/" + endpoint).request().header("If-Modified-Since", lastModified).get();
+			assertEquals(304, response.getStatus(), "If-Modified-Since the last data should return 304");
+			response.close();
+		}
+		Response response = target("/systarest/rawdata").request().get();
+		String etag = response.getHeaderString("ETag");
+		response.close();
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA03_09_02));
+		response = target("/systarest/rawdata").request().header("If-None-Match", etag).get();
+		assertEquals(200, response.getStatus(), "new data should invalidate the ETag");
+		assertNotEquals(etag, response.getHeaderString("ETag"));
+		response.close();
+
+		response = target("/systarest/servicestatus").request().get();
+		etag = response.getHeaderString("ETag");
+		assertNotNull(etag, "GET /servicestatus should return an ETag");
+		response.close();
+		response = target("/systarest/servicestatus").request().header("If-None-Match", etag).get();
+		assertEquals(304, response.getStatus(), "matching If-None-Match should return 304");
+		response.close();
+		// a request served from the cache changes the cache statistics of the status
+		target("/systarest/rawdata").request().get().close();
+		response = target("/systarest/servicestatus").request().header("If-None-Match", etag).get();
+		assertEquals(200, response.getStatus(), "any changed field should invalidate the ETag");
+		assertNotEquals(etag, response.getHeaderString("ETag"));
+		response.close();
+	}
 	
+	@Test
+	void testStream() throws InterruptedException {
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA02_09_01));
+		BlockingQueue<InboundSseEvent> events = new LinkedBlockingQueue<>();
+		try (SseEventSource source = SseEventSource.target(target("/systarest/stream/rawdata")).build()) {
+			source.register(events::add);
+			source.open();
+			InboundSseEvent event = events.poll(10, TimeUnit.SECONDS);
+			assertNotNull(event, "the current data should be sent after subscribing");
+			assertEquals("rawdata", event.getName());
+			feedDataToFakeSystaWeb(testData.get(IDX_DATA03_09_02));
+			event = events.poll(10, TimeUnit.SECONDS);
+			assertNotNull(event, "new data should be pushed to the subscriber");
+			assertEquals("rawdata", event.getName());
+			JsonObject json = event.readData(JsonObject.class, MediaType.APPLICATION_JSON_TYPE);
+			assertEquals(Long.parseLong(event.getId()), json.getJsonNumber("timestamp").longValue());
+			assertTrue(json.getJsonArray("rawData").size() > 0);
+		}
+		Response response = target("/systarest/stream/unknown").request().get();
+		assertEquals(404, response.getStatus(), "unknown representations should return 404");
+		response.close();
+	}
+
+	@Test
+	void testLongPoll() throws Exception {
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA02_09_01));
+		Response response = target("/systarest/status").queryParam("waitForNewerThan", 0).request().get();
+		assertEquals(200, response.getStatus(), "older data should be returned right away");
+		long timestamp = response.readEntity(JsonObject.class).getJsonNumber("timestamp").longValue();
+
+		Future<Response> parked = target("/systarest/status").queryParam("waitForNewerThan", timestamp).request()
+				.async().get();
+		Thread.sleep(500);
+		assertFalse(parked.isDone(), "the request should wait for newer data");
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA03_09_02));
+		response = parked.get(10, TimeUnit.SECONDS);
+		assertEquals(200, response.getStatus(), "newer data should complete the request");
+		assertTrue(response.readEntity(JsonObject.class).getJsonNumber("timestamp").longValue() > timestamp);
+
+		response = target("/systarest/rawdata").queryParam("waitForNewerThan", Long.MAX_VALUE)
+				.queryParam("timeout", 1).request().get();
+		assertEquals(304, response.getStatus(), "the request should time out without newer data");
+		response.close();
+	}
+
+	@Test
+	void testProjection() {
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA02_09_01));
+		JsonObject full = target("/systarest/status").request().get(JsonObject.class);
+		Response response = target("/systarest/status").queryParam("fields", "outsideTemp, hotWaterTemp,unknownField")
+				.request().get();
+		assertEquals(200, response.getStatus(), "GET /status?fields= should return 200 OK");
+		JsonObject json = response.readEntity(JsonObject.class);
+		assertEquals(2, json.size(), "only the known selected fields should be returned");
+		assertEquals(full.get("outsideTemp"), json.get("outsideTemp"));
+		assertEquals(full.get("hotWaterTemp"), json.get("hotWaterTemp"));
+
+		full = target("/systarest/rawdata").request().get(JsonObject.class);
+		json = target("/systarest/rawdata").queryParam("indices", "0-2,36").request().get(JsonObject.class);
+		assertEquals(4, json.getJsonArray("rawData").size());
+		assertEquals(36, json.getJsonArray("indices").getInt(3));
+		assertEquals(full.getJsonArray("rawData").get(36), json.getJsonArray("rawData").get(3));
+		assertEquals(full.get("timestamp"), json.get("timestamp"));
+
+		response = target("/systarest/rawdata").queryParam("indices", "0-2000").request().get();
+		assertEquals(400, response.getStatus(), "indices out of range should return 400");
+		response.close();
+		response = target("/systarest/status").queryParam("fields", ",").request().get();
+		assertEquals(400, response.getStatus(), "an empty field list should return 400");
+		response.close();
+	}
+
+	@Test
+	void testMetrics() {
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA02_09_01));
+		JsonObject status = target("/systarest/status").request().get(JsonObject.class);
+		Response response = target("/systarest/metrics").request().get();
+		assertEquals(200, response.getStatus(), "GET /metrics should return 200 OK");
+		assertTrue(response.getMediaType().toString().startsWith(MediaType.TEXT_PLAIN));
+		String metrics = response.readEntity(String.class);
+		assertTrue(metrics.contains("# TYPE systa_outside_temp gauge\n"));
+		assertTrue(metrics.contains("\nsysta_outside_temp " + status.getJsonNumber("outsideTemp").doubleValue() + "\n"),
+				"the values should be scaled like in /status");
+		assertTrue(metrics.contains("\nsysta_heating_pump_speed_actual " + status.getInt("heatingPumpSpeedActual") + "\n"));
+		assertTrue(metrics.contains("\nsysta_packets_processed_total "));
+		assertTrue(metrics.contains("\nsysta_datalogger_files_written_total{logger=\"raw\"} "));
+		assertEquals(metrics, target("/systarest/metrics").request().get(String.class));
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA03_09_02));
+		assertNotEquals(metrics, target("/systarest/metrics").request().get(String.class),
+				"new data should be rendered");
+	}
+
+	@Test
+	void testInvalidLogLimits() {
+		Properties props = new Properties();
+		props.setProperty("LOG_MAX_SIZE_MB", " 5 ");
+		props.setProperty("LOG_MAX_AGE_DAYS", "30");
+		ResourceConfig config = SystaRESTServer.createResourceConfig(props, "127.0.0.1");
+		assertEquals(5L * 1024 * 1024, config.getProperty(SystaRESTAPI.PROP_LOG_MAX_BYTES));
+		assertEquals(30L, config.getProperty(SystaRESTAPI.PROP_LOG_MAX_AGE_DAYS));
+		// a typo in the config file should not prevent the server from starting
+		props.setProperty("LOG_MAX_SIZE_MB", "5MB");
+		props.setProperty("LOG_MAX_AGE_DAYS", "a year");
+		config = SystaRESTServer.createResourceConfig(props, "127.0.0.1");
+		assertNull(config.getProperty(SystaRESTAPI.PROP_LOG_MAX_BYTES));
+		assertNull(config.getProperty(SystaRESTAPI.PROP_LOG_MAX_AGE_DAYS));
+	}
+
+	@Test
+	void testHttpEngines() throws IOException {
+		for (String engine : new String[] { "jdk", "jdk-virtual", "grizzly" }) {
+			boolean virtual = engine.endsWith("-virtual");
+			engine = engine.replace("-virtual", "");
+			Properties props = new Properties();
+			props.setProperty(HttpEngine.PROP_ENGINE, engine);
+			props.setProperty(HttpEngine.PROP_VIRTUAL_THREADS, Boolean.toString(virtual));
+			props.setProperty(HttpEngine.PROP_WORKER_THREADS, "2");
+			props.setProperty(HttpEngine.PROP_SELECTOR_THREADS, "1");
+			props.setProperty(HttpEngine.PROP_KEEP_ALIVE_SECONDS, "5");
+			props.setProperty(HttpEngine.PROP_KEEP_ALIVE_MAX_REQUESTS, "10");
+			ResourceConfig config = new ResourceConfig(SystaRESTAPI.class);
+			config.register(new LongPollFilter());
+			config.property(SystaRESTAPI.PROP_LOG_DIR, this.effectiveLogPath);
+			HttpEngine server = HttpEngine.create(props, URI.create("http://localhost:9997/"), config);
+			assertEquals(engine, server.getName());
+			// virtual threads are used if the runtime supports them
+			assertEquals(virtual && Runtime.version().feature() >= 21, server.usesVirtualThreads());
+			server.start();
+			try {
+				Response response = client().target(server.getBaseUri()).path("systarest/servicestatus").request()
+						.get();
+				assertEquals(200, response.getStatus(), "the " + engine + " engine should serve requests");
+				response.close();
+				for (String endpoint : new String[] { "rawdata", "waterheater", "status" }) {
+					response = client().target(server.getBaseUri()).path("systarest/" + endpoint).request().get();
+					assertEquals(200, response.getStatus(), "the " + engine + " engine should serve /" + endpoint);
+					response.close();
+					// only grizzly can suspend requests
+					response = client().target(server.getBaseUri()).path("systarest/" + endpoint)
+							.queryParam("waitForNewerThan", Long.MAX_VALUE).queryParam("timeout", 1).request().get();
+					assertEquals(engine.equals("jdk") ? 501 : 304, response.getStatus());
+					response.close();
+				}
+				if (engine.equals("jdk")) {
+					response = client().target(server.getBaseUri()).path("systarest/stream/rawdata").request().get();
+					assertEquals(501, response.getStatus(), "GET /stream should return 501 Not Implemented");
+					response.close();
+				}
+			} finally {
+				server.stop();
+			}
+		}
+		Properties props = new Properties();
+		props.setProperty(HttpEngine.PROP_ENGINE, "unknown");
+		assertThrows(IllegalArgumentException.class,
+				() -> HttpEngine.create(props, URI.create("http://localhost:9997/"), new ResourceConfig()));
+	}
+
+	@Test
+	void testCompression() throws IOException {
+		feedDataToFakeSystaWeb(testData.get(IDX_DATA02_09_01));
+		Response response = target("/systarest/rawdata").request().get();
+		assertNull(response.getHeaderString("Content-Encoding"), "responses should only be compressed on request");
+		String etag = response.getHeaderString("ETag");
+		byte[] plain = response.readEntity(byte[].class);
+		for (String encoding : new String[] { "gzip", "deflate" }) {
+			response = target("/systarest/rawdata").request().header("Accept-Encoding", encoding).get();
+			assertEquals(200, response.getStatus(), "GET /rawdata with " + encoding + " should return 200 OK");
+			assertEquals(encoding, response.getHeaderString("Content-Encoding"));
+			assertTrue(response.getHeaderString("Vary").contains("Accept-Encoding"));
+			// the compressed representation has its own strong ETag
+			String encodedEtag = response.getHeaderString("ETag");
+			assertEquals(etag.substring(0, etag.length() - 1) + (encoding.equals("gzip") ? "-gz" : "-deflate") + "\"",
+					encodedEtag);
+			Response notModified = target("/systarest/rawdata").request().header("If-None-Match", encodedEtag).get();
+			assertEquals(304, notModified.getStatus(), "the ETag of the " + encoding + " variant should match");
+			notModified.close();
+			notModified = target("/systarest/rawdata").request().header("Accept-Encoding", encoding)
+					.header("If-None-Match", etag).get();
+			assertEquals(304, notModified.getStatus(), "the ETag of the identity variant should match");
+			notModified.close();
+			byte[] compressed = response.readEntity(byte[].class);
+			assertTrue(compressed.length < plain.length, encoding + " should compress the rawdata");
+			InputStream in = encoding.equals("gzip") ? new GZIPInputStream(new ByteArrayInputStream(compressed))
+					: new InflaterInputStream(new ByteArrayInputStream(compressed));
+			assertArrayEquals(plain, in.readAllBytes(), "the decompressed body should equal the plain body");
+		}
+		// not cached responses are compressed while they are written
+		response = target("/systarest/servicestatus").request().header("Accept-Encoding", "deflate;q=0.5, gzip")
+				.get();
+		assertEquals("gzip", response.getHeaderString("Content-Encoding"));
+		response.close();
+		response = target("/systarest/status").queryParam("fields", "outsideTemp").request()
+				.header("Accept-Encoding", "gzip").get();
+		assertNull(response.getHeaderString("Content-Encoding"), "small responses should not be compressed");
+		response.close();
+
+		assertEquals("gzip", CompressionFilter.negotiate("*"));
+		assertEquals("deflate", CompressionFilter.negotiate("gzip;q=0, deflate"));
+		assertNull(CompressionFilter.negotiate("identity"));
+		assertNull(CompressionFilter.negotiate(null));
+	}
+
 	@Test
 	void testFindSystaComfort_ReturnsJson() {
 		Response response = target("/systarest/findsystacomfort").request().get();